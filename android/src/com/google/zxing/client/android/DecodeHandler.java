@@ -23,7 +23,9 @@ import com.google.zxing.MultiFormatReader;
 import com.google.zxing.PlanarYUVLuminanceSource;
 import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.common.BinarizerWorkspace;
+import com.google.zxing.common.DecodeWorkspace;
+import com.google.zxing.common.TemporalHybridBinarizer;
 
 import android.os.Bundle;
 import android.os.Handler;
@@ -32,6 +34,7 @@ import android.os.Message;
 import android.util.Log;
 
 import java.io.ByteArrayOutputStream;
+import java.util.EnumMap;
 import java.util.Map;
 
 final class DecodeHandler extends Handler {
@@ -40,11 +43,17 @@ final class DecodeHandler extends Handler {
 
   private final CaptureActivity activity;
   private final MultiFormatReader multiFormatReader;
+  private final BinarizerWorkspace binarizerWorkspace;
   private boolean running = true;
 
   DecodeHandler(CaptureActivity activity, Map<DecodeHintType,Object> hints) {
+    // This handler decodes on one thread, so the readers can reuse one set of buffers.
+    // The hints belong to DecodeThread, so add the workspace to a copy.
+    Map<DecodeHintType,Object> handlerHints = new EnumMap<DecodeHintType,Object>(hints);
+    handlerHints.put(DecodeHintType.DECODE_WORKSPACE, new DecodeWorkspace());
     multiFormatReader = new MultiFormatReader();
-    multiFormatReader.setHints(hints);
+    multiFormatReader.setHints(handlerHints);
+    binarizerWorkspace = new BinarizerWorkspace();
     this.activity = activity;
   }
 
@@ -66,7 +75,8 @@ final class DecodeHandler extends Handler {
 
   /**
    * Decode the data within the viewfinder rectangle, and time how long it took. For efficiency,
-   * reuse the same reader objects from one decode to the next.
+   * reuse the same reader objects from one decode to the next. Consecutive preview frames share a
+   * binarizer workspace, so only the parts of the frame which changed are analyzed again.
    *
    * @param data   The YUV preview frame.
    * @param width  The width of the preview frame.
@@ -77,7 +87,7 @@ final class DecodeHandler extends Handler {
     Result rawResult = null;
     PlanarYUVLuminanceSource source = activity.getCameraManager().buildLuminanceSource(data, width, height);
     if (source != null) {
-      BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
+      BinaryBitmap bitmap = new BinaryBitmap(new TemporalHybridBinarizer(source, binarizerWorkspace));
       try {
         rawResult = multiFormatReader.decodeWithState(bitmap);
       } catch (ReaderException re) {
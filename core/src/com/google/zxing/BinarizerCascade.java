@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * <p>Offers several binarizations of one image, for callers that try more than one of them
+ * before giving up. The luminance of the image is fetched from the {@link LuminanceSource} only
+ * once, and each {@link BinaryBitmap} is created the first time it is asked for and then kept, so
+ * that its black matrix is also computed only once however many passes use it. The hybrid and global
+ * histogram binarizations have the same rows, so those are shared between them too.</p>
+ *
+ * <p>{@link MultiFormatReader#decodeWithState(BinarizerCascade)} tries the binarizations in the
+ * order given by the {@link DecodeHintType#BINARIZATIONS} hint.</p>
+ */
+public final class BinarizerCascade {
+
+  /**
+   * The binarizations that a cascade can produce.
+   */
+  public enum Binarization {
+    /** See {@link GlobalHistogramBinarizer}. */
+    GLOBAL_HISTOGRAM,
+    /** See {@link HybridBinarizer}. */
+    HYBRID,
+    /** {@link HybridBinarizer} on the inverted image, for light barcodes on a dark background. */
+    INVERTED_HYBRID,
+  }
+
+  private final LuminanceSource source;
+  private final Map<Binarization,BinaryBitmap> bitmaps;
+  private Binarizer rowBinarizer;
+
+  public BinarizerCascade(LuminanceSource source) {
+    if (source == null) {
+      throw new IllegalArgumentException("Source must be non-null.");
+    }
+    this.source = new CachedLuminanceSource(source);
+    bitmaps = new EnumMap<Binarization,BinaryBitmap>(Binarization.class);
+  }
+
+  /**
+   * @return a source for the image which fetches its luminance matrix only once
+   */
+  public LuminanceSource getLuminanceSource() {
+    return source;
+  }
+
+  /**
+   * @param binarization which binarization of the image to return
+   * @return the image binarized that way. The same object is returned each time.
+   */
+  public BinaryBitmap getBitmap(Binarization binarization) {
+    BinaryBitmap bitmap = bitmaps.get(binarization);
+    if (bitmap == null) {
+      Binarizer binarizer;
+      switch (binarization) {
+        case GLOBAL_HISTOGRAM:
+          binarizer = getRowBinarizer();
+          break;
+        case HYBRID:
+          binarizer = new SharedRowBinarizer(new HybridBinarizer(source), getRowBinarizer());
+          break;
+        case INVERTED_HYBRID:
+          binarizer = new HybridBinarizer(source.invert());
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown binarization: " + binarization);
+      }
+      bitmap = new BinaryBitmap(binarizer);
+      bitmaps.put(binarization, bitmap);
+    }
+    return bitmap;
+  }
+
+  /**
+   * @return the global histogram binarizer, which also supplies the rows of the hybrid binarization
+   */
+  private Binarizer getRowBinarizer() {
+    if (rowBinarizer == null) {
+      rowBinarizer = new GlobalHistogramBinarizer(source);
+    }
+    return rowBinarizer;
+  }
+
+  /**
+   * Takes rows from one binarizer, which caches the black point of each row it has seen, and the
+   * matrix from another.
+   */
+  private static final class SharedRowBinarizer extends Binarizer {
+
+    private final Binarizer matrixBinarizer;
+    private final Binarizer rowBinarizer;
+
+    SharedRowBinarizer(Binarizer matrixBinarizer, Binarizer rowBinarizer) {
+      super(matrixBinarizer.getLuminanceSource());
+      this.matrixBinarizer = matrixBinarizer;
+      this.rowBinarizer = rowBinarizer;
+    }
+
+    @Override
+    public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+      return rowBinarizer.getBlackRow(y, row);
+    }
+
+    @Override
+    public BitMatrix getBlackMatrix() throws NotFoundException {
+      return matrixBinarizer.getBlackMatrix();
+    }
+
+    @Override
+    public Binarizer createBinarizer(LuminanceSource source) {
+      return matrixBinarizer.createBinarizer(source);
+    }
+  }
+
+}
@@ -136,4 +136,8 @@ public final class BinaryBitmap {
     return new BinaryBitmap(binarizer.createBinarizer(newSource));
   }
 
+  LuminanceSource getLuminanceSource() {
+    return binarizer.getLuminanceSource();
+  }
+
 }
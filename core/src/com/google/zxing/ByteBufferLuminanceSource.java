@@ -0,0 +1,180 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This object extends LuminanceSource around a {@link ByteBuffer} of 8-bit grayscale pixels, such as a
+ * direct buffer filled by a camera, or a {@link java.nio.MappedByteBuffer} mapped from a raw image file
+ * with {@link java.nio.channels.FileChannel#map}. Each row of the image starts rowStride bytes after the
+ * previous one, from the given offset into the buffer. Rows are copied out of the buffer only as they are
+ * requested, and cropping shares the buffer.
+ *
+ * The buffer's position and limit are ignored and left unchanged, so one buffer may back several sources
+ * used from different threads, as long as its contents do not change.
+ */
+public final class ByteBufferLuminanceSource extends LuminanceSource {
+
+  private final ByteBuffer buffer;
+  private final int offset;
+  private final int rowStride;
+  private final int dataWidth;
+  private final int dataHeight;
+  private final int left;
+  private final int top;
+
+  /**
+   * @param buffer pixels of a width x height image, row after row, starting at index 0
+   */
+  public ByteBufferLuminanceSource(ByteBuffer buffer, int width, int height) {
+    this(buffer, 0, width, width, height, 0, 0, width, height);
+  }
+
+  /**
+   * @param buffer pixels of the image
+   * @param offset index in the buffer of the top left pixel of the full image
+   * @param rowStride number of bytes from the start of one row to the start of the next, at least dataWidth
+   * @param dataWidth width of the full image
+   * @param dataHeight height of the full image
+   * @param left left of the rectangle of the full image to use
+   * @param top top of the rectangle of the full image to use
+   * @param width width of the rectangle of the full image to use
+   * @param height height of the rectangle of the full image to use
+   */
+  public ByteBufferLuminanceSource(ByteBuffer buffer,
+                                   int offset,
+                                   int rowStride,
+                                   int dataWidth,
+                                   int dataHeight,
+                                   int left,
+                                   int top,
+                                   int width,
+                                   int height) {
+    super(width, height);
+
+    if (rowStride < dataWidth) {
+      throw new IllegalArgumentException("Row stride is less than the image width.");
+    }
+    if (left < 0 || top < 0 || left + width > dataWidth || top + height > dataHeight) {
+      throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+    }
+    if (offset < 0 || (long) offset + (long) (dataHeight - 1) * rowStride + dataWidth > buffer.capacity()) {
+      throw new IllegalArgumentException("Image data does not fit within the buffer.");
+    }
+
+    this.buffer = buffer;
+    this.offset = offset;
+    this.rowStride = rowStride;
+    this.dataWidth = dataWidth;
+    this.dataHeight = dataHeight;
+    this.left = left;
+    this.top = top;
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    ByteBuffer view = view();
+    view.position(offset + (y + top) * rowStride + left);
+    view.get(row, 0, width);
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    int width = getWidth();
+    int height = getHeight();
+
+    // If the whole buffer is exactly the image, and has a backing array, give the caller that array.
+    // The docs specifically warn that result.length must be ignored.
+    if (buffer.hasArray() && buffer.arrayOffset() == 0 && offset == 0 && rowStride == width &&
+        width == dataWidth && height == dataHeight) {
+      return buffer.array();
+    }
+
+    int area = width * height;
+    byte[] matrix = new byte[area];
+    ByteBuffer view = view();
+    int inputOffset = offset + top * rowStride + left;
+
+    // If rows are contiguous, perform a single copy.
+    if (width == rowStride) {
+      view.position(inputOffset);
+      view.get(matrix, 0, area);
+      return matrix;
+    }
+
+    // Otherwise copy one cropped row at a time.
+    for (int y = 0; y < height; y++) {
+      view.position(inputOffset);
+      view.get(matrix, y * width, width);
+      inputOffset += rowStride;
+    }
+    return matrix;
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return true;
+  }
+
+  @Override
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    return new ByteBufferLuminanceSource(buffer,
+                                         offset,
+                                         rowStride,
+                                         dataWidth,
+                                         dataHeight,
+                                         this.left + left,
+                                         this.top + top,
+                                         width,
+                                         height);
+  }
+
+  @Override
+  public boolean isRotateSupported() {
+    return true;
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise() {
+    return new RotatedLuminanceSource(this, 90, false);
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise45() {
+    return RotatedLuminanceSource.rotate45(this);
+  }
+
+  /**
+   * @return a view of the whole buffer whose position can be moved without affecting the buffer,
+   *  or other threads reading it
+   */
+  private ByteBuffer view() {
+    ByteBuffer view = buffer.duplicate();
+    view.clear();
+    return view;
+  }
+
+}
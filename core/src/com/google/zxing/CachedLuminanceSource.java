@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+/**
+ * A wrapper implementation of {@link LuminanceSource} which fetches the luminance matrix of its
+ * delegate at most once, and serves rows from it once it has been fetched. Crops and rotations
+ * are not cached.
+ */
+final class CachedLuminanceSource extends LuminanceSource {
+
+  private final LuminanceSource delegate;
+  private byte[] matrix;
+
+  CachedLuminanceSource(LuminanceSource delegate) {
+    super(delegate.getWidth(), delegate.getHeight());
+    this.delegate = delegate;
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (matrix == null) {
+      return delegate.getRow(y, row);
+    }
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    System.arraycopy(matrix, y * width, row, 0, width);
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    if (matrix == null) {
+      matrix = delegate.getMatrix();
+    }
+    return matrix;
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return delegate.isCropSupported();
+  }
+
+  @Override
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    return delegate.crop(left, top, width, height);
+  }
+
+  @Override
+  public boolean isRotateSupported() {
+    return delegate.isRotateSupported();
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise() {
+    return delegate.rotateCounterClockwise();
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise45() {
+    return delegate.rotateCounterClockwise45();
+  }
+
+}
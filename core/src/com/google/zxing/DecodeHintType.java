@@ -78,4 +78,38 @@ public enum DecodeHintType {
    */
   NEED_RESULT_POINT_CALLBACK,
 
+  /**
+   * Which binarizations of a {@link BinarizerCascade} to try, and in what order, when decoding with
+   * {@link MultiFormatReader#decodeWithState(BinarizerCascade)}. Maps to a {@link java.util.List} of
+   * {@link BinarizerCascade.Binarization}s.
+   */
+  BINARIZATIONS,
+
+  /**
+   * First check cheaply whether the image could contain a barcode at all, with a
+   * {@link com.google.zxing.common.BarcodePresenceFilter}, and if so decode only the region that might.
+   * Worthwhile for video, where most frames show no barcode. Doesn't matter what it maps to;
+   * use {@link Boolean#TRUE}.
+   */
+  PRESENCE_FILTER,
+
+  /**
+   * Buffers for readers to reuse from one image to the next, rather than allocating them for each.
+   * Maps to a {@link com.google.zxing.common.DecodeWorkspace}.
+   */
+  DECODE_WORKSPACE,
+
+  /**
+   * Correct errors in the blocks of large 2D barcodes, such as high version QR Codes, concurrently.
+   * Maps to a {@link java.util.concurrent.ExecutorService}, which the blocks are corrected on.
+   */
+  ERROR_CORRECTION_EXECUTOR,
+
+  /**
+   * Note which modules of a 2D barcode could not be sampled with confidence, and treat codewords read
+   * from them as erasures in error correction, which can then correct up to twice as many damaged
+   * codewords. Currently used for QR Codes. Doesn't matter what it maps to; use {@link Boolean#TRUE}.
+   */
+  USE_ERASURES,
+
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+/**
+ * <p>Converts runs of color pixels to 8-bit luminance, as a weighted sum of the red, green and blue
+ * components. The weightings used by the library's {@link LuminanceSource}s are provided as constants.</p>
+ *
+ * <p>Each conversion is a simple counted loop with no branches or calls in its body, which the JIT
+ * unrolls, and on many platforms vectorizes. Converting whole rows or images at once is much faster
+ * than converting pixel by pixel.</p>
+ */
+public final class LuminanceConverter {
+
+  /**
+   * (R + 2G + B) / 4, rounded down. The cheapest weighting, favoring green.
+   */
+  public static final LuminanceConverter FAST = new LuminanceConverter(1, 2, 1, 2, false);
+
+  /**
+   * 0.299R + 0.587G + 0.114B (YUV/YIQ for PAL and NTSC), with 10 bit weights, rounded.
+   */
+  public static final LuminanceConverter REC601 = new LuminanceConverter(306, 601, 117, 10, true);
+
+  /**
+   * 0.299R + 0.587G + 0.114B with 8 bit weights, rounded. This is how Java2D draws color images onto
+   * a grayscale one.
+   */
+  public static final LuminanceConverter REC601_8BIT = new LuminanceConverter(77, 150, 29, 8, true);
+
+  private final int redWeight;
+  private final int greenWeight;
+  private final int blueWeight;
+  private final int shift;
+  private final int rounding;
+
+  private LuminanceConverter(int redWeight, int greenWeight, int blueWeight, int shift, boolean round) {
+    this.redWeight = redWeight;
+    this.greenWeight = greenWeight;
+    this.blueWeight = blueWeight;
+    this.shift = shift;
+    this.rounding = round ? 1 << (shift - 1) : 0;
+  }
+
+  /**
+   * @return luminance of the given components, each 0 to 255
+   */
+  public int luminance(int red, int green, int blue) {
+    return (redWeight * red + greenWeight * green + blueWeight * blue + rounding) >> shift;
+  }
+
+  /**
+   * Converts pixels packed as 0xAARRGGBB, ignoring alpha.
+   *
+   * @param pixels packed pixels
+   * @param offset index of the first pixel to convert
+   * @param luminances array to write luminance to
+   * @param luminanceOffset index to write the luminance of the first pixel to
+   * @param count number of pixels to convert
+   */
+  public void convertPackedRGB(int[] pixels, int offset, byte[] luminances, int luminanceOffset, int count) {
+    int redWeight = this.redWeight;
+    int greenWeight = this.greenWeight;
+    int blueWeight = this.blueWeight;
+    int rounding = this.rounding;
+    int shift = this.shift;
+    for (int i = 0; i < count; i++) {
+      int pixel = pixels[offset + i];
+      luminances[luminanceOffset + i] = (byte) ((redWeight * ((pixel >> 16) & 0xFF) +
+                                                 greenWeight * ((pixel >> 8) & 0xFF) +
+                                                 blueWeight * (pixel & 0xFF) +
+                                                 rounding) >> shift);
+    }
+  }
+
+  /**
+   * Converts pixels packed as 0xAARRGGBB. Fully transparent pixels become white, since they are
+   * often used as the white area of a barcode whatever their color. Other pixels are treated as opaque.
+   *
+   * @see #convertPackedRGB(int[], int, byte[], int, int)
+   */
+  public void convertPackedARGB(int[] pixels, int offset, byte[] luminances, int luminanceOffset, int count) {
+    int redWeight = this.redWeight;
+    int greenWeight = this.greenWeight;
+    int blueWeight = this.blueWeight;
+    int rounding = this.rounding;
+    int shift = this.shift;
+    for (int i = 0; i < count; i++) {
+      int pixel = pixels[offset + i];
+      // All ones if alpha is 0, otherwise 0
+      int transparent = ((pixel >>> 24) - 1) >> 31;
+      luminances[luminanceOffset + i] = (byte) (((redWeight * ((pixel >> 16) & 0xFF) +
+                                                  greenWeight * ((pixel >> 8) & 0xFF) +
+                                                  blueWeight * (pixel & 0xFF) +
+                                                  rounding) >> shift) | transparent);
+    }
+  }
+
+  /**
+   * Converts pixels stored as three bytes, blue then green then red, as in
+   * {@code BufferedImage.TYPE_3BYTE_BGR}.
+   *
+   * @param data pixel data
+   * @param offset index of the blue byte of the first pixel to convert
+   * @param luminances array to write luminance to
+   * @param luminanceOffset index to write the luminance of the first pixel to
+   * @param count number of pixels to convert
+   */
+  public void convertBGR(byte[] data, int offset, byte[] luminances, int luminanceOffset, int count) {
+    int redWeight = this.redWeight;
+    int greenWeight = this.greenWeight;
+    int blueWeight = this.blueWeight;
+    int rounding = this.rounding;
+    int shift = this.shift;
+    for (int i = 0; i < count; i++) {
+      int index = offset + i * 3;
+      luminances[luminanceOffset + i] = (byte) ((blueWeight * (data[index] & 0xFF) +
+                                                 greenWeight * (data[index + 1] & 0xFF) +
+                                                 redWeight * (data[index + 2] & 0xFF) +
+                                                 rounding) >> shift);
+    }
+  }
+
+  /**
+   * Converts pixels stored as four bytes, red then green then blue then alpha. Fully transparent
+   * pixels become white, and other pixels are treated as opaque, as in
+   * {@link #convertPackedARGB(int[], int, byte[], int, int)}.
+   *
+   * @see #convertBGR(byte[], int, byte[], int, int)
+   */
+  public void convertRGBA(byte[] data, int offset, byte[] luminances, int luminanceOffset, int count) {
+    int redWeight = this.redWeight;
+    int greenWeight = this.greenWeight;
+    int blueWeight = this.blueWeight;
+    int rounding = this.rounding;
+    int shift = this.shift;
+    for (int i = 0; i < count; i++) {
+      int index = offset + (i << 2);
+      int transparent = ((data[index + 3] & 0xFF) - 1) >> 31;
+      luminances[luminanceOffset + i] = (byte) (((redWeight * (data[index] & 0xFF) +
+                                                  greenWeight * (data[index + 1] & 0xFF) +
+                                                  blueWeight * (data[index + 2] & 0xFF) +
+                                                  rounding) >> shift) | transparent);
+    }
+  }
+
+}
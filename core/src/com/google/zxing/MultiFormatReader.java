@@ -17,6 +17,8 @@
 package com.google.zxing;
 
 import com.google.zxing.aztec.AztecReader;
+import com.google.zxing.common.BarcodePresenceFilter;
+import com.google.zxing.common.HybridBinarizer;
 import com.google.zxing.datamatrix.DataMatrixReader;
 import com.google.zxing.maxicode.MaxiCodeReader;
 import com.google.zxing.oned.MultiFormatOneDReader;
@@ -25,6 +27,7 @@ import com.google.zxing.qrcode.QRCodeReader;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.Map;
 
 /**
@@ -37,8 +40,18 @@ import java.util.Map;
  */
 public final class MultiFormatReader implements Reader {
 
+  private static final BinarizerCascade.Binarization[] DEFAULT_BINARIZATIONS = {
+      BinarizerCascade.Binarization.HYBRID,
+      BinarizerCascade.Binarization.GLOBAL_HISTOGRAM,
+  };
+  // Images are scaled down by up to 2^MAX_SCALE_POWER for the coarse pass, while keeping the shorter
+  // side of the scaled image at least MIN_SCALED_DIMENSION.
+  private static final int MAX_SCALE_POWER = 2;
+  private static final int MIN_SCALED_DIMENSION = 400;
+
   private Map<DecodeHintType,?> hints;
   private Reader[] readers;
+  private BinarizerCascade.Binarization[] binarizations;
 
   /**
    * This version of decode honors the intent of Reader.decode(BinaryBitmap) in that it
@@ -52,7 +65,7 @@ public final class MultiFormatReader implements Reader {
   @Override
   public Result decode(BinaryBitmap image) throws NotFoundException {
     setHints(null);
-    return decodeInternal(image);
+    return decodeInternal(image, hints);
   }
 
   /**
@@ -66,7 +79,7 @@ public final class MultiFormatReader implements Reader {
   @Override
   public Result decode(BinaryBitmap image, Map<DecodeHintType,?> hints) throws NotFoundException {
     setHints(hints);
-    return decodeInternal(image);
+    return decodeInternal(image, hints);
   }
 
   /**
@@ -82,7 +95,93 @@ public final class MultiFormatReader implements Reader {
     if (readers == null) {
       setHints(null);
     }
-    return decodeInternal(image);
+    return decodeInternal(image, hints);
+  }
+
+  /**
+   * Decode each binarization of an image in turn, in the order given by the
+   * {@link DecodeHintType#BINARIZATIONS} hint, using the state set up by calling setHints() previously.
+   * By default the hybrid and then the global histogram binarizations are tried. The image's luminance
+   * and each binarization are computed at most once, however many readers examine them, and remain
+   * cached in the cascade for any later calls.
+   *
+   * @param cascade The binarizations of the image to decode
+   * @return The contents of the image
+   * @throws NotFoundException Any errors which occurred
+   */
+  public Result decodeWithState(BinarizerCascade cascade) throws NotFoundException {
+    if (readers == null) {
+      setHints(null);
+    }
+    for (BinarizerCascade.Binarization binarization : binarizations) {
+      try {
+        return decodeInternal(cascade.getBitmap(binarization), hints);
+      } catch (NotFoundException nfe) {
+        // continue
+      }
+    }
+    throw NotFoundException.getNotFoundInstance();
+  }
+
+  /**
+   * Decode a large image coarse to fine, using the state set up by calling setHints() previously. The
+   * image is first scaled down by 2 or 4 with a {@link ScaledLuminanceSource}, and a symbol with large
+   * enough modules is decoded from that. Otherwise, if the readers reported possible result points in
+   * the scaled image, the region of the full resolution image around them is decoded. Only if that fails
+   * too is the whole image decoded at full resolution. Images which are too small to scale down are
+   * decoded directly. Result points are always in the coordinates of the full resolution image.
+   *
+   * @param source The luminance of the image to decode
+   * @return The contents of the image
+   * @throws NotFoundException Any errors which occurred
+   */
+  public Result decodeCoarseToFine(LuminanceSource source) throws NotFoundException {
+    if (readers == null) {
+      setHints(null);
+    }
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int scalePower = 0;
+    while (scalePower < MAX_SCALE_POWER &&
+           Math.min(width, height) >> (scalePower + 1) >= MIN_SCALED_DIMENSION) {
+      scalePower++;
+    }
+    if (scalePower > 0) {
+      int scale = 1 << scalePower;
+      ResultPointCallback callback = hints == null ? null :
+          (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+      PointCollector collector = new PointCollector(scale, 0, 0, callback);
+      LuminanceSource coarse = new ScaledLuminanceSource(source, scalePower);
+      try {
+        Result result = decodeInternal(new BinaryBitmap(new HybridBinarizer(coarse)), withCallback(collector));
+        return transformResultPoints(result, scale, 0, 0);
+      } catch (NotFoundException nfe) {
+        // continue
+      }
+
+      if (collector.count >= 3 && source.isCropSupported()) {
+        // Leave room for the parts of the symbol beyond the points, such as the outer half of
+        // finder patterns, and its quiet zone.
+        int margin = (int) Math.max(collector.maxX - collector.minX, collector.maxY - collector.minY) / 2 + 4 * scale;
+        int left = Math.max(0, (int) collector.minX - margin);
+        int top = Math.max(0, (int) collector.minY - margin);
+        int right = Math.min(width, (int) collector.maxX + margin);
+        int bottom = Math.min(height, (int) collector.maxY + margin);
+        if (right > left && bottom > top && (long) (right - left) * (bottom - top) < (long) width * height) {
+          LuminanceSource region = source.crop(left, top, right - left, bottom - top);
+          // Report points found in the region in the coordinates of the image too
+          Map<DecodeHintType,?> regionHints =
+              callback == null ? hints : withCallback(new PointCollector(1, left, top, callback));
+          try {
+            Result result = decodeInternal(new BinaryBitmap(new HybridBinarizer(region)), regionHints);
+            return transformResultPoints(result, 1, left, top);
+          } catch (NotFoundException nfe) {
+            // continue
+          }
+        }
+      }
+    }
+    return decodeInternal(new BinaryBitmap(new HybridBinarizer(source)), hints);
   }
 
   /**
@@ -152,6 +251,11 @@ public final class MultiFormatReader implements Reader {
       }
     }
     this.readers = readers.toArray(new Reader[readers.size()]);
+
+    Collection<BinarizerCascade.Binarization> binarizations = hints == null ? null :
+        (Collection<BinarizerCascade.Binarization>) hints.get(DecodeHintType.BINARIZATIONS);
+    this.binarizations = binarizations == null ? DEFAULT_BINARIZATIONS :
+        binarizations.toArray(new BinarizerCascade.Binarization[binarizations.size()]);
   }
 
   @Override
@@ -163,7 +267,29 @@ public final class MultiFormatReader implements Reader {
     }
   }
 
-  private Result decodeInternal(BinaryBitmap image) throws NotFoundException {
+  private Result decodeInternal(BinaryBitmap image, Map<DecodeHintType,?> hints) throws NotFoundException {
+    if (hints != null && hints.containsKey(DecodeHintType.PRESENCE_FILTER)) {
+      int[] region = BarcodePresenceFilter.findCandidateRegion(image.getLuminanceSource());
+      if (region == null) {
+        throw NotFoundException.getNotFoundInstance();
+      }
+      int left = region[0];
+      int top = region[1];
+      int width = region[2];
+      int height = region[3];
+      if ((width < image.getWidth() || height < image.getHeight()) && image.isCropSupported()) {
+        // Report points found in the region in the coordinates of the image too
+        ResultPointCallback callback = (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+        Map<DecodeHintType,?> regionHints =
+            callback == null ? hints : withCallback(new PointCollector(1, left, top, callback));
+        Result result = decodeReaders(image.crop(left, top, width, height), regionHints);
+        return transformResultPoints(result, 1, left, top);
+      }
+    }
+    return decodeReaders(image, hints);
+  }
+
+  private Result decodeReaders(BinaryBitmap image, Map<DecodeHintType,?> hints) throws NotFoundException {
     if (readers != null) {
       for (Reader reader : readers) {
         try {
@@ -176,4 +302,76 @@ public final class MultiFormatReader implements Reader {
     throw NotFoundException.getNotFoundInstance();
   }
 
+  /**
+   * @return a copy of the hints set by setHints(), with the given result point callback
+   */
+  private Map<DecodeHintType,?> withCallback(ResultPointCallback callback) {
+    Map<DecodeHintType,Object> newHints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    if (hints != null) {
+      newHints.putAll(hints);
+    }
+    newHints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, callback);
+    return newHints;
+  }
+
+  /**
+   * @return the result with each point scaled by the given factor, then offset
+   */
+  private static Result transformResultPoints(Result result, int scale, int xOffset, int yOffset) {
+    ResultPoint[] oldResultPoints = result.getResultPoints();
+    if (oldResultPoints == null) {
+      return result;
+    }
+    ResultPoint[] newResultPoints = new ResultPoint[oldResultPoints.length];
+    for (int i = 0; i < oldResultPoints.length; i++) {
+      ResultPoint oldPoint = oldResultPoints[i];
+      if (oldPoint != null) {
+        newResultPoints[i] = new ResultPoint(oldPoint.getX() * scale + xOffset, oldPoint.getY() * scale + yOffset);
+      }
+    }
+    Result newResult = new Result(result.getText(), result.getRawBytes(), newResultPoints,
+        result.getBarcodeFormat(), result.getTimestamp());
+    newResult.putAllMetadata(result.getResultMetadata());
+    return newResult;
+  }
+
+  /**
+   * Collects the bounds of the possible result points found in a scaled down image, or in a region of
+   * the image, in the coordinates of the full resolution image, and passes them on to the caller's
+   * callback, if any.
+   */
+  private static final class PointCollector implements ResultPointCallback {
+
+    private final int scale;
+    private final int xOffset;
+    private final int yOffset;
+    private final ResultPointCallback delegate;
+    private int count;
+    private float minX = Float.MAX_VALUE;
+    private float minY = Float.MAX_VALUE;
+    private float maxX;
+    private float maxY;
+
+    PointCollector(int scale, int xOffset, int yOffset, ResultPointCallback delegate) {
+      this.scale = scale;
+      this.xOffset = xOffset;
+      this.yOffset = yOffset;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void foundPossibleResultPoint(ResultPoint point) {
+      float x = point.getX() * scale + xOffset;
+      float y = point.getY() * scale + yOffset;
+      count++;
+      minX = Math.min(minX, x);
+      minY = Math.min(minY, y);
+      maxX = Math.max(maxX, x);
+      maxY = Math.max(maxY, y);
+      if (delegate != null) {
+        delegate.foundPossibleResultPoint(new ResultPoint(x, y));
+      }
+    }
+  }
+
 }
@@ -122,6 +122,21 @@ public final class PlanarYUVLuminanceSource extends LuminanceSource {
                                         false);
   }
 
+  @Override
+  public boolean isRotateSupported() {
+    return true;
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise() {
+    return new RotatedLuminanceSource(this, 90, false);
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise45() {
+    return RotatedLuminanceSource.rotate45(this);
+  }
+
   public int[] renderThumbnail() {
     int width = getWidth() / THUMBNAIL_SCALE_FACTOR;
     int height = getHeight() / THUMBNAIL_SCALE_FACTOR;
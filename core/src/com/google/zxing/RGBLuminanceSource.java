@@ -18,7 +18,7 @@ package com.google.zxing;
 
 /**
  * This class is used to help decode images from files which arrive as RGB data from
- * an ARGB pixel array. It does not support rotation.
+ * an ARGB pixel array.
  *
  * @author dswitkin@google.com (Daniel Switkin)
  * @author Betaminos
@@ -42,22 +42,8 @@ public final class RGBLuminanceSource extends LuminanceSource {
     // In order to measure pure decoding speed, we convert the entire image to a greyscale array
     // up front, which is the same as the Y channel of the YUVLuminanceSource in the real app.
     luminances = new byte[width * height];
-    for (int y = 0; y < height; y++) {
-      int offset = y * width;
-      for (int x = 0; x < width; x++) {
-        int pixel = pixels[offset + x];
-        int r = (pixel >> 16) & 0xff;
-        int g = (pixel >> 8) & 0xff;
-        int b = pixel & 0xff;
-        if (r == g && g == b) {
-          // Image is already greyscale, so pick any channel.
-          luminances[offset + x] = (byte) r;
-        } else {
-          // Calculate luminance cheaply, favoring green.
-          luminances[offset + x] = (byte) ((r + g + g + b) >> 2);
-        }
-      }
-    }
+    // Calculate luminance cheaply, favoring green. Greyscale pixels keep their value.
+    LuminanceConverter.FAST.convertPackedRGB(pixels, 0, luminances, 0, width * height);
   }
   
   private RGBLuminanceSource(byte[] pixels,
@@ -139,4 +125,19 @@ public final class RGBLuminanceSource extends LuminanceSource {
                                   height);
   }
 
+  @Override
+  public boolean isRotateSupported() {
+    return true;
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise() {
+    return new RotatedLuminanceSource(this, 90, false);
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise45() {
+    return RotatedLuminanceSource.rotate45(this);
+  }
+
 }
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+/**
+ * A wrapper implementation of {@link LuminanceSource} which presents another one rotated
+ * counterclockwise by a multiple of 90 degrees, and optionally mirrored left to right first. Nothing
+ * is copied up front: each row or matrix request reads the pixels of the original in the rotated order.
+ * Rows which are columns of the original are read from its matrix, which is fetched once.
+ *
+ * <p>Any source can therefore support rotation: by 90 degrees through this class, and by 45 degrees
+ * through {@code rotate45()}, which works from the source's matrix.</p>
+ */
+public final class RotatedLuminanceSource extends LuminanceSource {
+
+  private final LuminanceSource delegate;
+  private final int rotation;
+  private final boolean mirrored;
+  // Pixel (x,y) of this view is pixel (originX + x * xStepX + y * yStepX, originY + x * xStepY + y * yStepY)
+  // of the delegate.
+  private final int originX;
+  private final int originY;
+  private final int xStepX;
+  private final int xStepY;
+  private final int yStepX;
+  private final int yStepY;
+  private byte[] delegateMatrix;
+
+  /**
+   * @param delegate original image
+   * @param rotation degrees to rotate counterclockwise by: 0, 90, 180 or 270
+   * @param mirrored whether to mirror the original left to right before rotating it
+   */
+  public RotatedLuminanceSource(LuminanceSource delegate, int rotation, boolean mirrored) {
+    super(rotation == 90 || rotation == 270 ? delegate.getHeight() : delegate.getWidth(),
+          rotation == 90 || rotation == 270 ? delegate.getWidth() : delegate.getHeight());
+    this.delegate = delegate;
+    this.rotation = rotation;
+    this.mirrored = mirrored;
+    int maxX = delegate.getWidth() - 1;
+    int maxY = delegate.getHeight() - 1;
+    // The original pixel of (0,0), and how its coordinates change as x and then y go up by one
+    int[] steps;
+    switch (rotation) {
+      case 0:
+        steps = new int[] {0, 0, 1, 0, 0, 1};
+        break;
+      case 90:
+        steps = new int[] {maxX, 0, 0, 1, -1, 0};
+        break;
+      case 180:
+        steps = new int[] {maxX, maxY, -1, 0, 0, -1};
+        break;
+      case 270:
+        steps = new int[] {0, maxY, 0, -1, 1, 0};
+        break;
+      default:
+        throw new IllegalArgumentException("Rotation must be 0, 90, 180 or 270 degrees: " + rotation);
+    }
+    if (mirrored) {
+      steps[0] = maxX - steps[0];
+      steps[2] = -steps[2];
+      steps[4] = -steps[4];
+    }
+    originX = steps[0];
+    originY = steps[1];
+    xStepX = steps[2];
+    xStepY = steps[3];
+    yStepX = steps[4];
+    yStepY = steps[5];
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    int startX = originX + y * yStepX;
+    int startY = originY + y * yStepY;
+    if (xStepY == 0 && xStepX == 1) {
+      return delegate.getRow(startY, row);
+    }
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    if (xStepY == 0) {
+      // A row of the original, reversed
+      byte[] delegateRow = delegate.getRow(startY, null);
+      for (int x = 0; x < width; x++) {
+        row[x] = delegateRow[startX - x];
+      }
+    } else {
+      // A column of the original
+      if (delegateMatrix == null) {
+        delegateMatrix = delegate.getMatrix();
+      }
+      int delegateWidth = delegate.getWidth();
+      int offset = startY * delegateWidth + startX;
+      int step = xStepY * delegateWidth;
+      for (int x = 0; x < width; x++, offset += step) {
+        row[x] = delegateMatrix[offset];
+      }
+    }
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    byte[] matrix = delegateMatrix == null ? delegate.getMatrix() : delegateMatrix;
+    if (rotation == 0 && !mirrored) {
+      return matrix;
+    }
+    int width = getWidth();
+    int height = getHeight();
+    int delegateWidth = delegate.getWidth();
+    int xStep = xStepY * delegateWidth + xStepX;
+    int yStep = yStepY * delegateWidth + yStepX;
+    byte[] rotatedMatrix = new byte[width * height];
+    int rowOffset = originY * delegateWidth + originX;
+    for (int y = 0, outputOffset = 0; y < height; y++, rowOffset += yStep) {
+      for (int x = 0, offset = rowOffset; x < width; x++, offset += xStep) {
+        rotatedMatrix[outputOffset++] = matrix[offset];
+      }
+    }
+    return rotatedMatrix;
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return delegate.isCropSupported();
+  }
+
+  @Override
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    // Opposite corners of the rectangle are still opposite corners in the original
+    int right = left + width - 1;
+    int bottom = top + height - 1;
+    int x1 = originX + left * xStepX + top * yStepX;
+    int y1 = originY + left * xStepY + top * yStepY;
+    int x2 = originX + right * xStepX + bottom * yStepX;
+    int y2 = originY + right * xStepY + bottom * yStepY;
+    int delegateLeft = Math.min(x1, x2);
+    int delegateTop = Math.min(y1, y2);
+    LuminanceSource cropped = delegate.crop(delegateLeft,
+                                            delegateTop,
+                                            Math.max(x1, x2) - delegateLeft + 1,
+                                            Math.max(y1, y2) - delegateTop + 1);
+    return new RotatedLuminanceSource(cropped, rotation, mirrored);
+  }
+
+  /**
+   * This is always true, since rotating the view by 90 degrees only changes how pixels are indexed.
+   *
+   * @return true
+   */
+  @Override
+  public boolean isRotateSupported() {
+    return true;
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise() {
+    int newRotation = (rotation + 90) % 360;
+    if (newRotation == 0 && !mirrored) {
+      return delegate;
+    }
+    return new RotatedLuminanceSource(delegate, newRotation, mirrored);
+  }
+
+  /**
+   * Rotates the original by 45 degrees, and presents that rotated by 90 degree steps as this view is.
+   * A mirrored view turns the other way, so rotating it by 45 degrees counterclockwise is mirroring
+   * the original rotated by 45 degrees counterclockwise, after a further 90. If the original doesn't
+   * support rotation, this view's matrix is rotated instead.
+   */
+  @Override
+  public LuminanceSource rotateCounterClockwise45() {
+    if (!delegate.isRotateSupported()) {
+      return rotate45(this);
+    }
+    LuminanceSource rotatedDelegate = delegate.rotateCounterClockwise45();
+    return new RotatedLuminanceSource(rotatedDelegate, mirrored ? (rotation + 90) % 360 : rotation, mirrored);
+  }
+
+  /**
+   * Rotates any source by 45 degrees counterclockwise about its center, as the J2SE
+   * {@code BufferedImageLuminanceSource} does with its image. The result is a square as wide as the
+   * longer side of the source. Each pixel takes the value of the nearest pixel of the source, and the
+   * corners which fall outside it are black.
+   *
+   * @param source image to rotate; its matrix is read once
+   * @return a copy of the image, rotated
+   */
+  static LuminanceSource rotate45(LuminanceSource source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    byte[] matrix = source.getMatrix();
+    int dimension = Math.max(width, height);
+    byte[] rotated = new byte[dimension * dimension];
+    // The center of pixel (x,y) of the result, relative to the center of the image, turned back by
+    // 45 degrees. Moving right in the result moves down and right in the source; moving down, down and left.
+    double step = Math.sqrt(0.5);
+    double half = dimension / 2.0;
+    for (int y = 0; y < dimension; y++) {
+      double v = y + 0.5 - half;
+      double sourceX = width / 2.0 + (0.5 - half) * step - v * step;
+      double sourceY = height / 2.0 + (0.5 - half) * step + v * step;
+      int offset = y * dimension;
+      for (int x = 0; x < dimension; x++, sourceX += step, sourceY += step) {
+        int pixelX = (int) Math.floor(sourceX);
+        int pixelY = (int) Math.floor(sourceY);
+        if (pixelX >= 0 && pixelX < width && pixelY >= 0 && pixelY < height) {
+          rotated[offset + x] = matrix[pixelY * width + pixelX];
+        }
+      }
+    }
+    return new PlanarYUVLuminanceSource(rotated, dimension, dimension, 0, 0, dimension, dimension, false);
+  }
+
+}
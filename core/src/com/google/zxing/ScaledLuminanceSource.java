@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+/**
+ * A wrapper implementation of {@link LuminanceSource} which scales another one down by a power of two.
+ * Each pixel is the average of a square box of pixels of the original, so a 1/2 view averages 2x2
+ * boxes and a 1/4 view 4x4 boxes. Any right and bottom pixels of the original which do not fill a
+ * whole box are dropped. Point (x,y) of the scaled view corresponds to (x,y) * {@link #getScale()}
+ * in the original.
+ */
+public final class ScaledLuminanceSource extends LuminanceSource {
+
+  private final LuminanceSource delegate;
+  private final int scalePower;
+
+  /**
+   * @param delegate original image
+   * @param scalePower scale down by 2 to this power, at least 1
+   */
+  public ScaledLuminanceSource(LuminanceSource delegate, int scalePower) {
+    super(delegate.getWidth() >> scalePower, delegate.getHeight() >> scalePower);
+    if (scalePower < 1 || getWidth() < 1 || getHeight() < 1) {
+      throw new IllegalArgumentException("Can't scale " + delegate.getWidth() + 'x' + delegate.getHeight() +
+                                         " down by 2^" + scalePower);
+    }
+    this.delegate = delegate;
+    this.scalePower = scalePower;
+  }
+
+  /**
+   * @return how many pixels of the original each pixel of this view spans in each direction
+   */
+  public int getScale() {
+    return 1 << scalePower;
+  }
+
+  @Override
+  public byte[] getRow(int y, byte[] row) {
+    if (y < 0 || y >= getHeight()) {
+      throw new IllegalArgumentException("Requested row is outside the image: " + y);
+    }
+    int width = getWidth();
+    if (row == null || row.length < width) {
+      row = new byte[width];
+    }
+    int scale = getScale();
+    int[] sums = new int[width];
+    byte[] delegateRow = null;
+    for (int dy = 0; dy < scale; dy++) {
+      delegateRow = delegate.getRow((y << scalePower) + dy, delegateRow);
+      addRow(delegateRow, 0, sums);
+    }
+    int shift = scalePower << 1;
+    for (int x = 0; x < width; x++) {
+      row[x] = (byte) (sums[x] >> shift);
+    }
+    return row;
+  }
+
+  @Override
+  public byte[] getMatrix() {
+    int width = getWidth();
+    int height = getHeight();
+    int delegateWidth = delegate.getWidth();
+    byte[] delegateMatrix = delegate.getMatrix();
+    byte[] matrix = new byte[width * height];
+    int scale = getScale();
+    int shift = scalePower << 1;
+    int[] sums = new int[width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        sums[x] = 0;
+      }
+      int offset = (y << scalePower) * delegateWidth;
+      for (int dy = 0; dy < scale; dy++, offset += delegateWidth) {
+        addRow(delegateMatrix, offset, sums);
+      }
+      int outputOffset = y * width;
+      for (int x = 0; x < width; x++) {
+        matrix[outputOffset + x] = (byte) (sums[x] >> shift);
+      }
+    }
+    return matrix;
+  }
+
+  /**
+   * Adds each box-wide run of pixels of the original row starting at offset to the sum for its box.
+   */
+  private void addRow(byte[] luminances, int offset, int[] sums) {
+    int scale = getScale();
+    for (int x = 0; x < sums.length; x++) {
+      int sum = 0;
+      for (int dx = 0; dx < scale; dx++) {
+        sum += luminances[offset++] & 0xFF;
+      }
+      sums[x] += sum;
+    }
+  }
+
+  @Override
+  public boolean isCropSupported() {
+    return delegate.isCropSupported();
+  }
+
+  @Override
+  public LuminanceSource crop(int left, int top, int width, int height) {
+    return new ScaledLuminanceSource(delegate.crop(left << scalePower,
+                                                   top << scalePower,
+                                                   width << scalePower,
+                                                   height << scalePower),
+                                     scalePower);
+  }
+
+  @Override
+  public boolean isRotateSupported() {
+    return delegate.isRotateSupported();
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise() {
+    return new ScaledLuminanceSource(delegate.rotateCounterClockwise(), scalePower);
+  }
+
+  @Override
+  public LuminanceSource rotateCounterClockwise45() {
+    return new ScaledLuminanceSource(delegate.rotateCounterClockwise45(), scalePower);
+  }
+
+}
@@ -188,7 +188,7 @@ public final class Encoder {
     }
 
     // generate check words
-    ReedSolomonEncoder rs = new ReedSolomonEncoder(getGF(wordSize));
+    ReedSolomonEncoder rs = ReedSolomonEncoder.forField(getGF(wordSize));
     int totalSizeInFullWords = totalSymbolBits / wordSize;
     int[] messageWords = bitsToWords(stuffedBits, wordSize, totalSizeInFullWords);
     rs.encode(messageWords, totalSizeInFullWords - messageSizeInWords);
@@ -344,7 +344,7 @@ public final class Encoder {
     for (int i = messageSizeInWords * wordSize - stuffedBits.getSize(); i > 0; i--) {
       stuffedBits.appendBit(true);
     }
-    ReedSolomonEncoder rs = new ReedSolomonEncoder(getGF(wordSize));
+    ReedSolomonEncoder rs = ReedSolomonEncoder.forField(getGF(wordSize));
     int totalSizeInFullWords = totalSymbolBits / wordSize;
     int[] messageWords = bitsToWords(stuffedBits, wordSize, totalSizeInFullWords);
     rs.encode(messageWords, totalSizeInFullWords - messageSizeInWords);
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * <p>A quick test of whether an image could contain a barcode at all, to skip decoding the many frames
+ * of a video stream which show none. It looks at the luminance directly, without binarizing.</p>
+ *
+ * <p>The image is divided into square cells, and the luminance gradient is sampled on a sparse grid in
+ * each. Every barcode is a dense pattern of sharp edges, so a cell may hold part of one if enough of its
+ * samples are on a strong edge. Fewer edges suffice if they all run the same way, as the bars of a 1D
+ * barcode do, which is judged from the coherence of the gradient structure tensor.</p>
+ */
+public final class BarcodePresenceFilter {
+
+  private static final int CELL_SIZE_POWER = 5;
+  private static final int CELL_SIZE = 1 << CELL_SIZE_POWER;
+  private static final int SAMPLE_STEP_POWER = 2;
+  private static final int SAMPLE_STEP = 1 << SAMPLE_STEP_POWER;
+  private static final int SAMPLES_PER_CELL = (CELL_SIZE / SAMPLE_STEP) * (CELL_SIZE / SAMPLE_STEP);
+  // A sample is on an edge if luminance changes by at least this much across it, horizontally plus vertically.
+  private static final int MIN_EDGE_STRENGTH = 24;
+  // The fraction of samples on an edge, out of 256, that makes a cell a candidate whatever the edge directions
+  private static final int MIN_EDGE_DENSITY = 40;
+  // The smaller fraction which is enough if the edges are coherent
+  private static final int MIN_COHERENT_EDGE_DENSITY = 20;
+  private static final double MIN_COHERENCE = 0.5;
+
+  private BarcodePresenceFilter() {
+  }
+
+  /**
+   * @param source image to examine
+   * @return the smallest rectangle containing every part of the image which might be part of a barcode,
+   *  plus a margin of one cell, as {left, top, width, height}; or null if no part of the image looks like
+   *  a barcode. Images too small to divide into cells are returned whole.
+   */
+  public static int[] findCandidateRegion(LuminanceSource source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int cellsWide = width >> CELL_SIZE_POWER;
+    int cellsHigh = height >> CELL_SIZE_POWER;
+    if (cellsWide == 0 || cellsHigh == 0) {
+      return new int[] {0, 0, width, height};
+    }
+
+    int minCellX = cellsWide;
+    int minCellY = cellsHigh;
+    int maxCellX = -1;
+    int maxCellY = -1;
+    // Only the rows around each row of samples are read, one band of cells at a time
+    int half = SAMPLE_STEP >> 1;
+    int maxY = height - 1;
+    byte[] above = new byte[width];
+    byte[] row = new byte[width];
+    byte[] below = new byte[width];
+    int[] edges = new int[cellsWide];
+    long[] sumsXX = new long[cellsWide];
+    long[] sumsYY = new long[cellsWide];
+    long[] sumsXY = new long[cellsWide];
+    for (int cellY = 0; cellY < cellsHigh; cellY++) {
+      for (int cellX = 0; cellX < cellsWide; cellX++) {
+        edges[cellX] = 0;
+        sumsXX[cellX] = 0;
+        sumsYY[cellX] = 0;
+        sumsXY[cellX] = 0;
+      }
+      int cellTop = cellY << CELL_SIZE_POWER;
+      above = source.getRow(cellTop, above);
+      for (int y = cellTop + half; y < cellTop + CELL_SIZE; y += SAMPLE_STEP) {
+        row = source.getRow(y, row);
+        below = source.getRow(Math.min(y + half, maxY), below);
+        sampleRow(above, row, below, width, edges, sumsXX, sumsYY, sumsXY);
+        // The row below these samples is the row above the next ones
+        byte[] temp = above;
+        above = below;
+        below = temp;
+      }
+      for (int cellX = 0; cellX < cellsWide; cellX++) {
+        if (isCandidate(edges[cellX], sumsXX[cellX], sumsYY[cellX], sumsXY[cellX])) {
+          minCellX = Math.min(minCellX, cellX);
+          minCellY = Math.min(minCellY, cellY);
+          maxCellX = Math.max(maxCellX, cellX);
+          maxCellY = Math.max(maxCellY, cellY);
+        }
+      }
+    }
+    if (maxCellX < 0) {
+      return null;
+    }
+
+    int left = Math.max(0, (minCellX - 1) << CELL_SIZE_POWER);
+    int top = Math.max(0, (minCellY - 1) << CELL_SIZE_POWER);
+    // The last cells in each direction also take in the pixels left over from dividing the image into cells.
+    int right = maxCellX + 2 >= cellsWide ? width : (maxCellX + 2) << CELL_SIZE_POWER;
+    int bottom = maxCellY + 2 >= cellsHigh ? height : (maxCellY + 2) << CELL_SIZE_POWER;
+    return new int[] {left, top, right - left, bottom - top};
+  }
+
+  /**
+   * Samples the luminance gradient along one row of samples, adding the edges found in each cell to
+   * the counts and sums for the cell.
+   */
+  private static void sampleRow(byte[] above, byte[] row, byte[] below, int width,
+                                int[] edges, long[] sumsXX, long[] sumsYY, long[] sumsXY) {
+    // Each gradient spans a whole sample step, so that consecutive samples cover a row or column without
+    // gaps and no edge between them goes unseen, however the pattern lines up with the grid.
+    int half = SAMPLE_STEP >> 1;
+    int maxX = width - 1;
+    for (int cellX = 0; cellX < edges.length; cellX++) {
+      int cellLeft = cellX << CELL_SIZE_POWER;
+      int cellEdges = 0;
+      long sumXX = 0;
+      long sumYY = 0;
+      long sumXY = 0;
+      for (int x = cellLeft + half; x < cellLeft + CELL_SIZE; x += SAMPLE_STEP) {
+        int gradientX = (row[Math.min(x + half, maxX)] & 0xFF) - (row[x - half] & 0xFF);
+        int gradientY = (below[x] & 0xFF) - (above[x] & 0xFF);
+        int strength = Math.abs(gradientX) + Math.abs(gradientY);
+        if (strength >= MIN_EDGE_STRENGTH) {
+          cellEdges++;
+          sumXX += gradientX * gradientX;
+          sumYY += gradientY * gradientY;
+          sumXY += gradientX * gradientY;
+        }
+      }
+      edges[cellX] += cellEdges;
+      sumsXX[cellX] += sumXX;
+      sumsYY[cellX] += sumYY;
+      sumsXY[cellX] += sumXY;
+    }
+  }
+
+  private static boolean isCandidate(int edges, long sumXX, long sumYY, long sumXY) {
+    int density = (edges << 8) / SAMPLES_PER_CELL;
+    if (density >= MIN_EDGE_DENSITY) {
+      return true;
+    }
+    if (density < MIN_COHERENT_EDGE_DENSITY) {
+      return false;
+    }
+    // The coherence of the structure tensor is 1 when all gradients are parallel, and 0 when they point
+    // every way equally.
+    double trace = sumXX + sumYY;
+    double difference = sumXX - sumYY;
+    double coherenceSquared = (difference * difference + 4.0 * sumXY * sumXY) / (trace * trace);
+    return coherenceSquared >= MIN_COHERENCE * MIN_COHERENCE;
+  }
+
+}
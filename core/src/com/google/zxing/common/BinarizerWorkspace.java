@@ -0,0 +1,184 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import java.util.Arrays;
+
+/**
+ * <p>Holds the intermediate buffers and the output {@link BitMatrix} used by {@link HybridBinarizer},
+ * so that they can be reused from one image to the next. A continuous scan client or a server thread
+ * which keeps one workspace and passes it to each new binarizer allocates nothing per frame once the
+ * buffers have grown to the largest image seen. {@link TemporalHybridBinarizer} also keeps the black
+ * points of the previous frame here.</p>
+ *
+ * <p>The {@link BitMatrix} returned by a binarizer using a workspace is owned by the workspace, and is
+ * overwritten by the next binarization which uses the same workspace. So is the binarizer's record of the
+ * rows it has binarized, so a binarizer must not be used once another has started using its workspace.
+ * This class is not thread-safe; use one instance per thread.</p>
+ */
+public final class BinarizerWorkspace {
+
+  private int[][] blackPoints;
+  private int[][] lowContrastMins;
+  private int[] blackPointSums;
+  private int[] thresholds;
+  private int[] rowWords;
+  private BitMatrix matrix;
+  private byte[] rowLuminances;
+  private int[] rowBlackPoints;
+  private int[][] previousBlackPoints;
+  private int[][] previousLowContrastMins;
+  private int[][] blockSignatures;
+  private int previousWidth;
+  private int previousHeight;
+
+  /**
+   * @return a grid of at least subHeight rows of at least subWidth black points. Contents are undefined.
+   */
+  int[][] getBlackPoints(int subWidth, int subHeight) {
+    if (blackPoints == null || blackPoints.length < subHeight || blackPoints[0].length < subWidth) {
+      blackPoints = new int[subHeight][subWidth];
+    }
+    return blackPoints;
+  }
+
+  /**
+   * @return a grid of the same shape as {@link #getBlackPoints(int, int)}, for the minimum luminance of
+   *  blocks with little contrast. Contents are undefined.
+   */
+  int[][] getLowContrastMins(int subWidth, int subHeight) {
+    if (lowContrastMins == null || lowContrastMins.length < subHeight || lowContrastMins[0].length < subWidth) {
+      lowContrastMins = new int[subHeight][subWidth];
+    }
+    return lowContrastMins;
+  }
+
+  /**
+   * @return an array of at least the given size, to hold the summed-area table of the black points.
+   *  Contents are undefined.
+   */
+  int[] getBlackPointSums(int size) {
+    if (blackPointSums == null || blackPointSums.length < size) {
+      blackPointSums = new int[size];
+    }
+    return blackPointSums;
+  }
+
+  /**
+   * @return an array of at least the given size, for the thresholds of one row of blocks. Contents are undefined.
+   */
+  int[] getThresholds(int subWidth) {
+    if (thresholds == null || thresholds.length < subWidth) {
+      thresholds = new int[subWidth];
+    }
+    return thresholds;
+  }
+
+  /**
+   * @return an array of at least the given size, for one row of bits of the matrix. Contents are undefined.
+   */
+  int[] getRowWords(int rowSize) {
+    if (rowWords == null || rowWords.length < rowSize) {
+      rowWords = new int[rowSize];
+    }
+    return rowWords;
+  }
+
+  /**
+   * @return a cleared matrix of exactly the given dimensions
+   */
+  BitMatrix getMatrix(int width, int height) {
+    if (matrix == null || matrix.getWidth() != width || matrix.getHeight() != height) {
+      matrix = new BitMatrix(width, height);
+    } else {
+      matrix.clear();
+    }
+    return matrix;
+  }
+
+  /**
+   * @return an array of at least the given size, for one row of luminance. Contents are undefined.
+   */
+  byte[] getRowLuminances(int width) {
+    if (rowLuminances == null || rowLuminances.length < width) {
+      rowLuminances = new byte[width];
+    }
+    return rowLuminances;
+  }
+
+  /**
+   * @return an array of at least the given size, cleared, for the black point of each row as
+   *  computed by {@link GlobalHistogramBinarizer#getBlackRow(int, BitArray)}
+   */
+  int[] getRowBlackPoints(int height) {
+    if (rowBlackPoints == null || rowBlackPoints.length < height) {
+      rowBlackPoints = new int[height];
+    } else {
+      Arrays.fill(rowBlackPoints, 0, height, 0);
+    }
+    return rowBlackPoints;
+  }
+
+  /**
+   * @return true if the last frame recorded with {@link #setPrevious(int, int)} had exactly these
+   *  dimensions, so the previous black points and block signatures describe it
+   */
+  boolean hasPrevious(int width, int height) {
+    return previousBlackPoints != null && previousWidth == width && previousHeight == height;
+  }
+
+  /**
+   * Records that the previous black points and block signatures now describe a frame of these dimensions.
+   */
+  void setPrevious(int width, int height) {
+    previousWidth = width;
+    previousHeight = height;
+  }
+
+  /**
+   * @return the uncorrected black points of the previous frame, as used by {@link TemporalHybridBinarizer}.
+   *  Reallocating forgets the previous frame.
+   */
+  int[][] getPreviousBlackPoints(int subWidth, int subHeight) {
+    if (previousBlackPoints == null || previousBlackPoints.length != subHeight ||
+        previousBlackPoints[0].length != subWidth) {
+      previousBlackPoints = new int[subHeight][subWidth];
+      previousLowContrastMins = new int[subHeight][subWidth];
+      blockSignatures = new int[subHeight][subWidth];
+      previousWidth = 0;
+      previousHeight = 0;
+    }
+    return previousBlackPoints;
+  }
+
+  /**
+   * @return the low contrast minimums matching {@link #getPreviousBlackPoints(int, int)}, which must be
+   *  called first
+   */
+  int[][] getPreviousLowContrastMins() {
+    return previousLowContrastMins;
+  }
+
+  /**
+   * @return the luminance signature of each block when its black point was last computed, matching
+   *  {@link #getPreviousBlackPoints(int, int)}, which must be called first
+   */
+  int[][] getBlockSignatures() {
+    return blockSignatures;
+  }
+
+}
@@ -25,6 +25,9 @@ public final class BitArray {
 
   private int[] bits;
   private int size;
+  // Computed when first needed, and again in place when needed after a bit changes
+  private RunLengthRow runLengthRow;
+  private boolean runLengthRowValid;
 
   public BitArray() {
     this.size = 0;
@@ -66,6 +69,7 @@ public final class BitArray {
    * @param i bit to set
    */
   public void set(int i) {
+    runLengthRowValid = false;
     bits[i >> 5] |= 1 << (i & 0x1F);
   }
 
@@ -75,6 +79,7 @@ public final class BitArray {
    * @param i bit to set
    */
   public void flip(int i) {
+    runLengthRowValid = false;
     bits[i >> 5] ^= 1 << (i & 0x1F);
   }
 
@@ -131,6 +136,7 @@ public final class BitArray {
    * corresponds to bit i, the next-least-significant to i+1, and so on.
    */
   public void setBulk(int i, int newBits) {
+    runLengthRowValid = false;
     bits[i >> 5] = newBits;
   }
 
@@ -141,6 +147,7 @@ public final class BitArray {
    * @param end end of range, exclusive
    */
   public void setRange(int start, int end) {
+    runLengthRowValid = false;
     if (end < start) {
       throw new IllegalArgumentException();
     }
@@ -170,6 +177,7 @@ public final class BitArray {
    * Clears all bits (sets to false).
    */
   public void clear() {
+    runLengthRowValid = false;
     int max = bits.length;
     for (int i = 0; i < max; i++) {
       bits[i] = 0;
@@ -218,6 +226,7 @@ public final class BitArray {
   }
 
   public void appendBit(boolean bit) {
+    runLengthRowValid = false;
     ensureCapacity(size + 1);
     if (bit) {
       bits[size >> 5] |= 1 << (size & 0x1F);
@@ -249,6 +258,7 @@ public final class BitArray {
   }
 
   public void xor(BitArray other) {
+    runLengthRowValid = false;
     if (bits.length != other.bits.length) {
       throw new IllegalArgumentException("Sizes don't match");
     }
@@ -282,24 +292,52 @@ public final class BitArray {
 
   /**
    * @return underlying array of ints. The first element holds the first 32 bits, and the least
-   *         significant bit is bit 0.
+   *         significant bit is bit 0. Since the caller may change the bits through it, the
+   *         {@link #getRunLengthRow()} is computed afresh the next time it is needed.
    */
   public int[] getBitArray() {
+    runLengthRowValid = false;
     return bits;
   }
 
+  /**
+   * @return the runs of equal bits making up this array, computed once until a bit is changed. The same
+   *  object is then recomputed in place, so it is only valid until this array next changes.
+   */
+  public RunLengthRow getRunLengthRow() {
+    if (runLengthRow == null) {
+      runLengthRow = new RunLengthRow(this);
+    } else if (!runLengthRowValid) {
+      runLengthRow.compute(this);
+    }
+    runLengthRowValid = true;
+    return runLengthRow;
+  }
+
   /**
    * Reverses all bits in the array.
    */
   public void reverse() {
-    int[] newBits = new int[bits.length];
-    int size = this.size;
-    for (int i = 0; i < size; i++) {
-      if (get(size - i - 1)) {
-        newBits[i >> 5] |= 1 << (i & 0x1F);
+    runLengthRowValid = false;
+    int[] bits = this.bits;
+    int words = (size + 31) >> 5;
+    // Reverse the order of the words, and the bits within each word
+    for (int i = 0, j = words - 1; i <= j; i++, j--) {
+      int temp = Integer.reverse(bits[i]);
+      bits[i] = Integer.reverse(bits[j]);
+      bits[j] = temp;
+    }
+    // which leaves the bits at the top of the words, so shift them down past the padding from the end
+    int padding = (words << 5) - size;
+    if (padding > 0) {
+      for (int i = 0; i < words - 1; i++) {
+        bits[i] = (bits[i] >>> padding) | (bits[i + 1] << (32 - padding));
       }
+      bits[words - 1] >>>= padding;
+    }
+    for (int i = words; i < bits.length; i++) {
+      bits[i] = 0;
     }
-    bits = newBits;
   }
 
   private static int[] makeArray(int size) {
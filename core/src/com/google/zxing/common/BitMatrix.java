@@ -1,311 +1,564 @@
-/*
- * Copyright 2007 ZXing authors
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package com.google.zxing.common;
-
-/**
- * <p>Represents a 2D matrix of bits. In function arguments below, and throughout the common
- * module, x is the column position, and y is the row position. The ordering is always x, y.
- * The origin is at the top-left.</p>
- *
- * <p>Internally the bits are represented in a 1-D array of 32-bit ints. However, each row begins
- * with a new int. This is done intentionally so that we can copy out a row into a BitArray very
- * efficiently.</p>
- *
- * <p>The ordering of bits is row-major. Within each int, the least significant bits are used first,
- * meaning they represent lower x values. This is compatible with BitArray's implementation.</p>
- *
- * @author Sean Owen
- * @author dswitkin@google.com (Daniel Switkin)
- */
-public final class BitMatrix {
-
-  private final int width;
-  private final int height;
-  private final int rowSize;
-  private final int[] bits;
-
-  // A helper to construct a square matrix.
-  public BitMatrix(int dimension) {
-    this(dimension, dimension);
-  }
-
-  public BitMatrix(int width, int height) {
-    if (width < 1 || height < 1) {
-      throw new IllegalArgumentException("Both dimensions must be greater than 0");
-    }
-    this.width = width;
-    this.height = height;
-    this.rowSize = (width + 31) >> 5;
-    bits = new int[rowSize * height];
-  }
-
-  /**
-   * <p>Gets the requested bit, where true means black.</p>
-   *
-   * @param x The horizontal component (i.e. which column)
-   * @param y The vertical component (i.e. which row)
-   * @return value of given bit in matrix
-   */
-  public boolean get(int x, int y) {
-    int offset = y * rowSize + (x >> 5);
-    return ((bits[offset] >>> (x & 0x1f)) & 1) != 0;
-  }
-
-  /**
-   * <p>Sets the given bit to true.</p>
-   *
-   * @param x The horizontal component (i.e. which column)
-   * @param y The vertical component (i.e. which row)
-   */
-  public void set(int x, int y) {
-    int offset = y * rowSize + (x >> 5);
-    bits[offset] |= 1 << (x & 0x1f);
-  }
-
-  /**
-   * <p>Flips the given bit.</p>
-   *
-   * @param x The horizontal component (i.e. which column)
-   * @param y The vertical component (i.e. which row)
-   */
-  public void flip(int x, int y) {
-    int offset = y * rowSize + (x >> 5);
-    bits[offset] ^= 1 << (x & 0x1f);
-  }
-
-  /**
-   * Clears all bits (sets to false).
-   */
-  public void clear() {
-    int max = bits.length;
-    for (int i = 0; i < max; i++) {
-      bits[i] = 0;
-    }
-  }
-
-  /**
-   * <p>Sets a square region of the bit matrix to true.</p>
-   *
-   * @param left The horizontal position to begin at (inclusive)
-   * @param top The vertical position to begin at (inclusive)
-   * @param width The width of the region
-   * @param height The height of the region
-   */
-  public void setRegion(int left, int top, int width, int height) {
-    if (top < 0 || left < 0) {
-      throw new IllegalArgumentException("Left and top must be nonnegative");
-    }
-    if (height < 1 || width < 1) {
-      throw new IllegalArgumentException("Height and width must be at least 1");
-    }
-    int right = left + width;
-    int bottom = top + height;
-    if (bottom > this.height || right > this.width) {
-      throw new IllegalArgumentException("The region must fit inside the matrix");
-    }
-    for (int y = top; y < bottom; y++) {
-      int offset = y * rowSize;
-      for (int x = left; x < right; x++) {
-        bits[offset + (x >> 5)] |= 1 << (x & 0x1f);
-      }
-    }
-  }
-
-  /**
-   * A fast method to retrieve one row of data from the matrix as a BitArray.
-   *
-   * @param y The row to retrieve
-   * @param row An optional caller-allocated BitArray, will be allocated if null or too small
-   * @return The resulting BitArray - this reference should always be used even when passing
-   *         your own row
-   */
-  public BitArray getRow(int y, BitArray row) {
-    if (row == null || row.getSize() < width) {
-      row = new BitArray(width);
-    }
-    int offset = y * rowSize;
-    for (int x = 0; x < rowSize; x++) {
-      row.setBulk(x << 5, bits[offset + x]);
-    }
-    return row;
-  }
-
-  /**
-   * @param y row to set
-   * @param row {@link BitArray} to copy from
-   */
-  public void setRow(int y, BitArray row) {
-    System.arraycopy(row.getBitArray(), 0, bits, y * rowSize, rowSize);
-  }
-
-  /**
-   * This is useful in detecting the enclosing rectangle of a 'pure' barcode.
-   *
-   * @return {left,top,width,height} enclosing rectangle of all 1 bits, or null if it is all white
-   */
-  public int[] getEnclosingRectangle() {
-    int left = width;
-    int top = height;
-    int right = -1;
-    int bottom = -1;
-
-    for (int y = 0; y < height; y++) {
-      for (int x32 = 0; x32 < rowSize; x32++) {
-        int theBits = bits[y * rowSize + x32];
-        if (theBits != 0) {
-          if (y < top) {
-            top = y;
-          }
-          if (y > bottom) {
-            bottom = y;
-          }
-          if (x32 * 32 < left) {
-            int bit = 0;
-            while ((theBits << (31 - bit)) == 0) {
-              bit++;
-            }
-            if ((x32 * 32 + bit) < left) {
-              left = x32 * 32 + bit;
-            }
-          }
-          if (x32 * 32 + 31 > right) {
-            int bit = 31;
-            while ((theBits >>> bit) == 0) {
-              bit--;
-            }
-            if ((x32 * 32 + bit) > right) {
-              right = x32 * 32 + bit;
-            }
-          }
-        }
-      }
-    }
-
-    int width = right - left;
-    int height = bottom - top;
-
-    if (width < 0 || height < 0) {
-      return null;
-    }
-
-    return new int[] {left, top, width, height};
-  }
-
-  /**
-   * This is useful in detecting a corner of a 'pure' barcode.
-   *
-   * @return {x,y} coordinate of top-left-most 1 bit, or null if it is all white
-   */
-  public int[] getTopLeftOnBit() {
-    int bitsOffset = 0;
-    while (bitsOffset < bits.length && bits[bitsOffset] == 0) {
-      bitsOffset++;
-    }
-    if (bitsOffset == bits.length) {
-      return null;
-    }
-    int y = bitsOffset / rowSize;
-    int x = (bitsOffset % rowSize) << 5;
-
-    int theBits = bits[bitsOffset];
-    int bit = 0;
-    while ((theBits << (31-bit)) == 0) {
-      bit++;
-    }
-    x += bit;
-    return new int[] {x, y};
-  }
-
-  public int[] getBottomRightOnBit() {
-    int bitsOffset = bits.length - 1;
-    while (bitsOffset >= 0 && bits[bitsOffset] == 0) {
-      bitsOffset--;
-    }
-    if (bitsOffset < 0) {
-      return null;
-    }
-
-    int y = bitsOffset / rowSize;
-    int x = (bitsOffset % rowSize) << 5;
-
-    int theBits = bits[bitsOffset];
-    int bit = 31;
-    while ((theBits >>> bit) == 0) {
-      bit--;
-    }
-    x += bit;
-
-    return new int[] {x, y};
-  }
-
-  /**
-   * @return The width of the matrix
-   */
-  public int getWidth() {
-    return width;
-  }
-
-  /**
-   * @return The height of the matrix
-   */
-  public int getHeight() {
-    return height;
-  }
-
-  @Override
-  public boolean equals(Object o) {
-    if (!(o instanceof BitMatrix)) {
-      return false;
-    }
-    BitMatrix other = (BitMatrix) o;
-    if (width != other.width || height != other.height ||
-        rowSize != other.rowSize || bits.length != other.bits.length) {
-      return false;
-    }
-    for (int i = 0; i < bits.length; i++) {
-      if (bits[i] != other.bits[i]) {
-        return false;
-      }
-    }
-    return true;
-  }
-
-  @Override
-  public int hashCode() {
-    int hash = width;
-    hash = 31 * hash + width;
-    hash = 31 * hash + height;
-    hash = 31 * hash + rowSize;
-    for (int bit : bits) {
-      hash = 31 * hash + bit;
-    }
-    return hash;
-  }
-
-  @Override
-  public String toString() {
-    StringBuilder result = new StringBuilder(height * (width + 1));
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        result.append(get(x, y) ? "X " : "  ");
-      }
-      result.append('\n');
-    }
-    return result.toString();
-  }
-
-}
+/*
+ * Copyright 2007 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+/**
+ * <p>Represents a 2D matrix of bits. In function arguments below, and throughout the common
+ * module, x is the column position, and y is the row position. The ordering is always x, y.
+ * The origin is at the top-left.</p>
+ *
+ * <p>Internally the bits are represented in a 1-D array of 32-bit ints. However, each row begins
+ * with a new int. This is done intentionally so that we can copy out a row into a BitArray very
+ * efficiently.</p>
+ *
+ * <p>The ordering of bits is row-major. Within each int, the least significant bits are used first,
+ * meaning they represent lower x values. This is compatible with BitArray's implementation.</p>
+ *
+ * <p>A matrix may also be filled in lazily, one square tile of bits at a time, the first time any bit
+ * of the tile is read. See {@link LazyHybridBinarizer}. Such a matrix is modified when it is read, so
+ * it must not be read from several threads at once.</p>
+ *
+ * @author Sean Owen
+ * @author dswitkin@google.com (Daniel Switkin)
+ */
+public final class BitMatrix {
+
+  static final int TILE_SIZE_POWER = 6;
+
+  private final int width;
+  private final int height;
+  private final int rowSize;
+  private final int[] bits;
+  private TileFiller filler;
+  private boolean[] filledTiles;
+  private int tilesPerRow;
+  private int unfilledTiles;
+
+  // A helper to construct a square matrix.
+  public BitMatrix(int dimension) {
+    this(dimension, dimension);
+  }
+
+  public BitMatrix(int width, int height) {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("Both dimensions must be greater than 0");
+    }
+    this.width = width;
+    this.height = height;
+    this.rowSize = (width + 31) >> 5;
+    bits = new int[rowSize * height];
+  }
+
+  private BitMatrix(int width, int height, int[] bits) {
+    this.width = width;
+    this.height = height;
+    this.rowSize = (width + 31) >> 5;
+    this.bits = bits;
+  }
+
+  /**
+   * Creates a matrix whose bits are computed by the given filler, in tiles of 2^TILE_SIZE_POWER square,
+   * as they are first needed.
+   */
+  BitMatrix(int width, int height, TileFiller filler) {
+    this(width, height);
+    this.filler = filler;
+    tilesPerRow = ((width - 1) >> TILE_SIZE_POWER) + 1;
+    unfilledTiles = tilesPerRow * (((height - 1) >> TILE_SIZE_POWER) + 1);
+    filledTiles = new boolean[unfilledTiles];
+  }
+
+  /**
+   * <p>Gets the requested bit, where true means black.</p>
+   *
+   * @param x The horizontal component (i.e. which column)
+   * @param y The vertical component (i.e. which row)
+   * @return value of given bit in matrix
+   */
+  public boolean get(int x, int y) {
+    if (filler != null) {
+      fillTile(x >> TILE_SIZE_POWER, y >> TILE_SIZE_POWER);
+    }
+    int offset = y * rowSize + (x >> 5);
+    return ((bits[offset] >>> (x & 0x1f)) & 1) != 0;
+  }
+
+  /**
+   * <p>Sets the given bit to true.</p>
+   *
+   * @param x The horizontal component (i.e. which column)
+   * @param y The vertical component (i.e. which row)
+   */
+  public void set(int x, int y) {
+    if (filler != null) {
+      fillAll();
+    }
+    int offset = y * rowSize + (x >> 5);
+    bits[offset] |= 1 << (x & 0x1f);
+  }
+
+  /**
+   * <p>Flips the given bit.</p>
+   *
+   * @param x The horizontal component (i.e. which column)
+   * @param y The vertical component (i.e. which row)
+   */
+  public void flip(int x, int y) {
+    if (filler != null) {
+      fillAll();
+    }
+    int offset = y * rowSize + (x >> 5);
+    bits[offset] ^= 1 << (x & 0x1f);
+  }
+
+  /**
+   * <p>Sets to true the bits of row y which are set in the given words. Word i holds bits 32 * i through
+   * 32 * i + 31 of the row, least significant bit first, as in {@link BitArray#getBitArray()}. Callers
+   * computing many bits at once can use this to write each word once, rather than calling
+   * {@link #set(int, int)} for each bit.</p>
+   *
+   * @param y The row to set bits in
+   * @param words The bits to set
+   * @param from The first word of the row to set (inclusive)
+   * @param to The last word of the row to set (exclusive)
+   */
+  public void setRowBits(int y, int[] words, int from, int to) {
+    if (filler != null) {
+      fillAll();
+    }
+    int offset = y * rowSize;
+    for (int i = from; i < to; i++) {
+      bits[offset + i] |= words[i];
+    }
+  }
+
+  /**
+   * Clears all bits (sets to false).
+   */
+  public void clear() {
+    filler = null;
+    int max = bits.length;
+    for (int i = 0; i < max; i++) {
+      bits[i] = 0;
+    }
+  }
+
+  /**
+   * <p>Sets a square region of the bit matrix to true.</p>
+   *
+   * @param left The horizontal position to begin at (inclusive)
+   * @param top The vertical position to begin at (inclusive)
+   * @param width The width of the region
+   * @param height The height of the region
+   */
+  public void setRegion(int left, int top, int width, int height) {
+    if (top < 0 || left < 0) {
+      throw new IllegalArgumentException("Left and top must be nonnegative");
+    }
+    if (height < 1 || width < 1) {
+      throw new IllegalArgumentException("Height and width must be at least 1");
+    }
+    int right = left + width;
+    int bottom = top + height;
+    if (bottom > this.height || right > this.width) {
+      throw new IllegalArgumentException("The region must fit inside the matrix");
+    }
+    fillAll();
+    for (int y = top; y < bottom; y++) {
+      int offset = y * rowSize;
+      for (int x = left; x < right; x++) {
+        bits[offset + (x >> 5)] |= 1 << (x & 0x1f);
+      }
+    }
+  }
+
+  /**
+   * A fast method to retrieve one row of data from the matrix as a BitArray.
+   *
+   * @param y The row to retrieve
+   * @param row An optional caller-allocated BitArray, will be allocated if null or too small
+   * @return The resulting BitArray - this reference should always be used even when passing
+   *         your own row
+   */
+  public BitArray getRow(int y, BitArray row) {
+    if (row == null || row.getSize() < width) {
+      row = new BitArray(width);
+    }
+    if (filler != null) {
+      for (int tileX = 0; tileX < tilesPerRow; tileX++) {
+        fillTile(tileX, y >> TILE_SIZE_POWER);
+      }
+    }
+    System.arraycopy(bits, y * rowSize, row.getBitArray(), 0, rowSize);
+    return row;
+  }
+
+  /**
+   * @param y row to set
+   * @param row {@link BitArray} to copy from
+   */
+  public void setRow(int y, BitArray row) {
+    fillAll();
+    System.arraycopy(row.getBitArray(), 0, bits, y * rowSize, rowSize);
+  }
+
+  /**
+   * Copies row fromY over row toY, as when scaling up an image row by row.
+   *
+   * @param fromY row to copy
+   * @param toY row to overwrite
+   */
+  public void copyRow(int fromY, int toY) {
+    fillAll();
+    System.arraycopy(bits, fromY * rowSize, bits, toY * rowSize, rowSize);
+  }
+
+  /**
+   * Flips every bit of this matrix which is set in the given mask, as when unmasking a symbol.
+   *
+   * @param mask matrix of the same dimensions as this one
+   */
+  public void xor(BitMatrix mask) {
+    if (width != mask.width || height != mask.height) {
+      throw new IllegalArgumentException("Input matrix dimensions do not match");
+    }
+    fillAll();
+    mask.fillAll();
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] ^= mask.bits[i];
+    }
+  }
+
+  /**
+   * @return a new matrix whose bit (y, x) is bit (x, y) of this one, so its width is this one's height
+   */
+  public BitMatrix transpose() {
+    return transpose(false);
+  }
+
+  /**
+   * @return a new matrix holding this one rotated by 90 degrees counterclockwise, like
+   *  {@link com.google.zxing.LuminanceSource#rotateCounterClockwise()}
+   */
+  public BitMatrix rotate90() {
+    // Rotating counterclockwise is transposing, then turning upside down.
+    return transpose(true);
+  }
+
+  /**
+   * @return a new matrix holding this one rotated by 180 degrees
+   */
+  public BitMatrix rotate180() {
+    return mirror(true);
+  }
+
+  /**
+   * @return a new matrix holding this one mirrored left to right
+   */
+  public BitMatrix mirrorHorizontal() {
+    return mirror(false);
+  }
+
+  /**
+   * This is useful in detecting the enclosing rectangle of a 'pure' barcode.
+   *
+   * @return {left,top,width,height} enclosing rectangle of all 1 bits, or null if it is all white
+   */
+  public int[] getEnclosingRectangle() {
+    int top = 0;
+    while (top < height && isRowClear(top)) {
+      top++;
+    }
+    if (top == height) {
+      return null;
+    }
+    int bottom = height - 1;
+    while (isRowClear(bottom)) {
+      bottom--;
+    }
+
+    // In each row, only the words up to the outermost 1 bits need to be examined. This also keeps
+    // a lazily filled matrix from filling the interior of the barcode.
+    int left = width;
+    int right = -1;
+    for (int y = top; y <= bottom; y++) {
+      int offset = y * rowSize;
+      for (int x32 = 0; x32 < rowSize && x32 << 5 < left; x32++) {
+        int theBits = getWord(offset + x32);
+        if (theBits != 0) {
+          int x = (x32 << 5) + Integer.numberOfTrailingZeros(theBits);
+          if (x < left) {
+            left = x;
+          }
+          break;
+        }
+      }
+      for (int x32 = rowSize - 1; x32 >= 0 && (x32 << 5) + 31 > right; x32--) {
+        int theBits = getWord(offset + x32);
+        if (theBits != 0) {
+          int x = (x32 << 5) + 31 - Integer.numberOfLeadingZeros(theBits);
+          if (x > right) {
+            right = x;
+          }
+          break;
+        }
+      }
+    }
+
+    return new int[] {left, top, right - left, bottom - top};
+  }
+
+  private boolean isRowClear(int y) {
+    int offset = y * rowSize;
+    for (int x32 = 0; x32 < rowSize; x32++) {
+      if (getWord(offset + x32) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * This is useful in detecting a corner of a 'pure' barcode.
+   *
+   * @return {x,y} coordinate of top-left-most 1 bit, or null if it is all white
+   */
+  public int[] getTopLeftOnBit() {
+    int bitsOffset = 0;
+    while (bitsOffset < bits.length && getWord(bitsOffset) == 0) {
+      bitsOffset++;
+    }
+    if (bitsOffset == bits.length) {
+      return null;
+    }
+    int y = bitsOffset / rowSize;
+    int x = (bitsOffset % rowSize) << 5;
+
+    int theBits = bits[bitsOffset];
+    int bit = 0;
+    while ((theBits << (31-bit)) == 0) {
+      bit++;
+    }
+    x += bit;
+    return new int[] {x, y};
+  }
+
+  public int[] getBottomRightOnBit() {
+    int bitsOffset = bits.length - 1;
+    while (bitsOffset >= 0 && getWord(bitsOffset) == 0) {
+      bitsOffset--;
+    }
+    if (bitsOffset < 0) {
+      return null;
+    }
+
+    int y = bitsOffset / rowSize;
+    int x = (bitsOffset % rowSize) << 5;
+
+    int theBits = bits[bitsOffset];
+    int bit = 31;
+    while ((theBits >>> bit) == 0) {
+      bit--;
+    }
+    x += bit;
+
+    return new int[] {x, y};
+  }
+
+  /**
+   * @return The width of the matrix
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * @return The height of the matrix
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof BitMatrix)) {
+      return false;
+    }
+    BitMatrix other = (BitMatrix) o;
+    fillAll();
+    other.fillAll();
+    if (width != other.width || height != other.height ||
+        rowSize != other.rowSize || bits.length != other.bits.length) {
+      return false;
+    }
+    for (int i = 0; i < bits.length; i++) {
+      if (bits[i] != other.bits[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    fillAll();
+    int hash = width;
+    hash = 31 * hash + width;
+    hash = 31 * hash + height;
+    hash = 31 * hash + rowSize;
+    for (int bit : bits) {
+      hash = 31 * hash + bit;
+    }
+    return hash;
+  }
+
+  @Override
+  public BitMatrix clone() {
+    fillAll();
+    return new BitMatrix(width, height, bits.clone());
+  }
+
+  /**
+   * Transposes the matrix a 32x32 block of bits at a time. Each block is transposed within its 32 words
+   * by swapping its off-diagonal 16x16 quarters, then the off-diagonal 8x8 quarters of each of those
+   * quarters, and so on, each step handling a whole word with a few shifts and masks. The block is
+   * then written to the transposed position in the result.
+   */
+  private BitMatrix transpose(boolean upsideDown) {
+    fillAll();
+    BitMatrix result = new BitMatrix(height, width);
+    int resultRowSize = result.rowSize;
+    int[] resultBits = result.bits;
+    int[] block = new int[32];
+    for (int blockY = 0; blockY < resultRowSize; blockY++) {
+      int top = blockY << 5;
+      int rows = Math.min(32, height - top);
+      for (int blockX = 0; blockX < rowSize; blockX++) {
+        for (int i = 0; i < rows; i++) {
+          block[i] = bits[(top + i) * rowSize + blockX];
+        }
+        for (int i = rows; i < 32; i++) {
+          block[i] = 0;
+        }
+        transpose32(block);
+        int left = blockX << 5;
+        int columns = Math.min(32, width - left);
+        for (int i = 0; i < columns; i++) {
+          int resultY = upsideDown ? width - 1 - (left + i) : left + i;
+          resultBits[resultY * resultRowSize + blockY] = block[i];
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Transposes a 32x32 block of bits in place, where bit x of block[y] is the bit at (x, y).
+   */
+  private static void transpose32(int[] block) {
+    int mask = 0x0000FFFF;
+    for (int span = 16; span != 0; span >>>= 1, mask ^= mask << span) {
+      for (int i = 0; i < 32; i = (i + span + 1) & ~span) {
+        // Swap the upper bits of row i with the lower bits of row i + span
+        int swap = ((block[i] >>> span) ^ block[i + span]) & mask;
+        block[i] ^= swap << span;
+        block[i + span] ^= swap;
+      }
+    }
+  }
+
+  private BitMatrix mirror(boolean upsideDown) {
+    fillAll();
+    BitMatrix result = new BitMatrix(width, height);
+    int[] resultBits = result.bits;
+    // Reversing the words of a row, and the bits of each word, leaves the row's bits at the top
+    // of the words, above the padding that was at the end of the row, so they are shifted down.
+    int padding = (rowSize << 5) - width;
+    for (int y = 0; y < height; y++) {
+      int offset = y * rowSize;
+      int resultOffset = (upsideDown ? height - 1 - y : y) * rowSize;
+      for (int i = 0; i < rowSize; i++) {
+        int reversed = Integer.reverse(bits[offset + rowSize - 1 - i]);
+        if (padding == 0) {
+          resultBits[resultOffset + i] = reversed;
+        } else {
+          int next = i + 1 < rowSize ? Integer.reverse(bits[offset + rowSize - 2 - i]) : 0;
+          resultBits[resultOffset + i] = (reversed >>> padding) | (next << (32 - padding));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the word at the given offset in bits, filling in its tile first if needed
+   */
+  private int getWord(int offset) {
+    if (filler != null) {
+      int y = offset / rowSize;
+      fillTile((offset - y * rowSize) >> (TILE_SIZE_POWER - 5), y >> TILE_SIZE_POWER);
+    }
+    return bits[offset];
+  }
+
+  private void fillTile(int tileX, int tileY) {
+    int index = tileY * tilesPerRow + tileX;
+    if (!filledTiles[index]) {
+      // The filler sets bits through the usual methods, which must not try to fill tiles themselves
+      TileFiller theFiller = filler;
+      filler = null;
+      try {
+        theFiller.fillTile(tileX, tileY, this);
+        filledTiles[index] = true;
+        unfilledTiles--;
+      } finally {
+        // If the filler failed, the tile is filled again when next read
+        if (unfilledTiles > 0) {
+          filler = theFiller;
+        }
+      }
+    }
+  }
+
+  /**
+   * Fills any tiles not yet filled. Methods called per bit check that filler is set before calling
+   * this, so that a matrix which isn't lazily filled, or is already filled, doesn't pay for the call.
+   */
+  private void fillAll() {
+    if (filler != null) {
+      int tilesPerColumn = filledTiles.length / tilesPerRow;
+      for (int tileY = 0; tileY < tilesPerColumn; tileY++) {
+        for (int tileX = 0; tileX < tilesPerRow; tileX++) {
+          fillTile(tileX, tileY);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder(height * (width + 1));
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        result.append(get(x, y) ? "X " : "  ");
+      }
+      result.append('\n');
+    }
+    return result.toString();
+  }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+/**
+ * <p>Holds buffers which readers would otherwise allocate afresh for every image, so that they can be
+ * reused from one image to the next: the row which 1D readers scan, and the grid of modules which 2D
+ * detectors sample. Pass one to the readers with {@link com.google.zxing.DecodeHintType#DECODE_WORKSPACE},
+ * and a {@link BinarizerWorkspace} to each binarizer. A server thread or continuous scan client which
+ * keeps both then allocates little per image beyond the objects describing what it finds.</p>
+ *
+ * <p>A buffer obtained from a workspace, such as the sampled grid in a {@link DetectorResult}, is
+ * overwritten by the next decode using the workspace. This class is not thread-safe; use one instance
+ * per thread.</p>
+ */
+public final class DecodeWorkspace {
+
+  private BitArray row;
+  private BitMatrix grid;
+  private float[] points;
+
+  /**
+   * @return an array of exactly the given number of bits, for one row of an image. Contents are undefined.
+   */
+  public BitArray getRow(int size) {
+    if (row == null || row.getSize() != size) {
+      row = new BitArray(size);
+    }
+    return row;
+  }
+
+  /**
+   * @return a cleared matrix of exactly the given dimensions, for the modules sampled from a symbol
+   */
+  public BitMatrix getGrid(int width, int height) {
+    if (grid == null || grid.getWidth() != width || grid.getHeight() != height) {
+      grid = new BitMatrix(width, height);
+    } else {
+      grid.clear();
+    }
+    return grid;
+  }
+
+  /**
+   * @return an array of exactly the given length, for the coordinates of points to sample.
+   *  Contents are undefined.
+   */
+  public float[] getPoints(int length) {
+    if (points == null || points.length != length) {
+      points = new float[length];
+    }
+    return points;
+  }
+
+}
@@ -48,11 +48,42 @@ public final class DefaultGridSampler extends GridSampler {
                               int dimensionX,
                               int dimensionY,
                               PerspectiveTransform transform) throws NotFoundException {
+    return sampleGrid(image, dimensionX, dimensionY, transform, null);
+  }
+
+  @Override
+  public BitMatrix sampleGrid(BitMatrix image,
+                              int dimensionX,
+                              int dimensionY,
+                              PerspectiveTransform transform,
+                              DecodeWorkspace workspace) throws NotFoundException {
+    return sampleGrid(image, dimensionX, dimensionY, transform, workspace, null);
+  }
+
+  /**
+   * Besides the center of each module, this samples the image a quarter of a module away on each
+   * side. A module is uncertain if fewer than three of these agree with its center.
+   */
+  @Override
+  public BitMatrix sampleGrid(BitMatrix image,
+                              int dimensionX,
+                              int dimensionY,
+                              PerspectiveTransform transform,
+                              DecodeWorkspace workspace,
+                              BitMatrix uncertain) throws NotFoundException {
     if (dimensionX <= 0 || dimensionY <= 0) {
       throw NotFoundException.getNotFoundInstance();      
     }
-    BitMatrix bits = new BitMatrix(dimensionX, dimensionY);
-    float[] points = new float[dimensionX << 1];
+    BitMatrix bits;
+    float[] points;
+    if (workspace == null) {
+      bits = new BitMatrix(dimensionX, dimensionY);
+      points = new float[dimensionX << 1];
+    } else {
+      bits = workspace.getGrid(dimensionX, dimensionY);
+      points = workspace.getPoints(dimensionX << 1);
+    }
+    int[] blackAround = uncertain == null ? null : new int[dimensionX];
     for (int y = 0; y < dimensionY; y++) {
       int max = points.length;
       float iValue = (float) y + 0.5f;
@@ -81,8 +112,53 @@ public final class DefaultGridSampler extends GridSampler {
         // catching and wrapping ArrayIndexOutOfBoundsException.
         throw NotFoundException.getNotFoundInstance();
       }
+      if (uncertain != null) {
+        markUncertain(image, bits, y, transform, points, blackAround, uncertain);
+      }
     }
     return bits;
   }
 
+  private static void markUncertain(BitMatrix image,
+                                    BitMatrix bits,
+                                    int y,
+                                    PerspectiveTransform transform,
+                                    float[] points,
+                                    int[] blackAround,
+                                    BitMatrix uncertain) {
+    int max = points.length;
+    int width = image.getWidth();
+    int height = image.getHeight();
+    for (int side = 0; side < 4; side++) {
+      float xOffset = side == 0 ? 0.25f : side == 1 ? 0.75f : 0.5f;
+      float yValue = (float) y + (side == 2 ? 0.25f : side == 3 ? 0.75f : 0.5f);
+      for (int x = 0; x < max; x += 2) {
+        points[x] = (float) (x >> 1) + xOffset;
+        points[x + 1] = yValue;
+      }
+      transform.transformPoints(points);
+      for (int x = 0; x < max; x += 2) {
+        float pointX = points[x];
+        float pointY = points[x + 1];
+        boolean black;
+        if (pointX >= 0.0f && pointX < width && pointY >= 0.0f && pointY < height) {
+          black = image.get((int) pointX, (int) pointY);
+        } else {
+          // Off the image, as around a code at its edge, which doesn't count against the center
+          black = bits.get(x >> 1, y);
+        }
+        if (black) {
+          blackAround[x >> 1]++;
+        }
+      }
+    }
+    for (int x = 0; x < blackAround.length; x++) {
+      int agreeing = bits.get(x, y) ? blackAround[x] : 4 - blackAround[x];
+      if (agreeing < 3) {
+        uncertain.set(x, y);
+      }
+      blackAround[x] = 0;
+    }
+  }
+
 }
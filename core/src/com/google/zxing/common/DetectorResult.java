@@ -29,10 +29,16 @@ public class DetectorResult {
 
   private final BitMatrix bits;
   private final ResultPoint[] points;
+  private final BitMatrix uncertainBits;
 
   public DetectorResult(BitMatrix bits, ResultPoint[] points) {
+    this(bits, points, null);
+  }
+
+  public DetectorResult(BitMatrix bits, ResultPoint[] points, BitMatrix uncertainBits) {
     this.bits = bits;
     this.points = points;
+    this.uncertainBits = uncertainBits;
   }
 
   public final BitMatrix getBits() {
@@ -43,4 +49,13 @@ public class DetectorResult {
     return points;
   }
 
+  /**
+   * @return modules of {@link #getBits()} which could not be sampled with confidence, or null if
+   *  this wasn't determined
+   * @see GridSampler#sampleGrid(BitMatrix, int, int, PerspectiveTransform, DecodeWorkspace, BitMatrix)
+   */
+  public final BitMatrix getUncertainBits() {
+    return uncertainBits;
+  }
+
 }
\ No newline at end of file
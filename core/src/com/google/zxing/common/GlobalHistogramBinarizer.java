@@ -38,11 +38,25 @@ public class GlobalHistogramBinarizer extends Binarizer {
   private static final int LUMINANCE_BUCKETS = 1 << LUMINANCE_BITS;
   private static final byte[] EMPTY = new byte[0];
 
+  private final BinarizerWorkspace workspace;
   private byte[] luminances;
   private final int[] buckets;
+  // The black point of each row already passed to getBlackRow() plus one, -1 for a row with too little
+  // contrast, or 0 for a row not seen yet. Rows are often requested more than once, by repeated sweeps
+  // of the 1D readers over the same bitmap.
+  private int[] rowBlackPoints;
 
   public GlobalHistogramBinarizer(LuminanceSource source) {
+    this(source, null);
+  }
+
+  /**
+   * @param workspace if not null, holds the per-row state of this binarizer, for reuse by the next
+   *  binarizer to use the workspace
+   */
+  GlobalHistogramBinarizer(LuminanceSource source, BinarizerWorkspace workspace) {
     super(source);
+    this.workspace = workspace;
     luminances = EMPTY;
     buckets = new int[LUMINANCE_BUCKETS];
   }
@@ -58,14 +72,34 @@ public class GlobalHistogramBinarizer extends Binarizer {
       row.clear();
     }
 
+    if (rowBlackPoints == null) {
+      rowBlackPoints = workspace == null ? new int[source.getHeight()] :
+          workspace.getRowBlackPoints(source.getHeight());
+    }
+    int cachedBlackPoint = rowBlackPoints[y];
+    if (cachedBlackPoint < 0) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+
     initArrays(width);
     byte[] localLuminances = source.getRow(y, luminances);
-    int[] localBuckets = buckets;
-    for (int x = 0; x < width; x++) {
-      int pixel = localLuminances[x] & 0xff;
-      localBuckets[pixel >> LUMINANCE_SHIFT]++;
+    int blackPoint;
+    if (cachedBlackPoint > 0) {
+      blackPoint = cachedBlackPoint - 1;
+    } else {
+      int[] localBuckets = buckets;
+      for (int x = 0; x < width; x++) {
+        int pixel = localLuminances[x] & 0xff;
+        localBuckets[pixel >> LUMINANCE_SHIFT]++;
+      }
+      try {
+        blackPoint = estimateBlackPoint(localBuckets);
+      } catch (NotFoundException nfe) {
+        rowBlackPoints[y] = -1;
+        throw nfe;
+      }
+      rowBlackPoints[y] = blackPoint + 1;
     }
-    int blackPoint = estimateBlackPoint(localBuckets);
 
     int left = localLuminances[0] & 0xff;
     int center = localLuminances[1] & 0xff;
@@ -109,14 +143,23 @@ public class GlobalHistogramBinarizer extends Binarizer {
     // Although we end up reading four rows twice, it is consistent with our motto of
     // "fail quickly" which is necessary for continuous scanning.
     byte[] localLuminances = source.getMatrix();
+    int[] rowWords = new int[(width + 31) >> 5];
     for (int y = 0; y < height; y++) {
       int offset = y * width;
-      for (int x = 0; x< width; x++) {
+      int word = 0;
+      for (int x = 0; x < width; x++) {
         int pixel = localLuminances[offset + x] & 0xff;
-        if (pixel < blackPoint) {
-          matrix.set(x, y);
+        // The difference is negative, so has its sign bit set, exactly when pixel < blackPoint.
+        word |= ((pixel - blackPoint) >>> 31) << (x & 0x1F);
+        if ((x & 0x1F) == 0x1F) {
+          rowWords[x >> 5] = word;
+          word = 0;
         }
       }
+      if ((width & 0x1F) != 0) {
+        rowWords[width >> 5] = word;
+      }
+      matrix.setRowBits(y, rowWords, 0, rowWords.length);
     }
 
     return matrix;
@@ -129,7 +172,7 @@ public class GlobalHistogramBinarizer extends Binarizer {
 
   private void initArrays(int luminanceSize) {
     if (luminances.length < luminanceSize) {
-      luminances = new byte[luminanceSize];
+      luminances = workspace == null ? new byte[luminanceSize] : workspace.getRowLuminances(luminanceSize);
     }
     for (int x = 0; x < LUMINANCE_BUCKETS; x++) {
       buckets[x] = 0;
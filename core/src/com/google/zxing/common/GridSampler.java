@@ -82,6 +82,37 @@ public abstract class GridSampler {
                                        int dimensionY,
                                        PerspectiveTransform transform) throws NotFoundException;
 
+  /**
+   * Like {@link #sampleGrid(BitMatrix, int, int, PerspectiveTransform)}, but may use buffers from the
+   * given workspace, including for the returned matrix. By default the workspace is not used.
+   *
+   * @param workspace buffers to reuse, or null
+   */
+  public BitMatrix sampleGrid(BitMatrix image,
+                              int dimensionX,
+                              int dimensionY,
+                              PerspectiveTransform transform,
+                              DecodeWorkspace workspace) throws NotFoundException {
+    return sampleGrid(image, dimensionX, dimensionY, transform);
+  }
+
+  /**
+   * Like {@link #sampleGrid(BitMatrix, int, int, PerspectiveTransform, DecodeWorkspace)}, but also
+   * sets in the given matrix the modules which could not be sampled with confidence, for example
+   * because they lie on a boundary in the image. By default none are set.
+   *
+   * @param uncertain matrix of the same dimensions as the grid, which should be clear, in which to
+   *  set uncertain modules
+   */
+  public BitMatrix sampleGrid(BitMatrix image,
+                              int dimensionX,
+                              int dimensionY,
+                              PerspectiveTransform transform,
+                              DecodeWorkspace workspace,
+                              BitMatrix uncertain) throws NotFoundException {
+    return sampleGrid(image, dimensionX, dimensionY, transform, workspace);
+  }
+
   /**
    * <p>Checks a set of points that have been transformed to sample points on an image against
    * the image's dimensions to see if the point are even within the image.</p>
@@ -20,6 +20,13 @@ import com.google.zxing.Binarizer;
 import com.google.zxing.LuminanceSource;
 import com.google.zxing.NotFoundException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
 /**
  * This class implements a local thresholding algorithm, which while slower than the
  * GlobalHistogramBinarizer, is fairly efficient for what it does. It is designed for
@@ -35,22 +42,58 @@ import com.google.zxing.NotFoundException;
  *
  * This Binarizer is the default for the unit tests and the recommended class for library users.
  *
+ * Callers which binarize many images in a row, such as continuous scan clients, can pass a
+ * {@link BinarizerWorkspace} to reuse the intermediate buffers and the output matrix across images.
+ * Callers with large images and spare cores, such as servers, can also pass an {@link ExecutorService}
+ * on which horizontal bands of the image are binarized in parallel. The result is identical either way.
+ *
  * @author dswitkin@google.com (Daniel Switkin)
  */
 public final class HybridBinarizer extends GlobalHistogramBinarizer {
 
   // This class uses 5x5 blocks to compute local luminance, where each block is 8x8 pixels.
   // So this is the smallest dimension in each axis we can accept.
-  private static final int BLOCK_SIZE_POWER = 3;
-  private static final int BLOCK_SIZE = 1 << BLOCK_SIZE_POWER; // ...0100...00
-  private static final int BLOCK_SIZE_MASK = BLOCK_SIZE - 1;   // ...0011...11
-  private static final int MINIMUM_DIMENSION = BLOCK_SIZE * 5;
+  static final int BLOCK_SIZE_POWER = 3;
+  static final int BLOCK_SIZE = 1 << BLOCK_SIZE_POWER; // ...0100...00
+  static final int BLOCK_SIZE_MASK = BLOCK_SIZE - 1;   // ...0011...11
+  static final int MINIMUM_DIMENSION = BLOCK_SIZE * 5;
+  private static final int BLOCKS_PER_WORD_POWER = 5 - BLOCK_SIZE_POWER;
+  private static final int BLOCKS_PER_WORD_MASK = (1 << BLOCKS_PER_WORD_POWER) - 1;
   private static final int MIN_DYNAMIC_RANGE = 24;
+  // Bands of fewer block rows than this are not worth handing to another thread. Bands are otherwise
+  // kept small so that the executor can balance them across however many threads it has.
+  private static final int MIN_BAND_HEIGHT = 32;
 
+  private final BinarizerWorkspace workspace;
+  private final ExecutorService executor;
   private BitMatrix matrix;
 
   public HybridBinarizer(LuminanceSource source) {
-    super(source);
+    this(source, new BinarizerWorkspace(), null);
+  }
+
+  /**
+   * @param source image to binarize
+   * @param workspace buffers to reuse. The matrix returned by {@link #getBlackMatrix()} belongs to this
+   *  workspace and is overwritten when another binarizer sharing the workspace computes its matrix.
+   */
+  public HybridBinarizer(LuminanceSource source, BinarizerWorkspace workspace) {
+    this(source, workspace, null);
+  }
+
+  /**
+   * @param source image to binarize
+   * @param workspace buffers to reuse, as in {@link #HybridBinarizer(LuminanceSource, BinarizerWorkspace)}
+   * @param executor if not null, bands of large images are binarized concurrently on this executor.
+   *  The calling thread blocks until all bands are done.
+   */
+  public HybridBinarizer(LuminanceSource source, BinarizerWorkspace workspace, ExecutorService executor) {
+    super(source, workspace);
+    if (workspace == null) {
+      throw new IllegalArgumentException("Workspace must be non-null.");
+    }
+    this.workspace = workspace;
+    this.executor = executor;
   }
 
   /**
@@ -76,10 +119,36 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
       if ((height & BLOCK_SIZE_MASK) != 0) {
         subHeight++;
       }
-      int[][] blackPoints = calculateBlackPoints(luminances, subWidth, subHeight, width, height);
+      int[][] blackPoints = workspace.getBlackPoints(subWidth, subHeight);
+      int[][] lowContrastMins = workspace.getLowContrastMins(subWidth, subHeight);
+      BitMatrix newMatrix = workspace.getMatrix(width, height);
 
-      BitMatrix newMatrix = new BitMatrix(width, height);
-      calculateThresholdForBlock(luminances, subWidth, subHeight, width, height, blackPoints, newMatrix);
+      int numBands = executor == null ? 1 : subHeight / MIN_BAND_HEIGHT;
+      if (numBands <= 1) {
+        calculateBlackPoints(luminances, subWidth, 0, subWidth, 0, subHeight, width, height,
+                             blackPoints, lowContrastMins);
+        thresholdImage(luminances, subWidth, subHeight, width, height, blackPoints, lowContrastMins, workspace,
+                       newMatrix);
+      } else {
+        // Only the black point correction depends on neighboring blocks, and it is cheap, so it runs
+        // on this thread between the two parallel passes over the pixels.
+        int[] bandStarts = calculateBandStarts(subHeight, numBands);
+        Collection<Callable<Object>> tasks = new ArrayList<Callable<Object>>(numBands);
+        for (int i = 0; i < numBands; i++) {
+          tasks.add(new BlackPointsBand(luminances, subWidth, bandStarts[i], bandStarts[i + 1], width, height,
+                                        blackPoints, lowContrastMins));
+        }
+        runAll(tasks);
+        correctBlackPoints(subWidth, subHeight, blackPoints, lowContrastMins);
+        int[] blackPointSums = workspace.getBlackPointSums((subWidth + 1) * (subHeight + 1));
+        calculateBlackPointSums(blackPoints, subWidth, subHeight, blackPointSums);
+        tasks.clear();
+        for (int i = 0; i < numBands; i++) {
+          tasks.add(new ThresholdBand(luminances, subWidth, subHeight, bandStarts[i], bandStarts[i + 1], width,
+                                      height, blackPointSums, newMatrix));
+        }
+        runAll(tasks);
+      }
       matrix = newMatrix;
     } else {
       // If the image is too small, fall back to the global histogram approach.
@@ -88,44 +157,162 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
     return matrix;
   }
 
+  /**
+   * The new binarizer gets its own workspace, since the matrix of this one may still be in use,
+   * for example by a caller that is decoding a cropped region of the same image.
+   */
   @Override
   public Binarizer createBinarizer(LuminanceSource source) {
-    return new HybridBinarizer(source);
+    return new HybridBinarizer(source, new BinarizerWorkspace(), executor);
+  }
+
+  /**
+   * Splits the block rows into bands of about equal height. The last, possibly fractional, block row
+   * is thresholded over pixels shared with the row before it, so those two always end up in the same
+   * band and no two bands write to the same row of the matrix.
+   *
+   * @return start of each band, followed by subHeight
+   */
+  private static int[] calculateBandStarts(int subHeight, int numBands) {
+    int[] bandStarts = new int[numBands + 1];
+    for (int i = 0; i < numBands; i++) {
+      bandStarts[i] = i * (subHeight - 1) / numBands;
+    }
+    bandStarts[numBands] = subHeight;
+    return bandStarts;
+  }
+
+  private void runAll(Collection<Callable<Object>> tasks) throws NotFoundException {
+    try {
+      for (Future<Object> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw NotFoundException.getNotFoundInstance();
+    } catch (ExecutionException ee) {
+      throw new IllegalStateException(ee.getCause());
+    }
   }
 
   /**
-   * For each block in the image, calculate the average black point using a 5x5 grid
-   * of the blocks around it. Also handles the corner cases (fractional blocks are computed based
-   * on the last pixels in the row/column which are also used in the previous block).
+   * Corrects the black points of low contrast blocks, as computed by {@link #calculateBlackPoints},
+   * and then thresholds the whole image with them.
    */
-  private static void calculateThresholdForBlock(byte[] luminances,
-                                                 int subWidth,
-                                                 int subHeight,
-                                                 int width,
-                                                 int height,
-                                                 int[][] blackPoints,
-                                                 BitMatrix matrix) {
+  static void thresholdImage(byte[] luminances,
+                             int subWidth,
+                             int subHeight,
+                             int width,
+                             int height,
+                             int[][] blackPoints,
+                             int[][] lowContrastMins,
+                             BinarizerWorkspace workspace,
+                             BitMatrix matrix) {
+    correctBlackPoints(subWidth, subHeight, blackPoints, lowContrastMins);
+    int[] blackPointSums = workspace.getBlackPointSums((subWidth + 1) * (subHeight + 1));
+    calculateBlackPointSums(blackPoints, subWidth, subHeight, blackPointSums);
+    calculateThresholdForBlock(luminances, subWidth, subHeight, 0, subWidth, 0, subHeight, width, height,
+                               blackPointSums, workspace.getThresholds(subWidth),
+                               workspace.getRowWords((width + 31) >> 5), matrix);
+  }
+
+  /**
+   * Builds a summed-area table of the black points, so that the sum over any rectangle of blocks
+   * can be read with four lookups. Entry (y * (subWidth + 1) + x) holds the sum of all black points
+   * above and to the left of block (x, y). Intermediate sums may overflow on enormous images, but
+   * the differences taken from them are still exact.
+   */
+  static void calculateBlackPointSums(int[][] blackPoints, int subWidth, int subHeight, int[] sums) {
+    int stride = subWidth + 1;
+    for (int x = 0; x < stride; x++) {
+      sums[x] = 0;
+    }
     for (int y = 0; y < subHeight; y++) {
+      int[] blackRow = blackPoints[y];
+      int offset = (y + 1) * stride;
+      int rowSum = 0;
+      sums[offset] = 0;
+      for (int x = 0; x < subWidth; x++) {
+        rowSum += blackRow[x];
+        sums[offset + x + 1] = sums[offset - stride + x + 1] + rowSum;
+      }
+    }
+  }
+
+  /**
+   * For each block in the given range of blocks, calculate the average black point using a 5x5 grid
+   * of the blocks around it, and threshold the block with it. Also handles the corner cases (fractional
+   * blocks are computed based on the last pixels in the row/column which are also used in the previous
+   * block).
+   *
+   * The matrix is written one row of pixels at a time, building each word of the row from the four
+   * blocks it covers before storing it.
+   *
+   * @param thresholds scratch space for the threshold of each block in a row, of at least subWidth
+   * @param rowWords scratch space for one row of the matrix, of at least (width + 31) / 32
+   */
+  static void calculateThresholdForBlock(byte[] luminances,
+                                         int subWidth,
+                                         int subHeight,
+                                         int startX,
+                                         int endX,
+                                         int startY,
+                                         int endY,
+                                         int width,
+                                         int height,
+                                         int[] blackPointSums,
+                                         int[] thresholds,
+                                         int[] rowWords,
+                                         BitMatrix matrix) {
+    int stride = subWidth + 1;
+    int maxXOffset = width - BLOCK_SIZE;
+    int maxYOffset = height - BLOCK_SIZE;
+    // All blocks but a fractional last one cover one aligned byte of a word. The last one is moved
+    // back to fit inside the image, overlapping the one before it, and is handled separately.
+    int alignedEndX = endX == subWidth && (width & BLOCK_SIZE_MASK) != 0 ? endX - 1 : endX;
+    int firstWord = Math.min(startX << BLOCK_SIZE_POWER, maxXOffset) >> 5;
+    int endWord = ((alignedEndX < endX ? width : endX << BLOCK_SIZE_POWER) + 31) >> 5;
+    for (int y = startY; y < endY; y++) {
       int yoffset = y << BLOCK_SIZE_POWER;
-      int maxYOffset = height - BLOCK_SIZE;
       if (yoffset > maxYOffset) {
         yoffset = maxYOffset;
       }
-      for (int x = 0; x < subWidth; x++) {
-        int xoffset = x << BLOCK_SIZE_POWER;
-        int maxXOffset = width - BLOCK_SIZE;
-        if (xoffset > maxXOffset) {
-          xoffset = maxXOffset;
-        }
+      int top = cap(y, 2, subHeight - 3);
+      int upper = (top - 2) * stride;
+      int lower = (top + 3) * stride;
+      for (int x = startX; x < endX; x++) {
         int left = cap(x, 2, subWidth - 3);
-        int top = cap(y, 2, subHeight - 3);
-        int sum = 0;
-        for (int z = -2; z <= 2; z++) {
-          int[] blackRow = blackPoints[top + z];
-          sum += blackRow[left - 2] + blackRow[left - 1] + blackRow[left] + blackRow[left + 1] + blackRow[left + 2];
+        int sum = blackPointSums[lower + left + 3] - blackPointSums[lower + left - 2] -
+            blackPointSums[upper + left + 3] + blackPointSums[upper + left - 2];
+        thresholds[x] = sum / 25;
+      }
+
+      for (int yy = 0, offset = yoffset * width; yy < BLOCK_SIZE; yy++, offset += width) {
+        for (int i = firstWord; i < endWord; i++) {
+          rowWords[i] = 0;
+        }
+        int word = 0;
+        for (int x = startX; x < alignedEndX; x++) {
+          int blockInWord = x & BLOCKS_PER_WORD_MASK;
+          word |= thresholdBlockRow(luminances, offset + (x << BLOCK_SIZE_POWER), thresholds[x]) <<
+              (blockInWord << BLOCK_SIZE_POWER);
+          if (blockInWord == BLOCKS_PER_WORD_MASK) {
+            rowWords[x >> BLOCKS_PER_WORD_POWER] = word;
+            word = 0;
+          }
+        }
+        if ((alignedEndX & BLOCKS_PER_WORD_MASK) != 0) {
+          rowWords[alignedEndX >> BLOCKS_PER_WORD_POWER] = word;
         }
-        int average = sum / 25;
-        thresholdBlock(luminances, xoffset, yoffset, average, width, matrix);
+        if (alignedEndX < endX) {
+          int bits = thresholdBlockRow(luminances, offset + maxXOffset, thresholds[alignedEndX]);
+          int shift = maxXOffset & 0x1F;
+          rowWords[maxXOffset >> 5] |= bits << shift;
+          if (shift > 32 - BLOCK_SIZE) {
+            rowWords[(maxXOffset >> 5) + 1] |= bits >>> (32 - shift);
+          }
+        }
+        matrix.setRowBits(yoffset + yy, rowWords, firstWord, endWord);
       }
     }
   }
@@ -135,42 +322,45 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
   }
 
   /**
-   * Applies a single threshold to a block of pixels.
+   * Applies a single threshold to one row of a block of pixels.
+   *
+   * @return a bit for each pixel in the row of the block, least significant first, set if it is black
    */
-  private static void thresholdBlock(byte[] luminances,
-                                     int xoffset,
-                                     int yoffset,
-                                     int threshold,
-                                     int stride,
-                                     BitMatrix matrix) {
-    for (int y = 0, offset = yoffset * stride + xoffset; y < BLOCK_SIZE; y++, offset += stride) {
-      for (int x = 0; x < BLOCK_SIZE; x++) {
-        // Comparison needs to be <= so that black == 0 pixels are black even if the threshold is 0.
-        if ((luminances[offset + x] & 0xFF) <= threshold) {
-          matrix.set(xoffset + x, yoffset + y);
-        }
-      }
+  private static int thresholdBlockRow(byte[] luminances, int offset, int threshold) {
+    int bits = 0;
+    for (int x = BLOCK_SIZE - 1; x >= 0; x--) {
+      // Comparison needs to be <= so that black == 0 pixels are black even if the threshold is 0.
+      // The difference below is negative, so has its sign bit set, exactly when pixel <= threshold.
+      bits = (bits << 1) | (((luminances[offset + x] & 0xFF) - threshold - 1) >>> 31);
     }
+    return bits;
   }
 
   /**
-   * Calculates a single black point for each block of pixels and saves it away.
+   * Calculates a single black point for each block of pixels in block columns startX (inclusive) to
+   * endX (exclusive) of block rows startY (inclusive) to endY (exclusive) and saves it away. Blocks
+   * with too little contrast get a provisional black point, and their minimum is saved in
+   * lowContrastMins for {@link #correctBlackPoints}; other blocks get -1.
    * See the following thread for a discussion of this algorithm:
    *  http://groups.google.com/group/zxing/browse_thread/thread/d06efa2c35a7ddc0
    */
-  private static int[][] calculateBlackPoints(byte[] luminances,
-                                              int subWidth,
-                                              int subHeight,
-                                              int width,
-                                              int height) {
-    int[][] blackPoints = new int[subHeight][subWidth];
-    for (int y = 0; y < subHeight; y++) {
+  static void calculateBlackPoints(byte[] luminances,
+                                   int subWidth,
+                                   int startX,
+                                   int endX,
+                                   int startY,
+                                   int endY,
+                                   int width,
+                                   int height,
+                                   int[][] blackPoints,
+                                   int[][] lowContrastMins) {
+    for (int y = startY; y < endY; y++) {
       int yoffset = y << BLOCK_SIZE_POWER;
       int maxYOffset = height - BLOCK_SIZE;
       if (yoffset > maxYOffset) {
         yoffset = maxYOffset;
       }
-      for (int x = 0; x < subWidth; x++) {
+      for (int x = startX; x < endX; x++) {
         int xoffset = x << BLOCK_SIZE_POWER;
         int maxXOffset = width - BLOCK_SIZE;
         if (xoffset > maxXOffset) {
@@ -212,26 +402,118 @@ public final class HybridBinarizer extends GlobalHistogramBinarizer {
           // The default assumption is that the block is light/background. Since no estimate for
           // the level of dark pixels exists locally, use half the min for the block.
           average = min >> 1;
+          lowContrastMins[y][x] = min;
+        } else {
+          lowContrastMins[y][x] = -1;
+        }
+        blackPoints[y][x] = average;
+      }
+    }
+  }
 
-          if (y > 0 && x > 0) {
-            // Correct the "white background" assumption for blocks that have neighbors by comparing
-            // the pixels in this block to the previously calculated black points. This is based on
-            // the fact that dark barcode symbology is always surrounded by some amount of light
-            // background for which reasonable black point estimates were made. The bp estimated at
-            // the boundaries is used for the interior.
-
-            // The (min < bp) is arbitrary but works better than other heuristics that were tried.
-            int averageNeighborBlackPoint = (blackPoints[y - 1][x] + (2 * blackPoints[y][x - 1]) +
-                blackPoints[y - 1][x - 1]) >> 2;
-            if (min < averageNeighborBlackPoint) {
-              average = averageNeighborBlackPoint;
-            }
+  /**
+   * Correct the "white background" assumption for low contrast blocks that have neighbors by comparing
+   * the pixels in this block to the previously calculated black points. This is based on the fact that
+   * dark barcode symbology is always surrounded by some amount of light background for which reasonable
+   * black point estimates were made. The bp estimated at the boundaries is used for the interior.
+   *
+   * Each correction depends on corrected blocks above and to the left, so this runs over the whole
+   * grid in order, once {@link #calculateBlackPoints} is done with every block.
+   */
+  static void correctBlackPoints(int subWidth, int subHeight, int[][] blackPoints, int[][] lowContrastMins) {
+    for (int y = 1; y < subHeight; y++) {
+      int[] minRow = lowContrastMins[y];
+      int[] blackRow = blackPoints[y];
+      int[] previousBlackRow = blackPoints[y - 1];
+      for (int x = 1; x < subWidth; x++) {
+        int min = minRow[x];
+        if (min >= 0) {
+          // The (min < bp) is arbitrary but works better than other heuristics that were tried.
+          int averageNeighborBlackPoint =
+              (previousBlackRow[x] + (2 * blackRow[x - 1]) + previousBlackRow[x - 1]) >> 2;
+          if (min < averageNeighborBlackPoint) {
+            blackRow[x] = averageNeighborBlackPoint;
           }
         }
-        blackPoints[y][x] = average;
       }
     }
-    return blackPoints;
+  }
+
+  private static final class BlackPointsBand implements Callable<Object> {
+
+    private final byte[] luminances;
+    private final int subWidth;
+    private final int startY;
+    private final int endY;
+    private final int width;
+    private final int height;
+    private final int[][] blackPoints;
+    private final int[][] lowContrastMins;
+
+    BlackPointsBand(byte[] luminances,
+                    int subWidth,
+                    int startY,
+                    int endY,
+                    int width,
+                    int height,
+                    int[][] blackPoints,
+                    int[][] lowContrastMins) {
+      this.luminances = luminances;
+      this.subWidth = subWidth;
+      this.startY = startY;
+      this.endY = endY;
+      this.width = width;
+      this.height = height;
+      this.blackPoints = blackPoints;
+      this.lowContrastMins = lowContrastMins;
+    }
+
+    @Override
+    public Object call() {
+      calculateBlackPoints(luminances, subWidth, 0, subWidth, startY, endY, width, height,
+                           blackPoints, lowContrastMins);
+      return null;
+    }
+  }
+
+  private static final class ThresholdBand implements Callable<Object> {
+
+    private final byte[] luminances;
+    private final int subWidth;
+    private final int subHeight;
+    private final int startY;
+    private final int endY;
+    private final int width;
+    private final int height;
+    private final int[] blackPointSums;
+    private final BitMatrix matrix;
+
+    ThresholdBand(byte[] luminances,
+                  int subWidth,
+                  int subHeight,
+                  int startY,
+                  int endY,
+                  int width,
+                  int height,
+                  int[] blackPointSums,
+                  BitMatrix matrix) {
+      this.luminances = luminances;
+      this.subWidth = subWidth;
+      this.subHeight = subHeight;
+      this.startY = startY;
+      this.endY = endY;
+      this.width = width;
+      this.height = height;
+      this.blackPointSums = blackPointSums;
+      this.matrix = matrix;
+    }
+
+    @Override
+    public Object call() {
+      calculateThresholdForBlock(luminances, subWidth, subHeight, 0, subWidth, startY, endY, width, height,
+                                 blackPointSums, new int[subWidth], new int[(width + 31) >> 5], matrix);
+      return null;
+    }
   }
 
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+
+/**
+ * <p>This produces the same bits as {@link HybridBinarizer}, but returns a {@link BitMatrix} which
+ * only thresholds each 64x64 tile of pixels the first time one of its bits is read. Detectors which
+ * look at only part of the image, such as a pure barcode search or a detector walking outwards from
+ * the center, then skip thresholding most of a large image.</p>
+ *
+ * <p>The black points of all blocks are still computed in one pass over the image, the first time
+ * any tile is needed, since the black point of a low contrast block depends on the blocks above
+ * and to the left of it.</p>
+ *
+ * <p>The returned matrix fills itself in as it is read, so must not be shared between threads.</p>
+ */
+public final class LazyHybridBinarizer extends GlobalHistogramBinarizer {
+
+  private static final int BLOCKS_PER_TILE_POWER = BitMatrix.TILE_SIZE_POWER - HybridBinarizer.BLOCK_SIZE_POWER;
+
+  private BitMatrix matrix;
+
+  public LazyHybridBinarizer(LuminanceSource source) {
+    super(source);
+  }
+
+  @Override
+  public BitMatrix getBlackMatrix() throws NotFoundException {
+    if (matrix != null) {
+      return matrix;
+    }
+    LuminanceSource source = getLuminanceSource();
+    int width = source.getWidth();
+    int height = source.getHeight();
+    if (width >= HybridBinarizer.MINIMUM_DIMENSION && height >= HybridBinarizer.MINIMUM_DIMENSION) {
+      matrix = new BitMatrix(width, height, new Thresholder(source));
+    } else {
+      // If the image is too small, fall back to the global histogram approach.
+      matrix = super.getBlackMatrix();
+    }
+    return matrix;
+  }
+
+  @Override
+  public Binarizer createBinarizer(LuminanceSource source) {
+    return new LazyHybridBinarizer(source);
+  }
+
+  /**
+   * @return one past the last block which covers pixels of the given tile. The last block is moved
+   *  back to fit inside the image, so may reach into this tile from the next.
+   */
+  private static int endBlock(int tile, int subSize, int size) {
+    int end = Math.min((tile + 1) << BLOCKS_PER_TILE_POWER, subSize);
+    if (end == subSize - 1 && size - HybridBinarizer.BLOCK_SIZE < (tile + 1) << BitMatrix.TILE_SIZE_POWER) {
+      end = subSize;
+    }
+    return end;
+  }
+
+  private static final class Thresholder implements TileFiller {
+
+    private final LuminanceSource source;
+    private final int width;
+    private final int height;
+    private final int subWidth;
+    private final int subHeight;
+    private byte[] luminances;
+    private int[] blackPointSums;
+    private int[] thresholds;
+    private int[] rowWords;
+
+    Thresholder(LuminanceSource source) {
+      this.source = source;
+      width = source.getWidth();
+      height = source.getHeight();
+      subWidth = (width + HybridBinarizer.BLOCK_SIZE_MASK) >> HybridBinarizer.BLOCK_SIZE_POWER;
+      subHeight = (height + HybridBinarizer.BLOCK_SIZE_MASK) >> HybridBinarizer.BLOCK_SIZE_POWER;
+    }
+
+    @Override
+    public void fillTile(int tileX, int tileY, BitMatrix matrix) {
+      if (luminances == null) {
+        luminances = source.getMatrix();
+        int[][] blackPoints = new int[subHeight][subWidth];
+        int[][] lowContrastMins = new int[subHeight][subWidth];
+        HybridBinarizer.calculateBlackPoints(luminances, subWidth, 0, subWidth, 0, subHeight, width, height,
+                                             blackPoints, lowContrastMins);
+        HybridBinarizer.correctBlackPoints(subWidth, subHeight, blackPoints, lowContrastMins);
+        blackPointSums = new int[(subWidth + 1) * (subHeight + 1)];
+        HybridBinarizer.calculateBlackPointSums(blackPoints, subWidth, subHeight, blackPointSums);
+        thresholds = new int[subWidth];
+        rowWords = new int[(width + 31) >> 5];
+      }
+      HybridBinarizer.calculateThresholdForBlock(luminances,
+                                                 subWidth,
+                                                 subHeight,
+                                                 tileX << BLOCKS_PER_TILE_POWER,
+                                                 endBlock(tileX, subWidth, width),
+                                                 tileY << BLOCKS_PER_TILE_POWER,
+                                                 endBlock(tileY, subHeight, height),
+                                                 width,
+                                                 height,
+                                                 blackPointSums,
+                                                 thresholds,
+                                                 rowWords,
+                                                 matrix);
+    }
+  }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+/**
+ * <p>A row of bits as the runs of equal bits which make it up, alternately black (set) and white. Most
+ * readers look at a row only as runs, counting the pixels of each bar and space, so they can step from
+ * run to run rather than from bit to bit.</p>
+ *
+ * <p>The runs are found with {@link BitArray#getNextSet(int)} and {@link BitArray#getNextUnset(int)},
+ * which skip whole words of equal bits at once. See {@link BitArray#getRunLengthRow()}, which recomputes
+ * the same object in place when its bits change.</p>
+ */
+public final class RunLengthRow {
+
+  private int size;
+  private boolean firstBlack;
+  private int runCount;
+  // starts[i] is the index of the first bit of run i, and starts[runCount] is size
+  private int[] starts;
+  private int[] widths;
+
+  public RunLengthRow(BitArray row) {
+    starts = new int[16];
+    widths = new int[16];
+    compute(row);
+  }
+
+  /**
+   * Finds the runs of the given row, replacing those found before, and reusing the arrays which held them.
+   */
+  void compute(BitArray row) {
+    size = row.getSize();
+    firstBlack = size > 0 && row.get(0);
+    int[] starts = this.starts;
+    int[] widths = this.widths;
+    int runCount = 0;
+    boolean black = firstBlack;
+    for (int start = 0; start < size; black = !black) {
+      int end = black ? row.getNextUnset(start) : row.getNextSet(start);
+      if (runCount + 1 == starts.length) {
+        starts = grow(starts);
+        widths = grow(widths);
+      }
+      starts[runCount] = start;
+      widths[runCount] = end - start;
+      runCount++;
+      start = end;
+    }
+    starts[runCount] = size;
+    this.runCount = runCount;
+    this.starts = starts;
+    this.widths = widths;
+  }
+
+  /**
+   * @return number of bits in the row
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @return number of runs in the row
+   */
+  public int getRunCount() {
+    return runCount;
+  }
+
+  /**
+   * @param run index of a run, from 0 to {@link #getRunCount()} - 1
+   * @return index of the first bit of the run
+   */
+  public int getRunStart(int run) {
+    return starts[run];
+  }
+
+  /**
+   * @param run index of a run, from 0 to {@link #getRunCount()} - 1
+   * @return index of the bit after the last bit of the run
+   */
+  public int getRunEnd(int run) {
+    return starts[run + 1];
+  }
+
+  /**
+   * @param run index of a run, from 0 to {@link #getRunCount()} - 1
+   * @return number of bits in the run
+   */
+  public int getRunWidth(int run) {
+    return widths[run];
+  }
+
+  /**
+   * @param run index of a run, from 0 to {@link #getRunCount()} - 1
+   * @return true iff the bits of the run are set
+   */
+  public boolean isBlack(int run) {
+    return firstBlack ^ ((run & 0x01) != 0);
+  }
+
+  /**
+   * @param i index of a bit, from 0 to {@link #getSize()} - 1
+   * @return index of the run containing the bit
+   */
+  public int getRunAt(int i) {
+    int low = 0;
+    int high = runCount - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (starts[middle] <= i) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  private static int[] grow(int[] array) {
+    int[] newArray = new int[array.length << 1];
+    System.arraycopy(array, 0, newArray, 0, array.length);
+    return newArray;
+  }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+
+/**
+ * <p>A variant of {@link HybridBinarizer} for consecutive frames of video from a steady camera. The
+ * per-block black points of the previous frame are kept in the {@link BinarizerWorkspace}, and a
+ * block's black point is only recomputed when its luminance has changed noticeably since then. Whether
+ * a block changed is judged from the sum of the pixels on its two diagonals, which reads a quarter of
+ * the pixels that computing its black point does.</p>
+ *
+ * <p>Each frame is still thresholded in full, against black points which may be slightly stale for
+ * blocks that changed by less than the threshold. The first frame, and any frame whose size differs
+ * from the previous one, produces exactly the same bits as {@link HybridBinarizer}.</p>
+ *
+ * <p>Pass the same workspace for every frame of one stream, and a different one for each stream.</p>
+ */
+public final class TemporalHybridBinarizer extends GlobalHistogramBinarizer {
+
+  // How much the diagonal sum of a block, over 2 * BLOCK_SIZE pixels, may drift before the block's
+  // black point is recomputed.
+  private static final int CHANGE_THRESHOLD = 4 * 2 * HybridBinarizer.BLOCK_SIZE;
+
+  private final BinarizerWorkspace workspace;
+  private BitMatrix matrix;
+
+  /**
+   * @param source frame to binarize
+   * @param workspace buffers to reuse, holding the black points of the previous frame of the same stream.
+   *  The returned matrix belongs to the workspace, as with {@link HybridBinarizer}.
+   */
+  public TemporalHybridBinarizer(LuminanceSource source, BinarizerWorkspace workspace) {
+    super(source, workspace);
+    if (workspace == null) {
+      throw new IllegalArgumentException("Workspace must be non-null.");
+    }
+    this.workspace = workspace;
+  }
+
+  @Override
+  public BitMatrix getBlackMatrix() throws NotFoundException {
+    if (matrix != null) {
+      return matrix;
+    }
+    LuminanceSource source = getLuminanceSource();
+    int width = source.getWidth();
+    int height = source.getHeight();
+    if (width >= HybridBinarizer.MINIMUM_DIMENSION && height >= HybridBinarizer.MINIMUM_DIMENSION) {
+      byte[] luminances = source.getMatrix();
+      int subWidth = (width + HybridBinarizer.BLOCK_SIZE_MASK) >> HybridBinarizer.BLOCK_SIZE_POWER;
+      int subHeight = (height + HybridBinarizer.BLOCK_SIZE_MASK) >> HybridBinarizer.BLOCK_SIZE_POWER;
+      int[][] previousBlackPoints = workspace.getPreviousBlackPoints(subWidth, subHeight);
+      int[][] previousLowContrastMins = workspace.getPreviousLowContrastMins();
+      updateBlackPoints(luminances, subWidth, subHeight, width, height, workspace.hasPrevious(width, height),
+                        previousBlackPoints, previousLowContrastMins, workspace.getBlockSignatures());
+      workspace.setPrevious(width, height);
+
+      // The correction overwrites black points, so works on a copy of the uncorrected ones.
+      int[][] blackPoints = workspace.getBlackPoints(subWidth, subHeight);
+      int[][] lowContrastMins = workspace.getLowContrastMins(subWidth, subHeight);
+      for (int y = 0; y < subHeight; y++) {
+        System.arraycopy(previousBlackPoints[y], 0, blackPoints[y], 0, subWidth);
+        System.arraycopy(previousLowContrastMins[y], 0, lowContrastMins[y], 0, subWidth);
+      }
+      BitMatrix newMatrix = workspace.getMatrix(width, height);
+      HybridBinarizer.thresholdImage(luminances, subWidth, subHeight, width, height, blackPoints, lowContrastMins,
+                                     workspace, newMatrix);
+      matrix = newMatrix;
+    } else {
+      // If the image is too small, fall back to the global histogram approach.
+      matrix = super.getBlackMatrix();
+    }
+    return matrix;
+  }
+
+  /**
+   * Creates a binarizer for the given source which shares nothing with this one, since the source is
+   * generally not the next frame of the same stream.
+   */
+  @Override
+  public Binarizer createBinarizer(LuminanceSource source) {
+    return new TemporalHybridBinarizer(source, new BinarizerWorkspace());
+  }
+
+  /**
+   * Recomputes the uncorrected black points of the blocks which changed since the previous frame, or
+   * of all blocks if there is no previous frame.
+   */
+  private static void updateBlackPoints(byte[] luminances,
+                                        int subWidth,
+                                        int subHeight,
+                                        int width,
+                                        int height,
+                                        boolean hasPrevious,
+                                        int[][] blackPoints,
+                                        int[][] lowContrastMins,
+                                        int[][] signatures) {
+    int maxYOffset = height - HybridBinarizer.BLOCK_SIZE;
+    int maxXOffset = width - HybridBinarizer.BLOCK_SIZE;
+    for (int y = 0; y < subHeight; y++) {
+      int yoffset = Math.min(y << HybridBinarizer.BLOCK_SIZE_POWER, maxYOffset);
+      int[] signatureRow = signatures[y];
+      for (int x = 0; x < subWidth; x++) {
+        int xoffset = Math.min(x << HybridBinarizer.BLOCK_SIZE_POWER, maxXOffset);
+        int signature = diagonalSum(luminances, yoffset * width + xoffset, width);
+        if (!hasPrevious || Math.abs(signature - signatureRow[x]) > CHANGE_THRESHOLD) {
+          HybridBinarizer.calculateBlackPoints(luminances, subWidth, x, x + 1, y, y + 1, width, height,
+                                               blackPoints, lowContrastMins);
+          signatureRow[x] = signature;
+        }
+      }
+    }
+  }
+
+  private static int diagonalSum(byte[] luminances, int offset, int stride) {
+    int sum = 0;
+    for (int i = 0, j = HybridBinarizer.BLOCK_SIZE - 1; i < HybridBinarizer.BLOCK_SIZE; i++, j--) {
+      int rowOffset = offset + i * stride;
+      sum += (luminances[rowOffset + i] & 0xFF) + (luminances[rowOffset + j] & 0xFF);
+    }
+    return sum;
+  }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+/**
+ * Computes the bits of a lazily filled {@link BitMatrix}, one tile at a time.
+ */
+interface TileFiller {
+
+  /**
+   * Sets the 1 bits of one tile of the matrix. Tiles are 2^{@link BitMatrix#TILE_SIZE_POWER} pixels
+   * square, except at the right and bottom edges. Bits outside the tile may also be set, as long as
+   * they would be set anyway when their own tile is filled.
+   *
+   * @param tileX column of the tile
+   * @param tileY row of the tile
+   * @param matrix matrix to set bits in
+   */
+  void fillTile(int tileX, int tileY, BitMatrix matrix);
+
+}
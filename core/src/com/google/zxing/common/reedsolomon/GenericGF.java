@@ -38,16 +38,18 @@ public final class GenericGF {
   public static final GenericGF AZTEC_DATA_8 = DATA_MATRIX_FIELD_256;
   public static final GenericGF MAXICODE_FIELD_64 = AZTEC_DATA_6;
 
-  private static final int INITIALIZATION_THRESHOLD = 0;
-
-  private int[] expTable;
-  private int[] logTable;
-  private GenericGFPoly zero;
-  private GenericGFPoly one;
+  // Fields this small also get a table of inverses, and a table of all products when first asked for
+  private static final int MAX_TABLE_SIZE = 256;
+
+  // Holds two periods of powers, so that the sum of two logarithms can index it directly
+  private final int[] expTable;
+  private final int[] logTable;
+  private final int[] inverseTable;
+  private volatile byte[] multiplyTable;
   private final int size;
   private final int primitive;
   private final int generatorBase;
-  private boolean initialized = false;
+  private volatile ReedSolomonEncoder encoder;
 
   /**
    * Create a representation of GF(size) using the given primitive polynomial.
@@ -61,20 +63,16 @@ public final class GenericGF {
    *  In most cases it should be 1, but for QR code it is 0.
    */
   public GenericGF(int primitive, int size, int b) {
-  	this.primitive = primitive;
+    this.primitive = primitive;
     this.size = size;
     this.generatorBase = b;
-    
-    if (size <= INITIALIZATION_THRESHOLD) {
-    	initialize();
-    }
-  }
 
-  private void initialize() {
-    expTable = new int[size];
+    // These tables are computed here, rather than when first needed, so that the shared fields above
+    // can be used from several threads at once
+    expTable = new int[2 * (size - 1)];
     logTable = new int[size];
     int x = 1;
-    for (int i = 0; i < size; i++) {
+    for (int i = 0; i < expTable.length; i++) {
       expTable[i] = x;
       x <<= 1; // x = x * 2; we're assuming the generator alpha is 2
       if (x >= size) {
@@ -86,61 +84,21 @@ public final class GenericGF {
       logTable[expTable[i]] = i;
     }
     // logTable[0] == 0 but this should never be used
-    zero = new GenericGFPoly(this, new int[]{0});
-    one = new GenericGFPoly(this, new int[]{1});
-    initialized = true;
-  }
-  
-  private void checkInit() {
-  	if (!initialized) {
-      initialize();
-    }
-  }
-  
-  GenericGFPoly getZero() {
-  	checkInit();
-  	
-    return zero;
-  }
-
-  GenericGFPoly getOne() {
-  	checkInit();
-  	
-    return one;
-  }
 
-  /**
-   * @return the monomial representing coefficient * x^degree
-   */
-  GenericGFPoly buildMonomial(int degree, int coefficient) {
-  	checkInit();
-  	
-    if (degree < 0) {
-      throw new IllegalArgumentException();
-    }
-    if (coefficient == 0) {
-      return zero;
+    if (size <= MAX_TABLE_SIZE) {
+      inverseTable = new int[size];
+      for (int a = 1; a < size; a++) {
+        inverseTable[a] = expTable[size - logTable[a] - 1];
+      }
+    } else {
+      inverseTable = null;
     }
-    int[] coefficients = new int[degree + 1];
-    coefficients[0] = coefficient;
-    return new GenericGFPoly(this, coefficients);
-  }
-
-  /**
-   * Implements both addition and subtraction -- they are the same in GF(size).
-   *
-   * @return sum/difference of a and b
-   */
-  static int addOrSubtract(int a, int b) {
-    return a ^ b;
   }
 
   /**
    * @return 2 to the power of a in GF(size)
    */
   int exp(int a) {
-  	checkInit();
-  	
     return expTable[a];
   }
 
@@ -148,8 +106,6 @@ public final class GenericGF {
    * @return base 2 log of a in GF(size)
    */
   int log(int a) {
-  	checkInit();
-  	
     if (a == 0) {
       throw new IllegalArgumentException();
     }
@@ -160,11 +116,12 @@ public final class GenericGF {
    * @return multiplicative inverse of a
    */
   int inverse(int a) {
-  	checkInit();
-  	
     if (a == 0) {
       throw new ArithmeticException();
     }
+    if (inverseTable != null) {
+      return inverseTable[a];
+    }
     return expTable[size - logTable[a] - 1];
   }
 
@@ -172,25 +129,70 @@ public final class GenericGF {
    * @return product of a and b in GF(size)
    */
   int multiply(int a, int b) {
-  	checkInit();
-
     if (a == 0 || b == 0) {
       return 0;
     }
-    return expTable[(logTable[a] + logTable[b]) % (size - 1)];
+    return expTable[logTable[a] + logTable[b]];
+  }
+
+  /**
+   * @return powers of 2, for exponents from 0 up to twice the order of the field's multiplicative group
+   */
+  int[] getExpTable() {
+    return expTable;
+  }
+
+  /**
+   * Builds the table of all products when first called, so that only the fields whose encoders and
+   * decoders are used pay for it: 64K for each 256-element field.
+   *
+   * @return table of all products, where the product of a and b is at index a * size + b, as an
+   *  unsigned byte, or null if this field is too large to have one
+   */
+  byte[] getMultiplyTable() {
+    if (size > MAX_TABLE_SIZE) {
+      return null;
+    }
+    byte[] theMultiplyTable = multiplyTable;
+    if (theMultiplyTable == null) {
+      // Two threads may both build one, which does no harm as they are equal
+      theMultiplyTable = new byte[size * size];
+      // Row and column 0 stay 0
+      for (int a = 1; a < size; a++) {
+        for (int b = 1; b < size; b++) {
+          theMultiplyTable[a * size + b] = (byte) expTable[logTable[a] + logTable[b]];
+        }
+      }
+      multiplyTable = theMultiplyTable;
+    }
+    return theMultiplyTable;
+  }
+
+  /**
+   * @return the encoder for this field shared by all callers, created when first needed
+   * @see ReedSolomonEncoder#forField(GenericGF)
+   */
+  ReedSolomonEncoder getEncoder() {
+    ReedSolomonEncoder theEncoder = encoder;
+    if (theEncoder == null) {
+      // Two threads may both create one, which does no harm as they are equivalent
+      theEncoder = new ReedSolomonEncoder(this);
+      encoder = theEncoder;
+    }
+    return theEncoder;
   }
 
   public int getSize() {
-  	return size;
+    return size;
   }
-  
+
   public int getGeneratorBase() {
     return generatorBase;
   }
-  
+
   @Override
   public String toString() {
     return "GF(0x" + Integer.toHexString(primitive) + ',' + size + ')';
   }
-  
+
 }
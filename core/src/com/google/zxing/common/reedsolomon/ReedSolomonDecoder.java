@@ -16,9 +16,23 @@
 
 package com.google.zxing.common.reedsolomon;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
 /**
  * <p>Implements Reed-Solomon decoding, as the name implies.</p>
  *
+ * <p>The syndromes of the received word are computed first, and if they are all zero, as they are
+ * for most blocks read from a clean image, there is nothing more to do. Otherwise the error locator
+ * polynomial is found with the Berlekamp-Massey algorithm, its roots, which give the error locations,
+ * with Chien's search, and the error magnitudes with Forney's formula. Polynomials are held in
+ * {@code int[]} arrays, lowest degree term first, which are kept and reused from one call to the
+ * next, so an instance must not be used from several threads at once.</p>
+ *
  * <p>The algorithm will not be explained here, but the following references were helpful
  * in creating this implementation:</p>
  *
@@ -27,8 +41,9 @@ package com.google.zxing.common.reedsolomon;
  * <a href="http://www.cs.cmu.edu/afs/cs.cmu.edu/project/pscico-guyb/realworld/www/rs_decode.ps">
  * "Decoding Reed-Solomon Codes"</a> (see discussion of Forney's Formula)</li>
  * <li>J.I. Hall. <a href="www.mth.msu.edu/~jhall/classes/codenotes/GRS.pdf">
- * "Chapter 5. Generalized Reed-Solomon Codes"</a>
- * (see discussion of Euclidean algorithm)</li>
+ * "Chapter 5. Generalized Reed-Solomon Codes"</a></li>
+ * <li>J.L. Massey. "Shift-Register Synthesis and BCH Decoding", IEEE Transactions on
+ * Information Theory, 1969</li>
  * </ul>
  *
  * <p>Much credit is due to William Rucklidge since portions of this code are an indirect
@@ -40,10 +55,24 @@ package com.google.zxing.common.reedsolomon;
  */
 public final class ReedSolomonDecoder {
 
+  // Blocks decoded by each task when decoding blocks on an executor. Correcting a block takes a few
+  // microseconds, so tasks of one block would spend much of that on handing over.
+  private static final int BLOCKS_PER_TASK = 4;
+
   private final GenericGF field;
+  // Scratch space, grown as needed for the number of error-correction codewords
+  private int[] syndromes;
+  private int[] errorLocator;
+  private int[] lastErrorLocator;
+  private int[] previousErrorLocator;
+  private int[] errorEvaluator;
+  // The logarithm of each term of the error locator in Chien's search, and its step
+  private int[] chienLogs;
+  private int[] chienSteps;
 
   public ReedSolomonDecoder(GenericGF field) {
     this.field = field;
+    ensureCapacity(0);
   }
 
   /**
@@ -56,131 +85,380 @@ public final class ReedSolomonDecoder {
    * @throws ReedSolomonException if decoding fails for any reason
    */
   public void decode(int[] received, int twoS) throws ReedSolomonException {
-    GenericGFPoly poly = new GenericGFPoly(field, received);
-    int[] syndromeCoefficients = new int[twoS];
-    boolean noError = true;
-    for (int i = 0; i < twoS; i++) {
-      int eval = poly.evaluateAt(field.exp(i + field.getGeneratorBase()));
-      syndromeCoefficients[syndromeCoefficients.length - 1 - i] = eval;
-      if (eval != 0) {
-        noError = false;
+    decode(received, twoS, null);
+  }
+
+  /**
+   * <p>Like {@link #decode(int[], int)}, but given the positions of codewords which are known to be
+   * unreliable, such as those read from modules which could not be sampled with confidence. These
+   * erasures need only one error-correction codeword each to correct, rather than two for an error
+   * at an unknown position, so up to twoS erasures, or any mix with 2 * errors + erasures &lt;= twoS,
+   * can be corrected. Erased codewords which turn out to be correct are left as they are.</p>
+   *
+   * @param received data and error-correction codewords
+   * @param twoS number of error-correction codewords available
+   * @param erasurePositions distinct indices into received of erased codewords, or null if none
+   * @throws ReedSolomonException if decoding fails for any reason
+   */
+  public void decode(int[] received, int twoS, int[] erasurePositions) throws ReedSolomonException {
+    ensureCapacity(twoS);
+    if (erasurePositions != null) {
+      if (erasurePositions.length > twoS) {
+        throw new ReedSolomonException("Too many erasures");
+      }
+      for (int position : erasurePositions) {
+        if (position < 0 || position >= received.length) {
+          throw new IllegalArgumentException("Erasure position out of range: " + position);
+        }
       }
     }
-    if (noError) {
-      return;
+    if (computeSyndromes(received, twoS)) {
+      correct(received, twoS, erasurePositions);
     }
-    GenericGFPoly syndrome = new GenericGFPoly(field, syndromeCoefficients);
-    GenericGFPoly[] sigmaOmega =
-        runEuclideanAlgorithm(field.buildMonomial(twoS, 1), syndrome, twoS);
-    GenericGFPoly sigma = sigmaOmega[0];
-    GenericGFPoly omega = sigmaOmega[1];
-    int[] errorLocations = findErrorLocations(sigma);
-    int[] errorMagnitudes = findErrorMagnitudes(omega, errorLocations);
-    for (int i = 0; i < errorLocations.length; i++) {
-      int position = received.length - 1 - field.log(errorLocations[i]);
-      if (position < 0) {
-        throw new ReedSolomonException("Bad error location");
+  }
+
+  /**
+   * <p>Decodes several blocks of received codewords, like calling {@link #decode(int[], int)} on each.
+   * When an executor is given, blocks are first checked in turn until one with errors is found, so a
+   * symbol without errors costs no more than computing its syndromes. That block and the rest are
+   * then decoded concurrently on the executor, a few to a task, each task with a decoder of its own.</p>
+   *
+   * @param blocks data and error-correction codewords of each block
+   * @param twoS number of error-correction codewords available in each block
+   * @param executor if not null, blocks are decoded on this executor. The calling thread blocks until
+   *  all are done.
+   * @throws ReedSolomonException if decoding any block fails
+   */
+  public void decode(int[][] blocks, int twoS, ExecutorService executor) throws ReedSolomonException {
+    int first = 0;
+    if (executor != null) {
+      ensureCapacity(twoS);
+      while (first < blocks.length && !computeSyndromes(blocks[first], twoS)) {
+        first++;
+      }
+    }
+    if (executor == null || blocks.length - first < 2 * BLOCKS_PER_TASK) {
+      // Not worth handing to other threads
+      for (int i = first; i < blocks.length; i++) {
+        decode(blocks[i], twoS);
       }
-      received[position] = GenericGF.addOrSubtract(received[position], errorMagnitudes[i]);
+      return;
+    }
+    Collection<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+    for (int start = first; start < blocks.length; start += BLOCKS_PER_TASK) {
+      int end = Math.min(start + BLOCKS_PER_TASK, blocks.length);
+      tasks.add(new BlockCorrection(field, blocks, start, end, twoS));
     }
+    runAll(executor, tasks);
   }
 
-  private GenericGFPoly[] runEuclideanAlgorithm(GenericGFPoly a, GenericGFPoly b, int R)
-      throws ReedSolomonException {
-    // Assume a's degree is >= b's
-    if (a.getDegree() < b.getDegree()) {
-      GenericGFPoly temp = a;
-      a = b;
-      b = temp;
+  private void correct(int[] received, int twoS, int[] erasurePositions) throws ReedSolomonException {
+    int numErasures = erasurePositions == null ? 0 : erasurePositions.length;
+    if (numErasures > 0) {
+      findErasureLocator(received.length, erasurePositions, twoS);
+    }
+    // The locator finds the erasures as well as the errors, which need two codewords each
+    int numErrors = findErrorLocator(twoS, numErasures);
+    if (2 * numErrors - numErasures > twoS) {
+      throw new ReedSolomonException("Too many errors");
     }
+    findErrorEvaluator(numErrors);
+    correctErrors(received, numErrors);
+  }
 
-    GenericGFPoly rLast = a;
-    GenericGFPoly r = b;
-    GenericGFPoly tLast = field.getZero();
-    GenericGFPoly t = field.getOne();
+  private static void runAll(ExecutorService executor, Collection<Callable<Object>> tasks)
+      throws ReedSolomonException {
+    try {
+      for (Future<Object> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new ReedSolomonException("Interrupted");
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof ReedSolomonException) {
+        throw (ReedSolomonException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
 
-    // Run Euclidean algorithm until r's degree is less than R/2
-    while (r.getDegree() >= R / 2) {
-      GenericGFPoly rLastLast = rLast;
-      GenericGFPoly tLastLast = tLast;
-      rLast = r;
-      tLast = t;
+  private void ensureCapacity(int twoS) {
+    if (syndromes == null || syndromes.length < twoS) {
+      syndromes = new int[twoS];
+      errorLocator = new int[twoS + 1];
+      lastErrorLocator = new int[twoS + 1];
+      previousErrorLocator = new int[twoS + 1];
+      errorEvaluator = new int[twoS];
+      chienLogs = new int[twoS];
+      chienSteps = new int[twoS];
+    }
+  }
 
-      // Divide rLastLast by rLast, with quotient in q and remainder in r
-      if (rLast.isZero()) {
-        // Oops, Euclidean algorithm already terminated?
-        throw new ReedSolomonException("r_{i-1} was zero");
+  /**
+   * Evaluates the received word, as a polynomial whose first coefficient is of the highest degree,
+   * at each root of the generator polynomial.
+   *
+   * @return true iff any syndrome is not zero, meaning there are errors
+   */
+  private boolean computeSyndromes(int[] received, int twoS) {
+    GenericGF field = this.field;
+    int[] syndromes = this.syndromes;
+    int generatorBase = field.getGeneratorBase();
+    byte[] multiplyTable = field.getMultiplyTable();
+    int i = 0;
+    if (multiplyTable != null) {
+      // Each step of evaluating a polynomial waits on the last, so evaluate at four points at once,
+      // which can overlap. All the multiplications for one point read one row of the table.
+      int size = field.getSize();
+      for (; i + 4 <= twoS; i += 4) {
+        int row0 = field.exp(i + generatorBase) * size;
+        int row1 = field.exp(i + 1 + generatorBase) * size;
+        int row2 = field.exp(i + 2 + generatorBase) * size;
+        int row3 = field.exp(i + 3 + generatorBase) * size;
+        int eval0 = 0;
+        int eval1 = 0;
+        int eval2 = 0;
+        int eval3 = 0;
+        for (int coefficient : received) {
+          eval0 = (multiplyTable[row0 + eval0] & 0xFF) ^ coefficient;
+          eval1 = (multiplyTable[row1 + eval1] & 0xFF) ^ coefficient;
+          eval2 = (multiplyTable[row2 + eval2] & 0xFF) ^ coefficient;
+          eval3 = (multiplyTable[row3 + eval3] & 0xFF) ^ coefficient;
+        }
+        syndromes[i] = eval0;
+        syndromes[i + 1] = eval1;
+        syndromes[i + 2] = eval2;
+        syndromes[i + 3] = eval3;
       }
-      r = rLastLast;
-      GenericGFPoly q = field.getZero();
-      int denominatorLeadingTerm = rLast.getCoefficient(rLast.getDegree());
-      int dltInverse = field.inverse(denominatorLeadingTerm);
-      while (r.getDegree() >= rLast.getDegree() && !r.isZero()) {
-        int degreeDiff = r.getDegree() - rLast.getDegree();
-        int scale = field.multiply(r.getCoefficient(r.getDegree()), dltInverse);
-        q = q.addOrSubtract(field.buildMonomial(degreeDiff, scale));
-        r = r.addOrSubtract(rLast.multiplyByMonomial(degreeDiff, scale));
+    }
+    for (; i < twoS; i++) {
+      int a = field.exp(i + generatorBase);
+      int eval = 0;
+      for (int coefficient : received) {
+        eval = field.multiply(a, eval) ^ coefficient;
+      }
+      syndromes[i] = eval;
+    }
+    for (i = 0; i < twoS; i++) {
+      if (syndromes[i] != 0) {
+        return true;
       }
+    }
+    return false;
+  }
 
-      t = q.multiply(tLast).addOrSubtract(tLastLast);
+  /**
+   * Leaves in errorLocator the product of (1 - X x) over the locations X of the erasures, whose
+   * roots are the inverses of the erasure locations.
+   */
+  private void findErasureLocator(int n, int[] erasurePositions, int twoS) {
+    GenericGF field = this.field;
+    int[] locator = errorLocator;
+    for (int i = 0; i <= twoS; i++) {
+      locator[i] = 0;
     }
+    locator[0] = 1;
+    int degree = 0;
+    for (int position : erasurePositions) {
+      int location = field.exp(n - 1 - position);
+      degree++;
+      for (int i = degree; i > 0; i--) {
+        locator[i] ^= field.multiply(location, locator[i - 1]);
+      }
+    }
+  }
+
+  /**
+   * Runs the Berlekamp-Massey algorithm over the syndromes, leaving in errorLocator the shortest
+   * polynomial, with constant term 1, which generates them. Its roots are the inverses of the
+   * error locations. Given erasures, errorLocator must already hold their locator, which the
+   * algorithm starts from, so that the result also has the erasures among its roots.
+   *
+   * @return the number of errors and erasures, which is the degree the error locator should have
+   */
+  private int findErrorLocator(int twoS, int numErasures) {
+    GenericGF field = this.field;
+    int[] syndromes = this.syndromes;
+    int[] locator = errorLocator;
+    int[] last = lastErrorLocator;
+    int[] previous = previousErrorLocator;
+    if (numErasures == 0) {
+      for (int i = 0; i <= twoS; i++) {
+        locator[i] = 0;
+      }
+      locator[0] = 1;
+    }
+    System.arraycopy(locator, 0, last, 0, twoS + 1);
+    int numErrors = numErasures;
+    // Shift of the last locator, and its discrepancy, from when numErrors last changed
+    int shift = 1;
+    int lastDiscrepancy = 1;
+    for (int n = numErasures; n < twoS; n++) {
+      int discrepancy = syndromes[n];
+      for (int i = 1; i <= numErrors; i++) {
+        discrepancy ^= field.multiply(locator[i], syndromes[n - i]);
+      }
+      if (discrepancy == 0) {
+        shift++;
+        continue;
+      }
+      int scale = field.multiply(discrepancy, field.inverse(lastDiscrepancy));
+      if (2 * numErrors <= n + numErasures) {
+        System.arraycopy(locator, 0, previous, 0, twoS + 1);
+        subtractShifted(locator, last, scale, shift, twoS);
+        // The old locator becomes the last one
+        int[] temp = last;
+        last = previous;
+        previous = temp;
+        numErrors = n + 1 - numErrors + numErasures;
+        lastDiscrepancy = discrepancy;
+        shift = 1;
+      } else {
+        subtractShifted(locator, last, scale, shift, twoS);
+        shift++;
+      }
+    }
+    lastErrorLocator = last;
+    previousErrorLocator = previous;
+    return numErrors;
+  }
 
-    int sigmaTildeAtZero = t.getCoefficient(0);
-    if (sigmaTildeAtZero == 0) {
-      throw new ReedSolomonException("sigmaTilde(0) was zero");
+  /**
+   * Subtracts (adds) scale * x^shift * b from a.
+   */
+  private void subtractShifted(int[] a, int[] b, int scale, int shift, int twoS) {
+    for (int i = 0; i + shift <= twoS; i++) {
+      if (b[i] != 0) {
+        a[i + shift] ^= field.multiply(scale, b[i]);
+      }
     }
+  }
 
-    int inverse = field.inverse(sigmaTildeAtZero);
-    GenericGFPoly sigma = t.multiply(inverse);
-    GenericGFPoly omega = r.multiply(inverse);
-    return new GenericGFPoly[]{sigma, omega};
+  /**
+   * Finds the error evaluator, the product of the syndrome and error locator polynomials, up to
+   * the degree below the number of errors.
+   */
+  private void findErrorEvaluator(int numErrors) {
+    GenericGF field = this.field;
+    int[] syndromes = this.syndromes;
+    int[] locator = errorLocator;
+    for (int i = 0; i < numErrors; i++) {
+      int coefficient = 0;
+      for (int j = 0; j <= i; j++) {
+        coefficient ^= field.multiply(syndromes[j], locator[i - j]);
+      }
+      errorEvaluator[i] = coefficient;
+    }
   }
 
-  private int[] findErrorLocations(GenericGFPoly errorLocator) throws ReedSolomonException {
-    // This is a direct application of Chien's search
-    int numErrors = errorLocator.getDegree();
-    if (numErrors == 1) { // shortcut
-      return new int[] { errorLocator.getCoefficient(1) };
+  /**
+   * Looks for the roots of the error locator among the inverses of the locations in the received
+   * word, by Chien's search, and corrects each error found using Forney's formula.
+   */
+  private void correctErrors(int[] received, int numErrors) throws ReedSolomonException {
+    GenericGF field = this.field;
+    int[] locator = errorLocator;
+    int[] expTable = field.getExpTable();
+    int n = received.length;
+    int order = field.getSize() - 1;
+    if (n > order) {
+      throw new ReedSolomonException("Too many codewords");
+    }
+    // The term of degree i at a^-e, for location e, is locator[i] * a^(-e * i), so its logarithm
+    // falls by i from one location to the next, and no multiplication is needed
+    int[] logs = chienLogs;
+    int[] steps = chienSteps;
+    int numTerms = 0;
+    for (int i = 1; i <= numErrors; i++) {
+      if (locator[i] != 0) {
+        // one step back, so that the first step leaves it at e = 0
+        logs[numTerms] = field.log(locator[i]) + i;
+        steps[numTerms] = i;
+        numTerms++;
+      }
     }
-    int[] result = new int[numErrors];
-    int e = 0;
-    for (int i = 1; i < field.getSize() && e < numErrors; i++) {
-      if (errorLocator.evaluateAt(i) == 0) {
-        result[e] = field.inverse(i);
-        e++;
+    int found = 0;
+    for (int e = 0; e < n && found < numErrors; e++) {
+      // The constant term is 1
+      int sum = 1;
+      for (int k = 0; k < numTerms; k++) {
+        int log = logs[k] - steps[k];
+        if (log < 0) {
+          log += order;
+        }
+        logs[k] = log;
+        sum ^= expTable[log];
+      }
+      if (sum == 0) {
+        received[n - 1 - e] ^= findErrorMagnitude(e, numErrors);
+        found++;
       }
     }
-    if (e != numErrors) {
+    if (found != numErrors) {
       throw new ReedSolomonException("Error locator degree does not match number of roots");
     }
-    return result;
   }
 
-  private int[] findErrorMagnitudes(GenericGFPoly errorEvaluator, int[] errorLocations) {
-    // This is directly applying Forney's Formula
-    int s = errorLocations.length;
-    int[] result = new int[s];
-    for (int i = 0; i < s; i++) {
-      int xiInverse = field.inverse(errorLocations[i]);
-      int denominator = 1;
-      for (int j = 0; j < s; j++) {
-        if (i != j) {
-          //denominator = field.multiply(denominator,
-          //    GenericGF.addOrSubtract(1, field.multiply(errorLocations[j], xiInverse)));
-          // Above should work but fails on some Apple and Linux JDKs due to a Hotspot bug.
-          // Below is a funny-looking workaround from Steven Parkes
-          int term = field.multiply(errorLocations[j], xiInverse);
-          int termPlus1 = (term & 0x1) == 0 ? term | 1 : term & ~1;
-          denominator = field.multiply(denominator, termPlus1);
-        }
-      }
-      result[i] = field.multiply(errorEvaluator.evaluateAt(xiInverse),
-          field.inverse(denominator));
-      if (field.getGeneratorBase() != 0) {
-        result[i] = field.multiply(result[i], xiInverse);
+  /**
+   * Applies Forney's formula to find the magnitude of the error at the given location.
+   */
+  private int findErrorMagnitude(int e, int numErrors) throws ReedSolomonException {
+    GenericGF field = this.field;
+    int order = field.getSize() - 1;
+    int xInverse = field.exp((order - e) % order);
+    // Evaluate the error evaluator, and the formal derivative of the error locator, which has only
+    // the odd terms of the locator, at the root
+    int evaluator = 0;
+    for (int i = numErrors - 1; i >= 0; i--) {
+      evaluator = field.multiply(evaluator, xInverse) ^ errorEvaluator[i];
+    }
+    int xInverseSquared = field.multiply(xInverse, xInverse);
+    int derivative = 0;
+    for (int i = numErrors - (numErrors & 0x01 ^ 0x01); i >= 1; i -= 2) {
+      derivative = field.multiply(derivative, xInverseSquared) ^ errorLocator[i];
+    }
+    if (derivative == 0) {
+      throw new ReedSolomonException("Error locator has a repeated root");
+    }
+    int magnitude = field.multiply(evaluator, field.inverse(derivative));
+    // which, unless the generator's roots start at a^1, is scaled by x^(1 - generatorBase)
+    int power = (e * (1 - field.getGeneratorBase())) % order;
+    if (power != 0) {
+      magnitude = field.multiply(magnitude, field.exp(power < 0 ? power + order : power));
+    }
+    return magnitude;
+  }
+
+  /**
+   * Decodes some blocks with a decoder of its own, since a decoder's scratch space can't be shared.
+   */
+  private static final class BlockCorrection implements Callable<Object> {
+
+    private final GenericGF field;
+    private final int[][] blocks;
+    private final int start;
+    private final int end;
+    private final int twoS;
+
+    BlockCorrection(GenericGF field, int[][] blocks, int start, int end, int twoS) {
+      this.field = field;
+      this.blocks = blocks;
+      this.start = start;
+      this.end = end;
+      this.twoS = twoS;
+    }
+
+    @Override
+    public Object call() throws ReedSolomonException {
+      ReedSolomonDecoder decoder = new ReedSolomonDecoder(field);
+      for (int i = start; i < end; i++) {
+        decoder.decode(blocks[i], twoS);
       }
+      return null;
     }
-    return result;
+
   }
 
 }
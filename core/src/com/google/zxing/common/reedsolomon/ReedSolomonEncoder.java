@@ -16,37 +16,69 @@
 
 package com.google.zxing.common.reedsolomon;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * <p>Implements Reed-Solomon enbcoding, as the name implies.</p>
  *
+ * <p>The error correction codewords are the remainder of dividing the message by the generator
+ * polynomial, computed a codeword at a time with a linear feedback shift register which is simply
+ * the end of the array being encoded. Generator polynomials are computed once for each degree and
+ * never change after, so an instance can be shared by any number of threads. See
+ * {@link #forField(GenericGF)} for the instance shared by everything encoding in a given field.</p>
+ *
  * @author Sean Owen
  * @author William Rucklidge
  */
 public final class ReedSolomonEncoder {
 
   private final GenericGF field;
-  private final List<GenericGFPoly> cachedGenerators;
+  // Element d holds the coefficients of the generator of degree d, highest degree first, or is
+  // null if not yet computed. Replaced, never modified, when a generator is added.
+  private volatile int[][] cachedGenerators;
 
   public ReedSolomonEncoder(GenericGF field) {
     this.field = field;
-    this.cachedGenerators = new ArrayList<GenericGFPoly>();
-    cachedGenerators.add(new GenericGFPoly(field, new int[]{1}));
+    this.cachedGenerators = new int[][] {{1}};
   }
 
-  private GenericGFPoly buildGenerator(int degree) {
-    if (degree >= cachedGenerators.size()) {
-      GenericGFPoly lastGenerator = cachedGenerators.get(cachedGenerators.size() - 1);
-      for (int d = cachedGenerators.size(); d <= degree; d++) {
-        GenericGFPoly nextGenerator = lastGenerator.multiply(
-            new GenericGFPoly(field, new int[] { 1, field.exp(d - 1 + field.getGeneratorBase()) }));
-        cachedGenerators.add(nextGenerator);
-        lastGenerator = nextGenerator;
+  /**
+   * @param field field to encode in
+   * @return an encoder for the field, shared with every other caller of this method
+   */
+  public static ReedSolomonEncoder forField(GenericGF field) {
+    return field.getEncoder();
+  }
+
+  private int[] buildGenerator(int degree) {
+    int[][] generators = cachedGenerators;
+    if (degree < generators.length && generators[degree] != null) {
+      return generators[degree];
+    }
+    synchronized (this) {
+      generators = cachedGenerators;
+      if (degree >= generators.length) {
+        int[][] newGenerators = new int[degree + 1][];
+        System.arraycopy(generators, 0, newGenerators, 0, generators.length);
+        generators = newGenerators;
       }
+      int last = degree;
+      while (generators[last] == null) {
+        last--;
+      }
+      for (int d = last + 1; d <= degree; d++) {
+        // Multiply the last generator by (x + a^(d - 1 + generatorBase))
+        int[] lastGenerator = generators[d - 1];
+        int root = field.exp(d - 1 + field.getGeneratorBase());
+        int[] generator = new int[d + 1];
+        generator[0] = 1;
+        for (int i = 1; i < d; i++) {
+          generator[i] = lastGenerator[i] ^ field.multiply(lastGenerator[i - 1], root);
+        }
+        generator[d] = field.multiply(lastGenerator[d - 1], root);
+        generators[d] = generator;
+      }
+      cachedGenerators = generators;
+      return generators[degree];
     }
-    return cachedGenerators.get(degree);
   }
 
   public void encode(int[] toEncode, int ecBytes) {
@@ -57,18 +89,33 @@ public final class ReedSolomonEncoder {
     if (dataBytes <= 0) {
       throw new IllegalArgumentException("No data bytes provided");
     }
-    GenericGFPoly generator = buildGenerator(ecBytes);
-    int[] infoCoefficients = new int[dataBytes];
-    System.arraycopy(toEncode, 0, infoCoefficients, 0, dataBytes);
-    GenericGFPoly info = new GenericGFPoly(field, infoCoefficients);
-    info = info.multiplyByMonomial(ecBytes, 1);
-    GenericGFPoly remainder = info.divide(generator)[1];
-    int[] coefficients = remainder.getCoefficients();
-    int numZeroCoefficients = ecBytes - coefficients.length;
-    for (int i = 0; i < numZeroCoefficients; i++) {
-      toEncode[dataBytes + i] = 0;
+    int[] generator = buildGenerator(ecBytes);
+    for (int i = dataBytes; i < toEncode.length; i++) {
+      toEncode[i] = 0;
+    }
+    byte[] multiplyTable = field.getMultiplyTable();
+    int size = field.getSize();
+    // The error correction codewords hold the remainder so far. Each data codeword is fed back
+    // through the generator and the remainder shifted along by one.
+    int last = toEncode.length - 1;
+    for (int i = 0; i < dataBytes; i++) {
+      int feedback = toEncode[i] ^ toEncode[dataBytes];
+      if (feedback == 0) {
+        System.arraycopy(toEncode, dataBytes + 1, toEncode, dataBytes, ecBytes - 1);
+        toEncode[last] = 0;
+      } else if (multiplyTable != null) {
+        int row = feedback * size;
+        for (int j = dataBytes; j < last; j++) {
+          toEncode[j] = toEncode[j + 1] ^ (multiplyTable[row + generator[j - dataBytes + 1]] & 0xFF);
+        }
+        toEncode[last] = multiplyTable[row + generator[ecBytes]] & 0xFF;
+      } else {
+        for (int j = dataBytes; j < last; j++) {
+          toEncode[j] = toEncode[j + 1] ^ field.multiply(feedback, generator[j - dataBytes + 1]);
+        }
+        toEncode[last] = field.multiply(feedback, generator[ecBytes]);
+      }
     }
-    System.arraycopy(coefficients, 0, toEncode, dataBytes + numZeroCoefficients, coefficients.length);
   }
 
 }
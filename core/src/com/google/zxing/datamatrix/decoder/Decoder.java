@@ -17,6 +17,7 @@
 package com.google.zxing.datamatrix.decoder;
 
 import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeHintType;
 import com.google.zxing.FormatException;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.common.DecoderResult;
@@ -24,6 +25,9 @@ import com.google.zxing.common.reedsolomon.GenericGF;
 import com.google.zxing.common.reedsolomon.ReedSolomonDecoder;
 import com.google.zxing.common.reedsolomon.ReedSolomonException;
 
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
 /**
  * <p>The main class which implements Data Matrix Code decoding -- as opposed to locating and extracting
  * the Data Matrix Code from an image.</p>
@@ -70,6 +74,21 @@ public final class Decoder {
    * @throws ChecksumException if error correction fails
    */
   public DecoderResult decode(BitMatrix bits) throws FormatException, ChecksumException {
+    return decode(bits, null);
+  }
+
+  /**
+   * <p>Decodes a Data Matrix Code represented as a {@link BitMatrix}. A 1 or "true" is taken
+   * to mean a black module.</p>
+   *
+   * @param bits booleans representing white/black Data Matrix Code modules
+   * @param hints decoding hints that should be used to influence decoding
+   * @return text and bytes encoded within the Data Matrix Code
+   * @throws FormatException if the Data Matrix Code cannot be decoded
+   * @throws ChecksumException if error correction fails
+   */
+  public DecoderResult decode(BitMatrix bits, Map<DecodeHintType,?> hints)
+      throws FormatException, ChecksumException {
 
     // Construct a parser and read version, error-correction level
     BitMatrixParser parser = new BitMatrixParser(bits);
@@ -90,11 +109,13 @@ public final class Decoder {
     byte[] resultBytes = new byte[totalBytes];
 
     // Error-correct and copy data blocks together into a stream of bytes
+    ExecutorService executor =
+        hints == null ? null : (ExecutorService) hints.get(DecodeHintType.ERROR_CORRECTION_EXECUTOR);
+    correctErrors(dataBlocks, executor);
     for (int j = 0; j < dataBlocksCount; j++) {
       DataBlock dataBlock = dataBlocks[j];
       byte[] codewordBytes = dataBlock.getCodewords();
       int numDataCodewords = dataBlock.getNumDataCodewords();
-      correctErrors(codewordBytes, numDataCodewords);
       for (int i = 0; i < numDataCodewords; i++) {
         // De-interlace data blocks.
         resultBytes[i * dataBlocksCount + j] = codewordBytes[i];
@@ -109,27 +130,38 @@ public final class Decoder {
    * <p>Given data and error-correction codewords received, possibly corrupted by errors, attempts to
    * correct the errors in-place using Reed-Solomon error correction.</p>
    *
-   * @param codewordBytes data and error correction codewords
-   * @param numDataCodewords number of codewords that are data bytes
+   * @param dataBlocks data and error correction codewords of each block
+   * @param executor if not null, blocks are corrected concurrently on this executor
    * @throws ChecksumException if error correction fails
    */
-  private void correctErrors(byte[] codewordBytes, int numDataCodewords) throws ChecksumException {
-    int numCodewords = codewordBytes.length;
-    // First read into an array of ints
-    int[] codewordsInts = new int[numCodewords];
-    for (int i = 0; i < numCodewords; i++) {
-      codewordsInts[i] = codewordBytes[i] & 0xFF;
+  private void correctErrors(DataBlock[] dataBlocks, ExecutorService executor) throws ChecksumException {
+    // First read into arrays of ints
+    int[][] codewordsInts = new int[dataBlocks.length][];
+    for (int j = 0; j < dataBlocks.length; j++) {
+      byte[] codewordBytes = dataBlocks[j].getCodewords();
+      int numCodewords = codewordBytes.length;
+      int[] ints = new int[numCodewords];
+      for (int i = 0; i < numCodewords; i++) {
+        ints[i] = codewordBytes[i] & 0xFF;
+      }
+      codewordsInts[j] = ints;
     }
-    int numECCodewords = codewordBytes.length - numDataCodewords;
+    // Every block has the same number of error correction codewords
+    int numECCodewords = dataBlocks[0].getCodewords().length - dataBlocks[0].getNumDataCodewords();
     try {
-      rsDecoder.decode(codewordsInts, numECCodewords);
+      rsDecoder.decode(codewordsInts, numECCodewords, executor);
     } catch (ReedSolomonException ignored) {
       throw ChecksumException.getChecksumInstance();
     }
-    // Copy back into array of bytes -- only need to worry about the bytes that were data
+    // Copy back into arrays of bytes -- only need to worry about the bytes that were data
     // We don't care about errors in the error-correction codewords
-    for (int i = 0; i < numDataCodewords; i++) {
-      codewordBytes[i] = (byte) codewordsInts[i];
+    for (int j = 0; j < dataBlocks.length; j++) {
+      byte[] codewordBytes = dataBlocks[j].getCodewords();
+      int[] ints = codewordsInts[j];
+      int numDataCodewords = dataBlocks[j].getNumDataCodewords();
+      for (int i = 0; i < numDataCodewords; i++) {
+        codewordBytes[i] = (byte) ints[i];
+      }
     }
   }
 
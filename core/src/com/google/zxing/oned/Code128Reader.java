@@ -24,6 +24,7 @@ import com.google.zxing.NotFoundException;
 import com.google.zxing.Result;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.common.BitArray;
+import com.google.zxing.common.RunLengthRow;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -166,46 +167,48 @@ public final class Code128Reader extends OneDReader {
   private static final int CODE_START_C = 105;
   private static final int CODE_STOP = 106;
 
-  private static int[] findStartPattern(BitArray row) throws NotFoundException {
-    int width = row.getSize();
+  // Reused from row to row, and decode to decode
+  private final int[] counters = new int[6];
+
+  private static int[] findStartPattern(BitArray row, int[] counters) throws NotFoundException {
     int rowOffset = row.getNextSet(0);
+    if (rowOffset >= row.getSize()) {
+      throw NotFoundException.getNotFoundInstance();
+    }
 
-    int counterPosition = 0;
-    int[] counters = new int[6];
-    int patternStart = rowOffset;
-    boolean isWhite = false;
     int patternLength = counters.length;
+    // Slide a window of runs along the row, starting with a black one, as in UPCEANReader
+    RunLengthRow runs = row.getRunLengthRow();
+    int runCount = runs.getRunCount();
+    int run = runs.getRunAt(rowOffset);
+    for (int i = 0; i < patternLength && run + i < runCount; i++) {
+      counters[i] = runs.getRunWidth(run + i);
+    }
+    int patternStart = rowOffset;
 
-    for (int i = rowOffset; i < width; i++) {
-      if (row.get(i) ^ isWhite) {
-        counters[counterPosition]++;
-      } else {
-        if (counterPosition == patternLength - 1) {
-          int bestVariance = MAX_AVG_VARIANCE;
-          int bestMatch = -1;
-          for (int startCode = CODE_START_A; startCode <= CODE_START_C; startCode++) {
-            int variance = patternMatchVariance(counters, CODE_PATTERNS[startCode],
-                MAX_INDIVIDUAL_VARIANCE);
-            if (variance < bestVariance) {
-              bestVariance = variance;
-              bestMatch = startCode;
-            }
-          }
-          // Look for whitespace before start pattern, >= 50% of width of start pattern
-          if (bestMatch >= 0 &&
-              row.isRange(Math.max(0, patternStart - (i - patternStart) / 2), patternStart, false)) {
-            return new int[]{patternStart, i, bestMatch};
-          }
-          patternStart += counters[0] + counters[1];
-          System.arraycopy(counters, 2, counters, 0, patternLength - 2);
-          counters[patternLength - 2] = 0;
-          counters[patternLength - 1] = 0;
-          counterPosition--;
-        } else {
-          counterPosition++;
+    while (run + patternLength < runCount) {
+      int patternEnd = runs.getRunStart(run + patternLength);
+      int bestVariance = MAX_AVG_VARIANCE;
+      int bestMatch = -1;
+      for (int startCode = CODE_START_A; startCode <= CODE_START_C; startCode++) {
+        int variance = patternMatchVariance(counters, CODE_PATTERNS[startCode],
+            MAX_INDIVIDUAL_VARIANCE);
+        if (variance < bestVariance) {
+          bestVariance = variance;
+          bestMatch = startCode;
         }
-        counters[counterPosition] = 1;
-        isWhite = !isWhite;
+      }
+      // Look for whitespace before start pattern, >= 50% of width of start pattern
+      if (bestMatch >= 0 &&
+          row.isRange(Math.max(0, patternStart - (patternEnd - patternStart) / 2), patternStart, false)) {
+        return new int[]{patternStart, patternEnd, bestMatch};
+      }
+      patternStart += counters[0] + counters[1];
+      run += 2;
+      System.arraycopy(counters, 2, counters, 0, patternLength - 2);
+      if (run + patternLength < runCount) {
+        counters[patternLength - 2] = runs.getRunWidth(run + patternLength - 2);
+        counters[patternLength - 1] = runs.getRunWidth(run + patternLength - 1);
       }
     }
     throw NotFoundException.getNotFoundInstance();
@@ -238,7 +241,8 @@ public final class Code128Reader extends OneDReader {
 
     boolean convertFNC1 = hints != null && hints.containsKey(DecodeHintType.ASSUME_GS1);
 
-    int[] startPatternInfo = findStartPattern(row);
+    int[] counters = this.counters;
+    int[] startPatternInfo = findStartPattern(row, counters);
     int startCode = startPatternInfo[2];
     int codeSet;
     switch (startCode) {
@@ -263,7 +267,6 @@ public final class Code128Reader extends OneDReader {
 
     int lastStart = startPatternInfo[0];
     int nextStart = startPatternInfo[1];
-    int[] counters = new int[6];
 
     int lastCode = 0;
     int code = 0;
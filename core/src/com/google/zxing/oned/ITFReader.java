@@ -24,6 +24,7 @@ import com.google.zxing.Result;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.common.BitArray;
 
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -55,6 +56,13 @@ public final class ITFReader extends OneDReader {
   // Stores the actual narrow line width of the image being decoded.
   private int narrowLineWidth = -1;
 
+  // Reused from row to row, and decode to decode
+  private final int[] startCounters = new int[START_PATTERN.length];
+  private final int[] endCounters = new int[END_PATTERN_REVERSED.length];
+  private final int[] counterDigitPair = new int[10];
+  private final int[] counterBlack = new int[5];
+  private final int[] counterWhite = new int[5];
+
   /**
    * Start/end guard pattern.
    *
@@ -129,7 +137,7 @@ public final class ITFReader extends OneDReader {
    * @param resultString {@link StringBuilder} to append decoded chars to
    * @throws NotFoundException if decoding could not complete successfully
    */
-  private static void decodeMiddle(BitArray row,
+  private void decodeMiddle(BitArray row,
                                    int payloadStart,
                                    int payloadEnd,
                                    StringBuilder resultString) throws NotFoundException {
@@ -139,9 +147,9 @@ public final class ITFReader extends OneDReader {
     // interleaved white lines for the second digit.
     // Therefore, need to scan 10 lines and then
     // split these into two arrays
-    int[] counterDigitPair = new int[10];
-    int[] counterBlack = new int[5];
-    int[] counterWhite = new int[5];
+    int[] counterDigitPair = this.counterDigitPair;
+    int[] counterBlack = this.counterBlack;
+    int[] counterWhite = this.counterWhite;
 
     while (payloadStart < payloadEnd) {
 
@@ -175,7 +183,7 @@ public final class ITFReader extends OneDReader {
    */
   int[] decodeStart(BitArray row) throws NotFoundException {
     int endStart = skipWhiteSpace(row);
-    int[] startPattern = findGuardPattern(row, endStart, START_PATTERN);
+    int[] startPattern = findGuardPattern(row, endStart, START_PATTERN, startCounters);
 
     // Determine the width of a narrow line in pixels. We can do this by
     // getting the width of the start pattern and dividing by 4 because its
@@ -250,7 +258,7 @@ public final class ITFReader extends OneDReader {
     row.reverse();
     try {
       int endStart = skipWhiteSpace(row);
-      int[] endPattern = findGuardPattern(row, endStart, END_PATTERN_REVERSED);
+      int[] endPattern = findGuardPattern(row, endStart, END_PATTERN_REVERSED, endCounters);
 
       // The start & end patterns must be pre/post fixed by a quiet zone. This
       // zone must be at least 10 times the width of a narrow line.
@@ -276,18 +284,20 @@ public final class ITFReader extends OneDReader {
    * @param rowOffset position to start search
    * @param pattern   pattern of counts of number of black and white pixels that are
    *                  being searched for as a pattern
+   * @param counters  array of counters, as long as pattern, to re-use
    * @return start/end horizontal offset of guard pattern, as an array of two
    *         ints
    * @throws NotFoundException if pattern is not found
    */
   private static int[] findGuardPattern(BitArray row,
                                         int rowOffset,
-                                        int[] pattern) throws NotFoundException {
+                                        int[] pattern,
+                                        int[] counters) throws NotFoundException {
 
     // TODO: This is very similar to implementation in UPCEANReader. Consider if they can be
     // merged to a single method.
     int patternLength = pattern.length;
-    int[] counters = new int[patternLength];
+    Arrays.fill(counters, 0, patternLength, 0);
     int width = row.getSize();
     boolean isWhite = false;
 
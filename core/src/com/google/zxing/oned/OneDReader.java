@@ -27,6 +27,8 @@ import com.google.zxing.Result;
 import com.google.zxing.ResultMetadataType;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.common.BitArray;
+import com.google.zxing.common.DecodeWorkspace;
+import com.google.zxing.common.RunLengthRow;
 
 import java.util.Arrays;
 import java.util.EnumMap;
@@ -107,7 +109,9 @@ public abstract class OneDReader implements Reader {
                           Map<DecodeHintType,?> hints) throws NotFoundException {
     int width = image.getWidth();
     int height = image.getHeight();
-    BitArray row = new BitArray(width);
+    DecodeWorkspace workspace = hints == null ? null :
+        (DecodeWorkspace) hints.get(DecodeHintType.DECODE_WORKSPACE);
+    BitArray row = workspace == null ? new BitArray(width) : workspace.getRow(width);
 
     int middle = height >> 1;
     boolean tryHarder = hints != null && hints.containsKey(DecodeHintType.TRY_HARDER);
@@ -199,45 +203,32 @@ public abstract class OneDReader implements Reader {
     if (start >= end) {
       throw NotFoundException.getNotFoundInstance();
     }
-    boolean isWhite = !row.get(start);
-    int counterPosition = 0;
-    int i = start;
-    while (i < end) {
-      if (row.get(i) ^ isWhite) { // that is, exactly one is true
-        counters[counterPosition]++;
-      } else {
-        counterPosition++;
-        if (counterPosition == numCounters) {
-          break;
-        } else {
-          counters[counterPosition] = 1;
-          isWhite = !isWhite;
-        }
-      }
-      i++;
+    // Each counter after the first is the width of a whole run of the row.
+    RunLengthRow runs = row.getRunLengthRow();
+    int run = runs.getRunAt(start);
+    counters[0] = runs.getRunEnd(run) - start;
+    int runCount = runs.getRunCount();
+    int counterPosition = 1;
+    while (counterPosition < numCounters && ++run < runCount) {
+      counters[counterPosition++] = runs.getRunWidth(run);
     }
-    // If we read fully the last section of pixels and filled up our counters -- or filled
-    // the last counter but ran off the side of the image, OK. Otherwise, a problem.
-    if (!(counterPosition == numCounters || (counterPosition == numCounters - 1 && i == end))) {
+    // If we filled all the counters, even if the last run ran off the side of the image, OK.
+    // Otherwise, a problem.
+    if (counterPosition < numCounters) {
       throw NotFoundException.getNotFoundInstance();
     }
   }
 
   protected static void recordPatternInReverse(BitArray row, int start, int[] counters)
       throws NotFoundException {
-    // This could be more efficient I guess
-    int numTransitionsLeft = counters.length;
-    boolean last = row.get(start);
-    while (start > 0 && numTransitionsLeft >= 0) {
-      if (row.get(--start) != last) {
-        numTransitionsLeft--;
-        last = !last;
-      }
-    }
-    if (numTransitionsLeft >= 0) {
+    // The pattern starts counters.length runs before the one containing start, and there must be
+    // at least one more run before it.
+    RunLengthRow runs = row.getRunLengthRow();
+    int run = runs.getRunAt(start) - counters.length;
+    if (run < 1) {
       throw NotFoundException.getNotFoundInstance();
     }
-    recordPattern(row, start + 1, counters);
+    recordPattern(row, runs.getRunStart(run), counters);
   }
 
   /**
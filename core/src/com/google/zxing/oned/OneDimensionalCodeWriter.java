@@ -87,9 +87,12 @@ public abstract class OneDimensionalCodeWriter implements Writer {
     BitMatrix output = new BitMatrix(outputWidth, outputHeight);
     for (int inputX = 0, outputX = leftPadding; inputX < inputWidth; inputX++, outputX += multiple) {
       if (code[inputX]) {
-        output.setRegion(outputX, 0, multiple, outputHeight);
+        output.setRegion(outputX, 0, multiple, 1);
       }
     }
+    for (int y = 1; y < outputHeight; y++) {
+      output.copyRow(0, y);
+    }
     return output;
   }
 
@@ -27,6 +27,7 @@ import com.google.zxing.ResultMetadataType;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.ResultPointCallback;
 import com.google.zxing.common.BitArray;
+import com.google.zxing.common.RunLengthRow;
 
 import java.util.Arrays;
 import java.util.Map;
@@ -277,32 +278,36 @@ public abstract class UPCEANReader extends OneDReader {
                                         int[] pattern,
                                         int[] counters) throws NotFoundException {
     int patternLength = pattern.length;
-    int width = row.getSize();
-    boolean isWhite = whiteFirst;
     rowOffset = whiteFirst ? row.getNextUnset(rowOffset) : row.getNextSet(rowOffset);
-    int counterPosition = 0;
+    if (rowOffset >= row.getSize()) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    // Slide a window of patternLength runs along the row, two runs at a time so that it always starts
+    // with the same color. Only a window followed by another run is complete.
+    RunLengthRow runs = row.getRunLengthRow();
+    int runCount = runs.getRunCount();
+    int run = runs.getRunAt(rowOffset);
+    if (run + patternLength >= runCount) {
+      throw NotFoundException.getNotFoundInstance();
+    }
+    counters[0] = runs.getRunEnd(run) - rowOffset;
+    for (int i = 1; i < patternLength; i++) {
+      counters[i] = runs.getRunWidth(run + i);
+    }
     int patternStart = rowOffset;
-    for (int x = rowOffset; x < width; x++) {
-      if (row.get(x) ^ isWhite) {
-        counters[counterPosition]++;
-      } else {
-        if (counterPosition == patternLength - 1) {
-          if (patternMatchVariance(counters, pattern, MAX_INDIVIDUAL_VARIANCE) < MAX_AVG_VARIANCE) {
-            return new int[]{patternStart, x};
-          }
-          patternStart += counters[0] + counters[1];
-          System.arraycopy(counters, 2, counters, 0, patternLength - 2);
-          counters[patternLength - 2] = 0;
-          counters[patternLength - 1] = 0;
-          counterPosition--;
-        } else {
-          counterPosition++;
-        }
-        counters[counterPosition] = 1;
-        isWhite = !isWhite;
+    while (true) {
+      if (patternMatchVariance(counters, pattern, MAX_INDIVIDUAL_VARIANCE) < MAX_AVG_VARIANCE) {
+        return new int[]{patternStart, runs.getRunStart(run + patternLength)};
+      }
+      run += 2;
+      if (run + patternLength >= runCount) {
+        throw NotFoundException.getNotFoundInstance();
       }
+      patternStart += counters[0] + counters[1];
+      System.arraycopy(counters, 2, counters, 0, patternLength - 2);
+      counters[patternLength - 2] = runs.getRunWidth(run + patternLength - 2);
+      counters[patternLength - 1] = runs.getRunWidth(run + patternLength - 1);
     }
-    throw NotFoundException.getNotFoundInstance();
   }
 
   /**
@@ -24,153 +24,268 @@ import com.google.zxing.ChecksumException;
  * <p>This <a href="http://en.wikipedia.org/wiki/Reed%E2%80%93Solomon_error_correction#Example">example</a>
  * is quite useful in understanding the algorithm.</p>
  *
+ * <p>As in {@link com.google.zxing.common.reedsolomon.ReedSolomonDecoder}, the syndromes are computed
+ * first, then the error locator by the Berlekamp-Massey algorithm, its roots by Chien's search, and
+ * the error magnitudes by Forney's formula. Polynomials are held in {@code int[]} arrays, lowest
+ * degree term first, which are kept and reused from one call to the next, so an instance must not
+ * be used from several threads at once. The syndromes and the Chien search, which take time
+ * proportional to the number of codewords, sum powers looked up by their logarithms, and so need
+ * no division.</p>
+ *
  * @author Sean Owen
  * @see com.google.zxing.common.reedsolomon.ReedSolomonDecoder
  */
 public final class ErrorCorrection {
 
   private final ModulusGF field;
+  // Scratch space, grown as needed for the number of error correction codewords
+  private int[] syndromes;
+  private int[] errorLocator;
+  private int[] lastErrorLocator;
+  private int[] previousErrorLocator;
+  private int[] errorEvaluator;
+  // and for the number of codewords, holding the logarithm and its step for each term of a sum
+  private int[] termLogs;
+  private int[] termSteps;
 
   public ErrorCorrection() {
     this.field = ModulusGF.PDF417_GF;
+    ensureCapacity(0, 0);
   }
 
+  /**
+   * <p>Decodes given set of received codewords, which include both data and error-correction
+   * codewords, correcting errors in-place.</p>
+   *
+   * @param received data and error-correction codewords
+   * @param numECCodewords number of error-correction codewords available
+   * @param erasures positions of any known erasures; not yet used
+   * @throws ChecksumException if decoding fails for any reason
+   */
   public void decode(int[] received,
                      int numECCodewords,
                      int[] erasures) throws ChecksumException {
+    ensureCapacity(numECCodewords, received.length);
+    if (!computeSyndromes(received, numECCodewords)) {
+      return;
+    }
+    int numErrors = findErrorLocator(numECCodewords);
+    if (2 * numErrors > numECCodewords) {
+      throw ChecksumException.getChecksumInstance();
+    }
+    findErrorEvaluator(numErrors);
+    correctErrors(received, numErrors);
+  }
 
-    ModulusPoly poly = new ModulusPoly(field, received);
-    int[] S = new int[numECCodewords];
+  private void ensureCapacity(int numECCodewords, int numCodewords) {
+    if (syndromes == null || syndromes.length < numECCodewords) {
+      syndromes = new int[numECCodewords];
+      errorLocator = new int[numECCodewords + 1];
+      lastErrorLocator = new int[numECCodewords + 1];
+      previousErrorLocator = new int[numECCodewords + 1];
+      errorEvaluator = new int[numECCodewords];
+    }
+    int numTerms = Math.max(numECCodewords + 1, numCodewords);
+    if (termLogs == null || termLogs.length < numTerms) {
+      termLogs = new int[numTerms];
+      termSteps = new int[numTerms];
+    }
+  }
+
+  /**
+   * Evaluates the received word, as a polynomial whose first coefficient is of the highest degree,
+   * at a^1 through a^numECCodewords.
+   *
+   * @return true iff any syndrome is not zero, meaning there are errors
+   */
+  private boolean computeSyndromes(int[] received, int numECCodewords) {
+    int[] expTable = field.getExpTable();
+    int[] logTable = field.getLogTable();
+    int modulus = field.getSize();
+    int order = modulus - 1;
+    int[] logs = termLogs;
+    int[] steps = termSteps;
+    int n = received.length;
+    // The term of codeword i at a^j is received[i] * a^(j * (n - 1 - i)), so its logarithm grows by
+    // n - 1 - i from one syndrome to the next
+    int numTerms = 0;
+    for (int i = 0; i < n; i++) {
+      int coefficient = received[i] % modulus;
+      if (coefficient != 0) {
+        logs[numTerms] = logTable[coefficient];
+        steps[numTerms] = (n - 1 - i) % order;
+        numTerms++;
+      }
+    }
     boolean error = false;
-    for (int i = numECCodewords; i > 0; i--) {
-      int eval = poly.evaluateAt(field.exp(i));
-      S[numECCodewords - i] = eval;
-      if (eval != 0) {
+    for (int j = 0; j < numECCodewords; j++) {
+      int sum = 0;
+      for (int k = 0; k < numTerms; k++) {
+        int log = logs[k] + steps[k];
+        if (log >= order) {
+          log -= order;
+        }
+        logs[k] = log;
+        sum += expTable[log];
+      }
+      int syndrome = sum % modulus;
+      syndromes[j] = syndrome;
+      if (syndrome != 0) {
         error = true;
       }
     }
+    return error;
+  }
 
-    if (error) {
-
-      ModulusPoly knownErrors = field.getOne();
-      for (int erasure : erasures) {
-        int b = field.exp(received.length - 1 - erasure);
-        // Add (1 - bx) term:
-        ModulusPoly term = new ModulusPoly(field, new int[] { field.subtract(0, b), 1 });
-        knownErrors = knownErrors.multiply(term);
+  /**
+   * Runs the Berlekamp-Massey algorithm over the syndromes, leaving in errorLocator the shortest
+   * polynomial, with constant term 1, which generates them. Its roots are the inverses of the
+   * error locations.
+   *
+   * @return the number of errors, which is the degree the error locator should have
+   */
+  private int findErrorLocator(int numECCodewords) {
+    ModulusGF field = this.field;
+    int[] syndromes = this.syndromes;
+    int[] locator = errorLocator;
+    int[] last = lastErrorLocator;
+    int[] previous = previousErrorLocator;
+    for (int i = 0; i <= numECCodewords; i++) {
+      locator[i] = 0;
+      last[i] = 0;
+    }
+    locator[0] = 1;
+    last[0] = 1;
+    int numErrors = 0;
+    // Shift of the last locator, and its discrepancy, from when numErrors last changed
+    int shift = 1;
+    int lastDiscrepancy = 1;
+    for (int n = 0; n < numECCodewords; n++) {
+      int discrepancy = syndromes[n];
+      for (int i = 1; i <= numErrors; i++) {
+        discrepancy = field.add(discrepancy, field.multiply(locator[i], syndromes[n - i]));
       }
-
-      ModulusPoly syndrome = new ModulusPoly(field, S);
-      //syndrome = syndrome.multiply(knownErrors);
-
-      ModulusPoly[] sigmaOmega =
-          runEuclideanAlgorithm(field.buildMonomial(numECCodewords, 1), syndrome, numECCodewords);
-      ModulusPoly sigma = sigmaOmega[0];
-      ModulusPoly omega = sigmaOmega[1];
-
-      //sigma = sigma.multiply(knownErrors);
-
-      int[] errorLocations = findErrorLocations(sigma);
-      int[] errorMagnitudes = findErrorMagnitudes(omega, sigma, errorLocations);
-
-      for (int i = 0; i < errorLocations.length; i++) {
-        int position = received.length - 1 - field.log(errorLocations[i]);
-        if (position < 0) {
-          throw ChecksumException.getChecksumInstance();
-        }
-        received[position] = field.subtract(received[position], errorMagnitudes[i]);
+      if (discrepancy == 0) {
+        shift++;
+        continue;
+      }
+      int scale = field.multiply(discrepancy, field.inverse(lastDiscrepancy));
+      if (2 * numErrors <= n) {
+        System.arraycopy(locator, 0, previous, 0, numECCodewords + 1);
+        subtractShifted(locator, last, scale, shift, numECCodewords);
+        // The old locator becomes the last one
+        int[] temp = last;
+        last = previous;
+        previous = temp;
+        numErrors = n + 1 - numErrors;
+        lastDiscrepancy = discrepancy;
+        shift = 1;
+      } else {
+        subtractShifted(locator, last, scale, shift, numECCodewords);
+        shift++;
       }
     }
+    lastErrorLocator = last;
+    previousErrorLocator = previous;
+    return numErrors;
   }
 
-  private ModulusPoly[] runEuclideanAlgorithm(ModulusPoly a, ModulusPoly b, int R)
-      throws ChecksumException {
-    // Assume a's degree is >= b's
-    if (a.getDegree() < b.getDegree()) {
-      ModulusPoly temp = a;
-      a = b;
-      b = temp;
+  /**
+   * Subtracts scale * x^shift * b from a.
+   */
+  private void subtractShifted(int[] a, int[] b, int scale, int shift, int numECCodewords) {
+    for (int i = 0; i + shift <= numECCodewords; i++) {
+      if (b[i] != 0) {
+        a[i + shift] = field.subtract(a[i + shift], field.multiply(scale, b[i]));
+      }
     }
+  }
 
-    ModulusPoly rLast = a;
-    ModulusPoly r = b;
-    ModulusPoly tLast = field.getZero();
-    ModulusPoly t = field.getOne();
-
-    // Run Euclidean algorithm until r's degree is less than R/2
-    while (r.getDegree() >= R / 2) {
-      ModulusPoly rLastLast = rLast;
-      ModulusPoly tLastLast = tLast;
-      rLast = r;
-      tLast = t;
+  /**
+   * Finds the error evaluator, the product of the syndrome and error locator polynomials, up to
+   * the degree below the number of errors.
+   */
+  private void findErrorEvaluator(int numErrors) {
+    ModulusGF field = this.field;
+    int[] syndromes = this.syndromes;
+    int[] locator = errorLocator;
+    for (int i = 0; i < numErrors; i++) {
+      int coefficient = 0;
+      for (int j = 0; j <= i; j++) {
+        coefficient = field.add(coefficient, field.multiply(syndromes[j], locator[i - j]));
+      }
+      errorEvaluator[i] = coefficient;
+    }
+  }
 
-      // Divide rLastLast by rLast, with quotient in q and remainder in r
-      if (rLast.isZero()) {
-        // Oops, Euclidean algorithm already terminated?
-        throw ChecksumException.getChecksumInstance();
+  /**
+   * Looks for the roots of the error locator among the inverses of the locations in the received
+   * word, by Chien's search, and corrects each error found using Forney's formula.
+   */
+  private void correctErrors(int[] received, int numErrors) throws ChecksumException {
+    int[] expTable = field.getExpTable();
+    int[] logTable = field.getLogTable();
+    int modulus = field.getSize();
+    int order = modulus - 1;
+    int n = received.length;
+    if (n > order) {
+      throw ChecksumException.getChecksumInstance();
+    }
+    // The term of degree i at a^-e, for location e, has logarithm log(locator[i]) - e * i
+    int[] logs = termLogs;
+    int[] steps = termSteps;
+    int numTerms = 0;
+    for (int i = 1; i <= numErrors; i++) {
+      if (errorLocator[i] != 0) {
+        // one step back, so that the first step leaves it at e = 0
+        logs[numTerms] = logTable[errorLocator[i]] + i;
+        steps[numTerms] = i;
+        numTerms++;
       }
-      r = rLastLast;
-      ModulusPoly q = field.getZero();
-      int denominatorLeadingTerm = rLast.getCoefficient(rLast.getDegree());
-      int dltInverse = field.inverse(denominatorLeadingTerm);
-      while (r.getDegree() >= rLast.getDegree() && !r.isZero()) {
-        int degreeDiff = r.getDegree() - rLast.getDegree();
-        int scale = field.multiply(r.getCoefficient(r.getDegree()), dltInverse);
-        q = q.add(field.buildMonomial(degreeDiff, scale));
-        r = r.subtract(rLast.multiplyByMonomial(degreeDiff, scale));
+    }
+    int found = 0;
+    for (int e = 0; e < n && found < numErrors; e++) {
+      // The constant term is 1
+      int sum = 1;
+      for (int k = 0; k < numTerms; k++) {
+        int log = logs[k] - steps[k];
+        if (log < 0) {
+          log += order;
+        }
+        logs[k] = log;
+        sum += expTable[log];
+      }
+      if (sum % modulus == 0) {
+        int position = n - 1 - e;
+        received[position] = field.subtract(received[position], findErrorMagnitude(e, numErrors));
+        found++;
       }
-
-      t = q.multiply(tLast).subtract(tLastLast).negative();
     }
-
-    int sigmaTildeAtZero = t.getCoefficient(0);
-    if (sigmaTildeAtZero == 0) {
+    if (found != numErrors) {
       throw ChecksumException.getChecksumInstance();
     }
-
-    int inverse = field.inverse(sigmaTildeAtZero);
-    ModulusPoly sigma = t.multiply(inverse);
-    ModulusPoly omega = r.multiply(inverse);
-    return new ModulusPoly[]{sigma, omega};
   }
 
-  private int[] findErrorLocations(ModulusPoly errorLocator) throws ChecksumException {
-    // This is a direct application of Chien's search
-    int numErrors = errorLocator.getDegree();
-    int[] result = new int[numErrors];
-    int e = 0;
-    for (int i = 1; i < field.getSize() && e < numErrors; i++) {
-      if (errorLocator.evaluateAt(i) == 0) {
-        result[e] = field.inverse(i);
-        e++;
-      }
+  /**
+   * Applies Forney's formula to find the magnitude of the error at the given location.
+   */
+  private int findErrorMagnitude(int e, int numErrors) throws ChecksumException {
+    ModulusGF field = this.field;
+    int order = field.getSize() - 1;
+    int xInverse = field.exp((order - e) % order);
+    int evaluator = 0;
+    for (int i = numErrors - 1; i >= 0; i--) {
+      evaluator = field.add(field.multiply(evaluator, xInverse), errorEvaluator[i]);
+    }
+    // The formal derivative of the error locator has coefficients i * locator[i]
+    int derivative = 0;
+    for (int i = numErrors; i >= 1; i--) {
+      derivative = field.add(field.multiply(derivative, xInverse), field.multiply(i, errorLocator[i]));
     }
-    if (e != numErrors) {
+    if (derivative == 0) {
       throw ChecksumException.getChecksumInstance();
     }
-    return result;
+    return field.multiply(field.subtract(0, evaluator), field.inverse(derivative));
   }
 
-  private int[] findErrorMagnitudes(ModulusPoly errorEvaluator,
-                                    ModulusPoly errorLocator,
-                                    int[] errorLocations) {
-    int errorLocatorDegree = errorLocator.getDegree();
-    int[] formalDerivativeCoefficients = new int[errorLocatorDegree];
-    for (int i = 1; i <= errorLocatorDegree; i++) {
-      formalDerivativeCoefficients[errorLocatorDegree - i] =
-          field.multiply(i, errorLocator.getCoefficient(i));
-    }
-    ModulusPoly formalDerivative = new ModulusPoly(field, formalDerivativeCoefficients);
-
-    // This is directly applying Forney's Formula
-    int s = errorLocations.length;
-    int[] result = new int[s];
-    for (int i = 0; i < s; i++) {
-      int xiInverse = field.inverse(errorLocations[i]);
-      int numerator = field.subtract(0, errorEvaluator.evaluateAt(xiInverse));
-      int denominator = field.inverse(formalDerivative.evaluateAt(xiInverse));
-      result[i] = field.multiply(numerator, denominator);
-    }
-    return result;
-  }
 }
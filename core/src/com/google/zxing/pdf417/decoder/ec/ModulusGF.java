@@ -26,56 +26,41 @@ public final class ModulusGF {
 
   public static final ModulusGF PDF417_GF = new ModulusGF(929, 3);
 
+  // Holds two periods of powers, so that the sum of two logarithms can index it directly
   private final int[] expTable;
   private final int[] logTable;
-  private final ModulusPoly zero;
-  private final ModulusPoly one;
   private final int modulus;
 
   public ModulusGF(int modulus, int generator) {
     this.modulus = modulus;
-    expTable = new int[modulus];
+    int order = modulus - 1;
+    expTable = new int[2 * order];
     logTable = new int[modulus];
     int x = 1;
-    for (int i = 0; i < modulus; i++) {
+    for (int i = 0; i < expTable.length; i++) {
       expTable[i] = x;
       x = (x * generator) % modulus;
     }
-    for (int i = 0; i < modulus-1; i++) {
+    for (int i = 0; i < order; i++) {
       logTable[expTable[i]] = i;
     }
     // logTable[0] == 0 but this should never be used
-    zero = new ModulusPoly(this, new int[]{0});
-    one = new ModulusPoly(this, new int[]{1});
-  }
-
-
-  ModulusPoly getZero() {
-    return zero;
-  }
-
-  ModulusPoly getOne() {
-    return one;
-  }
-
-  ModulusPoly buildMonomial(int degree, int coefficient) {
-    if (degree < 0) {
-      throw new IllegalArgumentException();
-    }
-    if (coefficient == 0) {
-      return zero;
-    }
-    int[] coefficients = new int[degree + 1];
-    coefficients[0] = coefficient;
-    return new ModulusPoly(this, coefficients);
   }
 
+  /**
+   * @return a + b, for a and b in the field
+   */
   int add(int a, int b) {
-    return (a + b) % modulus;
+    int sum = a + b;
+    return sum >= modulus ? sum - modulus : sum;
   }
 
+  /**
+   * @return a - b, for a and b in the field
+   */
   int subtract(int a, int b) {
-    return (modulus + a - b) % modulus;
+    int difference = a - b;
+    return difference < 0 ? difference + modulus : difference;
   }
 
   int exp(int a) {
@@ -100,7 +85,21 @@ public final class ModulusGF {
     if (a == 0 || b == 0) {
       return 0;
     }
-    return expTable[(logTable[a] + logTable[b]) % (modulus - 1)];
+    return expTable[logTable[a] + logTable[b]];
+  }
+
+  /**
+   * @return powers of the generator, from a^0 up to a^(2 * (size - 1) - 1)
+   */
+  int[] getExpTable() {
+    return expTable;
+  }
+
+  /**
+   * @return logarithms of the field's nonzero elements
+   */
+  int[] getLogTable() {
+    return logTable;
   }
 
   int getSize() {
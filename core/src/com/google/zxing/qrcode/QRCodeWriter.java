@@ -109,9 +109,13 @@ public final class QRCodeWriter implements Writer {
       // Write the contents of this row of the barcode
       for (int inputX = 0, outputX = leftPadding; inputX < inputWidth; inputX++, outputX += multiple) {
         if (input.get(inputX, inputY) == 1) {
-          output.setRegion(outputX, outputY, multiple, multiple);
+          output.setRegion(outputX, outputY, multiple, 1);
         }
       }
+      // and repeat it to make the modules square
+      for (int i = 1; i < multiple; i++) {
+        output.copyRow(outputY, outputY + i);
+      }
     }
 
     return output;
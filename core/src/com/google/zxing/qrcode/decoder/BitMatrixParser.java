@@ -149,6 +149,19 @@ final class BitMatrixParser {
    * @throws FormatException if the exact number of bytes expected is not read
    */
   byte[] readCodewords() throws FormatException {
+    return readCodewords(null, null);
+  }
+
+  /**
+   * <p>Like {@link #readCodewords()}, but also counts the uncertain modules of each codeword.</p>
+   *
+   * @param uncertainBits modules which could not be sampled with confidence, or null
+   * @param uncertainCounts set to the number of uncertain modules of each codeword; may be null if
+   *  uncertainBits is
+   * @return bytes encoded within the QR Code
+   * @throws FormatException if the exact number of bytes expected is not read
+   */
+  byte[] readCodewords(BitMatrix uncertainBits, byte[] uncertainCounts) throws FormatException {
 
     FormatInformation formatInfo = readFormatInformation();
     Version version = readVersion();
@@ -165,6 +178,7 @@ final class BitMatrixParser {
     byte[] result = new byte[version.getTotalCodewords()];
     int resultOffset = 0;
     int currentByte = 0;
+    int currentByteUncertain = 0;
     int bitsRead = 0;
     // Read columns in pairs, from right to left
     for (int j = dimension - 1; j > 0; j -= 2) {
@@ -185,8 +199,15 @@ final class BitMatrixParser {
             if (bitMatrix.get(j - col, i)) {
               currentByte |= 1;
             }
+            if (uncertainBits != null && uncertainBits.get(j - col, i)) {
+              currentByteUncertain++;
+            }
             // If we've made a whole byte, save it off
             if (bitsRead == 8) {
+              if (currentByteUncertain > 0) {
+                uncertainCounts[resultOffset] = (byte) currentByteUncertain;
+                currentByteUncertain = 0;
+              }
               result[resultOffset++] = (byte) currentByte;
               bitsRead = 0;
               currentByte = 0;
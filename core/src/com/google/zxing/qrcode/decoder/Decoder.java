@@ -26,6 +26,7 @@ import com.google.zxing.common.reedsolomon.ReedSolomonDecoder;
 import com.google.zxing.common.reedsolomon.ReedSolomonException;
 
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * <p>The main class which implements QR Code decoding -- as opposed to locating and extracting
@@ -82,14 +83,38 @@ public final class Decoder {
    */
   public DecoderResult decode(BitMatrix bits, Map<DecodeHintType,?> hints)
       throws FormatException, ChecksumException {
+    return decode(bits, null, hints);
+  }
+
+  /**
+   * <p>Decodes a QR Code represented as a {@link BitMatrix}, treating codewords read from uncertain
+   * modules as erasures in error correction.</p>
+   *
+   * @param bits booleans representing white/black QR Code modules
+   * @param uncertainBits modules which could not be sampled with confidence, or null
+   * @return text and bytes encoded within the QR Code
+   * @throws FormatException if the QR Code cannot be decoded
+   * @throws ChecksumException if error correction fails
+   */
+  public DecoderResult decode(BitMatrix bits, BitMatrix uncertainBits, Map<DecodeHintType,?> hints)
+      throws FormatException, ChecksumException {
 
     // Construct a parser and read version, error-correction level
     BitMatrixParser parser = new BitMatrixParser(bits);
     Version version = parser.readVersion();
     ErrorCorrectionLevel ecLevel = parser.readFormatInformation().getErrorCorrectionLevel();
 
-    // Read codewords
-    byte[] codewords = parser.readCodewords();
+    // Read codewords, and how many of their modules are uncertain
+    byte[] codewords;
+    DataBlock[] uncertainCountBlocks = null;
+    if (uncertainBits == null) {
+      codewords = parser.readCodewords();
+    } else {
+      byte[] uncertainCounts = new byte[version.getTotalCodewords()];
+      codewords = parser.readCodewords(uncertainBits, uncertainCounts);
+      // Separated into blocks just like the codewords
+      uncertainCountBlocks = DataBlock.getDataBlocks(uncertainCounts, version, ecLevel);
+    }
     // Separate into data blocks
     DataBlock[] dataBlocks = DataBlock.getDataBlocks(codewords, version, ecLevel);
 
@@ -102,10 +127,12 @@ public final class Decoder {
     int resultOffset = 0;
 
     // Error-correct and copy data blocks together into a stream of bytes
+    ExecutorService executor =
+        hints == null ? null : (ExecutorService) hints.get(DecodeHintType.ERROR_CORRECTION_EXECUTOR);
+    correctErrors(dataBlocks, uncertainCountBlocks, executor);
     for (DataBlock dataBlock : dataBlocks) {
       byte[] codewordBytes = dataBlock.getCodewords();
       int numDataCodewords = dataBlock.getNumDataCodewords();
-      correctErrors(codewordBytes, numDataCodewords);
       for (int i = 0; i < numDataCodewords; i++) {
         resultBytes[resultOffset++] = codewordBytes[i];
       }
@@ -119,28 +146,95 @@ public final class Decoder {
    * <p>Given data and error-correction codewords received, possibly corrupted by errors, attempts to
    * correct the errors in-place using Reed-Solomon error correction.</p>
    *
-   * @param codewordBytes data and error correction codewords
-   * @param numDataCodewords number of codewords that are data bytes
+   * @param dataBlocks data and error correction codewords of each block
+   * @param uncertainCountBlocks for each block, the number of uncertain modules of each codeword, or null
+   * @param executor if not null, blocks are corrected concurrently on this executor
    * @throws ChecksumException if error correction fails
    */
-  private void correctErrors(byte[] codewordBytes, int numDataCodewords) throws ChecksumException {
-    int numCodewords = codewordBytes.length;
-    // First read into an array of ints
-    int[] codewordsInts = new int[numCodewords];
-    for (int i = 0; i < numCodewords; i++) {
-      codewordsInts[i] = codewordBytes[i] & 0xFF;
+  private void correctErrors(DataBlock[] dataBlocks, DataBlock[] uncertainCountBlocks, ExecutorService executor)
+      throws ChecksumException {
+    // First read into arrays of ints
+    int[][] codewordsInts = new int[dataBlocks.length][];
+    for (int j = 0; j < dataBlocks.length; j++) {
+      byte[] codewordBytes = dataBlocks[j].getCodewords();
+      int numCodewords = codewordBytes.length;
+      int[] ints = new int[numCodewords];
+      for (int i = 0; i < numCodewords; i++) {
+        ints[i] = codewordBytes[i] & 0xFF;
+      }
+      codewordsInts[j] = ints;
     }
-    int numECCodewords = codewordBytes.length - numDataCodewords;
+    // Every block has the same number of error correction codewords
+    int numECCodewords = dataBlocks[0].getCodewords().length - dataBlocks[0].getNumDataCodewords();
     try {
-      rsDecoder.decode(codewordsInts, numECCodewords);
+      if (uncertainCountBlocks == null) {
+        rsDecoder.decode(codewordsInts, numECCodewords, executor);
+      } else {
+        for (int j = 0; j < dataBlocks.length; j++) {
+          correctErrors(codewordsInts[j], numECCodewords, uncertainCountBlocks[j].getCodewords());
+        }
+      }
     } catch (ReedSolomonException ignored) {
       throw ChecksumException.getChecksumInstance();
     }
-    // Copy back into array of bytes -- only need to worry about the bytes that were data
+    // Copy back into arrays of bytes -- only need to worry about the bytes that were data
     // We don't care about errors in the error-correction codewords
-    for (int i = 0; i < numDataCodewords; i++) {
-      codewordBytes[i] = (byte) codewordsInts[i];
+    for (int j = 0; j < dataBlocks.length; j++) {
+      byte[] codewordBytes = dataBlocks[j].getCodewords();
+      int[] ints = codewordsInts[j];
+      int numDataCodewords = dataBlocks[j].getNumDataCodewords();
+      for (int i = 0; i < numDataCodewords; i++) {
+        codewordBytes[i] = (byte) ints[i];
+      }
+    }
+  }
+
+  /**
+   * Corrects one block, treating as erasures first the codewords with at least two uncertain
+   * modules, then those with any. If that fails, the erasures may have been wrong rather than the
+   * block beyond repair, so it is finally corrected without them.
+   */
+  private void correctErrors(int[] codewordsInts, int numECCodewords, byte[] uncertainCounts)
+      throws ReedSolomonException {
+    int[] received = codewordsInts.clone();
+    int lastNumErasures = 0;
+    for (int minUncertain = 2; minUncertain >= 1; minUncertain--) {
+      int numErasures = 0;
+      for (byte uncertainCount : uncertainCounts) {
+        if (uncertainCount >= minUncertain) {
+          numErasures++;
+        }
+      }
+      if (numErasures == lastNumErasures || numErasures >= numECCodewords) {
+        continue;
+      }
+      lastNumErasures = numErasures;
+      int[] erasurePositions = new int[numErasures];
+      int count = 0;
+      for (int i = 0; i < uncertainCounts.length; i++) {
+        if (uncertainCounts[i] >= minUncertain) {
+          erasurePositions[count++] = i;
+        }
+      }
+      try {
+        rsDecoder.decode(codewordsInts, numECCodewords, erasurePositions);
+        // A correction which used every error correction codeword would fit any received word at
+        // all, so accept only those with at least one to spare
+        int numErrors = 0;
+        for (int i = 0; i < received.length; i++) {
+          if (uncertainCounts[i] < minUncertain && codewordsInts[i] != received[i]) {
+            numErrors++;
+          }
+        }
+        if (2 * numErrors + numErasures < numECCodewords) {
+          return;
+        }
+      } catch (ReedSolomonException ignored) {
+        // try with fewer
+      }
+      System.arraycopy(received, 0, codewordsInts, 0, received.length);
     }
+    rsDecoder.decode(codewordsInts, numECCodewords);
   }
 
 }
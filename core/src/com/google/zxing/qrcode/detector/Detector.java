@@ -22,6 +22,7 @@ import com.google.zxing.NotFoundException;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.ResultPointCallback;
 import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.DecodeWorkspace;
 import com.google.zxing.common.DetectorResult;
 import com.google.zxing.common.GridSampler;
 import com.google.zxing.common.PerspectiveTransform;
@@ -40,6 +41,8 @@ public class Detector {
 
   private final BitMatrix image;
   private ResultPointCallback resultPointCallback;
+  private DecodeWorkspace workspace;
+  private boolean useErasures;
 
   public Detector(BitMatrix image) {
     this.image = image;
@@ -75,6 +78,8 @@ public class Detector {
 
     resultPointCallback = hints == null ? null :
         (ResultPointCallback) hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+    workspace = hints == null ? null : (DecodeWorkspace) hints.get(DecodeHintType.DECODE_WORKSPACE);
+    useErasures = hints != null && hints.containsKey(DecodeHintType.USE_ERASURES);
 
     FinderPatternFinder finder = new FinderPatternFinder(image, resultPointCallback);
     FinderPatternInfo info = finder.find(hints);
@@ -129,7 +134,8 @@ public class Detector {
     PerspectiveTransform transform =
         createTransform(topLeft, topRight, bottomLeft, alignmentPattern, dimension);
 
-    BitMatrix bits = sampleGrid(image, transform, dimension);
+    BitMatrix uncertainBits = useErasures ? new BitMatrix(dimension) : null;
+    BitMatrix bits = sampleGrid(image, transform, dimension, workspace, uncertainBits);
 
     ResultPoint[] points;
     if (alignmentPattern == null) {
@@ -137,7 +143,7 @@ public class Detector {
     } else {
       points = new ResultPoint[]{bottomLeft, topLeft, topRight, alignmentPattern};
     }
-    return new DetectorResult(bits, points);
+    return new DetectorResult(bits, points, uncertainBits);
   }
 
   private static PerspectiveTransform createTransform(ResultPoint topLeft,
@@ -184,10 +190,12 @@ public class Detector {
 
   private static BitMatrix sampleGrid(BitMatrix image,
                                       PerspectiveTransform transform,
-                                      int dimension) throws NotFoundException {
+                                      int dimension,
+                                      DecodeWorkspace workspace,
+                                      BitMatrix uncertainBits) throws NotFoundException {
 
     GridSampler sampler = GridSampler.getInstance();
-    return sampler.sampleGrid(image, dimension, dimension, transform);
+    return sampler.sampleGrid(image, dimension, dimension, transform, workspace, uncertainBits);
   }
 
   /**
@@ -20,12 +20,11 @@ import com.google.zxing.DecodeHintType;
 import com.google.zxing.NotFoundException;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.ResultPointCallback;
+import com.google.zxing.common.BitArray;
 import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.RunLengthRow;
 
-import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
@@ -33,6 +32,9 @@ import java.util.Map;
  * <p>This class attempts to find finder patterns in a QR Code. Finder patterns are the square
  * markers at three corners of a QR Code.</p>
  *
+ * <p>Rows are read as runs of black and white pixels, and the possible centers found are kept in
+ * parallel arrays of primitives, so that a search allocates little besides the patterns it returns.</p>
+ *
  * <p>This class is thread-safe but not reentrant. Each thread must allocate its own object.
  *
  * @author Sean Owen
@@ -45,7 +47,12 @@ public class FinderPatternFinder {
   private static final int INTEGER_MATH_SHIFT = 8;
 
   private final BitMatrix image;
-  private final List<FinderPattern> possibleCenters;
+  // The possible centers found so far, in the order they were first found
+  private int numPossibleCenters;
+  private float[] possibleCenterX;
+  private float[] possibleCenterY;
+  private float[] possibleCenterModuleSize;
+  private int[] possibleCenterCount;
   private boolean hasSkipped;
   private final int[] crossCheckStateCount;
   private final ResultPointCallback resultPointCallback;
@@ -61,7 +68,10 @@ public class FinderPatternFinder {
 
   public FinderPatternFinder(BitMatrix image, ResultPointCallback resultPointCallback) {
     this.image = image;
-    this.possibleCenters = new ArrayList<FinderPattern>();
+    this.possibleCenterX = new float[8];
+    this.possibleCenterY = new float[8];
+    this.possibleCenterModuleSize = new float[8];
+    this.possibleCenterCount = new int[8];
     this.crossCheckStateCount = new int[5];
     this.resultPointCallback = resultPointCallback;
   }
@@ -70,10 +80,22 @@ public class FinderPatternFinder {
     return image;
   }
 
+  /**
+   * @return a new list of the possible centers found so far, in the order they were first found
+   */
   protected final List<FinderPattern> getPossibleCenters() {
+    List<FinderPattern> possibleCenters = new ArrayList<FinderPattern>(numPossibleCenters);
+    for (int index = 0; index < numPossibleCenters; index++) {
+      possibleCenters.add(getPossibleCenter(index));
+    }
     return possibleCenters;
   }
 
+  private FinderPattern getPossibleCenter(int index) {
+    return new FinderPattern(possibleCenterX[index], possibleCenterY[index],
+        possibleCenterModuleSize[index], possibleCenterCount[index]);
+  }
+
   final FinderPatternInfo find(Map<DecodeHintType,?> hints) throws NotFoundException {
     boolean tryHarder = hints != null && hints.containsKey(DecodeHintType.TRY_HARDER);
     int maxI = image.getHeight();
@@ -92,80 +114,54 @@ public class FinderPatternFinder {
 
     boolean done = false;
     int[] stateCount = new int[5];
+    BitArray row = new BitArray(maxJ);
     for (int i = iSkip - 1; i < maxI && !done; i += iSkip) {
-      // Get a row of black/white values
-      stateCount[0] = 0;
-      stateCount[1] = 0;
-      stateCount[2] = 0;
-      stateCount[3] = 0;
-      stateCount[4] = 0;
+      // Get a row of black/white runs. stateCount holds the widths of the last few, starting from
+      // a black one, and whenever it holds five they are checked as a pattern
+      RunLengthRow runs = image.getRow(i, row).getRunLengthRow();
+      int runCount = runs.getRunCount();
       int currentState = 0;
-      for (int j = 0; j < maxJ; j++) {
-        if (image.get(j, i)) {
-          // Black pixel
-          if ((currentState & 1) == 1) { // Counting white pixels
-            currentState++;
-          }
-          stateCount[currentState]++;
-        } else { // White pixel
-          if ((currentState & 1) == 0) { // Counting black pixels
-            if (currentState == 4) { // A winner?
-              if (foundPatternCross(stateCount)) { // Yes
-                boolean confirmed = handlePossibleCenter(stateCount, i, j);
-                if (confirmed) {
-                  // Start examining every other line. Checking each line turned out to be too
-                  // expensive and didn't improve performance.
-                  iSkip = 2;
-                  if (hasSkipped) {
-                    done = haveMultiplyConfirmedCenters();
-                  } else {
-                    int rowSkip = findRowSkip();
-                    if (rowSkip > stateCount[2]) {
-                      // Skip rows between row of lower confirmed center
-                      // and top of presumed third confirmed center
-                      // but back up a bit to get a full chance of detecting
-                      // it, entire width of center of finder pattern
-
-                      // Skip by rowSkip, but back off by stateCount[2] (size of last center
-                      // of pattern we saw) to be conservative, and also back off by iSkip which
-                      // is about to be re-added
-                      i += rowSkip - stateCount[2] - iSkip;
-                      j = maxJ - 1;
-                    }
-                  }
-                } else {
-                  stateCount[0] = stateCount[2];
-                  stateCount[1] = stateCount[3];
-                  stateCount[2] = stateCount[4];
-                  stateCount[3] = 1;
-                  stateCount[4] = 0;
-                  currentState = 3;
-                  continue;
-                }
-                // Clear state to start looking again
-                currentState = 0;
-                stateCount[0] = 0;
-                stateCount[1] = 0;
-                stateCount[2] = 0;
-                stateCount[3] = 0;
-                stateCount[4] = 0;
-              } else { // No, shift counts back by two
-                stateCount[0] = stateCount[2];
-                stateCount[1] = stateCount[3];
-                stateCount[2] = stateCount[4];
-                stateCount[3] = 1;
-                stateCount[4] = 0;
-                currentState = 3;
-              }
-            } else {
-              stateCount[++currentState]++;
+      for (int run = 0; run < runCount; run++) {
+        if (currentState == 0 && !runs.isBlack(run)) {
+          continue;
+        }
+        stateCount[currentState++] = runs.getRunWidth(run);
+        int j = runs.getRunEnd(run);
+        if (currentState < 5 || j == maxJ) {
+          // A pattern ending at the edge is checked after the row
+          continue;
+        }
+        if (foundPatternCross(stateCount) && handlePossibleCenter(stateCount, i, j)) {
+          // Clear state to start looking again
+          currentState = 0;
+          // Start examining every other line. Checking each line turned out to be too
+          // expensive and didn't improve performance.
+          iSkip = 2;
+          if (hasSkipped) {
+            done = haveMultiplyConfirmedCenters();
+          } else {
+            int rowSkip = findRowSkip();
+            if (rowSkip > stateCount[2]) {
+              // Skip rows between row of lower confirmed center
+              // and top of presumed third confirmed center
+              // but back up a bit to get a full chance of detecting
+              // it, entire width of center of finder pattern
+
+              // Skip by rowSkip, but back off by stateCount[2] (size of last center
+              // of pattern we saw) to be conservative, and also back off by iSkip which
+              // is about to be re-added
+              i += rowSkip - stateCount[2] - iSkip;
+              break;
             }
-          } else { // Counting white pixels
-            stateCount[currentState]++;
           }
+        } else { // No, shift counts back by two
+          stateCount[0] = stateCount[2];
+          stateCount[1] = stateCount[3];
+          stateCount[2] = stateCount[4];
+          currentState = 3;
         }
       }
-      if (foundPatternCross(stateCount)) {
+      if (currentState == 5 && foundPatternCross(stateCount)) {
         boolean confirmed = handlePossibleCenter(stateCount, i, maxJ);
         if (confirmed) {
           iSkip = stateCount[0];
@@ -227,11 +223,24 @@ public class FinderPatternFinder {
     return crossCheckStateCount;
   }
 
+  /**
+   * @param maxTotal most pixels that a pattern may span
+   * @param modules number of modules in a run
+   * @return most pixels that such a run may have, if the pattern is to be within the variance
+   *         allowed by {@link #foundPatternCross(int[])}, which is under 1.5 times its share
+   */
+  private static int maxRunCount(int maxTotal, int modules) {
+    return (3 * modules * maxTotal - 1) / 14;
+  }
+
   /**
    * <p>After a horizontal scan finds a potential finder pattern, this method
    * "cross-checks" by scanning down vertically through the center of the possible
    * finder pattern to see if the same proportion is detected.</p>
    *
+   * <p>A run too long to fit the proportions of a pattern of about the original size is
+   * rejected as soon as it is seen, rather than after counting the whole pattern.</p>
+   *
    * @param startI row where a finder pattern was detected
    * @param centerJ center of the section that appears to cross a finder pattern
    * @param maxCount maximum reasonable number of modules that should be
@@ -245,52 +254,59 @@ public class FinderPatternFinder {
     int maxI = image.getHeight();
     int[] stateCount = getCrossCheckStateCount();
 
+    // A pattern more than 40% larger than the original is rejected below
+    int maxTotal = (7 * originalStateCountTotal - 1) / 5;
+    int maxCenterCount = maxRunCount(maxTotal, 3);
+    // Runs above the center may have up to maxCount pixels, and those below one fewer
+    int maxUpperCount = Math.min(maxCount, maxRunCount(maxTotal, 1));
+    int maxLowerCount = Math.min(maxCount - 1, maxRunCount(maxTotal, 1));
+
     // Start counting up from center
     int i = startI;
-    while (i >= 0 && image.get(centerJ, i)) {
+    while (i >= 0 && image.get(centerJ, i) && stateCount[2] <= maxCenterCount) {
       stateCount[2]++;
       i--;
     }
-    if (i < 0) {
+    if (i < 0 || stateCount[2] > maxCenterCount) {
       return Float.NaN;
     }
-    while (i >= 0 && !image.get(centerJ, i) && stateCount[1] <= maxCount) {
+    while (i >= 0 && !image.get(centerJ, i) && stateCount[1] <= maxUpperCount) {
       stateCount[1]++;
       i--;
     }
     // If already too many modules in this state or ran off the edge:
-    if (i < 0 || stateCount[1] > maxCount) {
+    if (i < 0 || stateCount[1] > maxUpperCount) {
       return Float.NaN;
     }
-    while (i >= 0 && image.get(centerJ, i) && stateCount[0] <= maxCount) {
+    while (i >= 0 && image.get(centerJ, i) && stateCount[0] <= maxUpperCount) {
       stateCount[0]++;
       i--;
     }
-    if (stateCount[0] > maxCount) {
+    if (stateCount[0] > maxUpperCount) {
       return Float.NaN;
     }
 
     // Now also count down from center
     i = startI + 1;
-    while (i < maxI && image.get(centerJ, i)) {
+    while (i < maxI && image.get(centerJ, i) && stateCount[2] <= maxCenterCount) {
       stateCount[2]++;
       i++;
     }
-    if (i == maxI) {
+    if (i == maxI || stateCount[2] > maxCenterCount) {
       return Float.NaN;
     }
-    while (i < maxI && !image.get(centerJ, i) && stateCount[3] < maxCount) {
+    while (i < maxI && !image.get(centerJ, i) && stateCount[3] <= maxLowerCount) {
       stateCount[3]++;
       i++;
     }
-    if (i == maxI || stateCount[3] >= maxCount) {
+    if (i == maxI || stateCount[3] > maxLowerCount) {
       return Float.NaN;
     }
-    while (i < maxI && image.get(centerJ, i) && stateCount[4] < maxCount) {
+    while (i < maxI && image.get(centerJ, i) && stateCount[4] <= maxLowerCount) {
       stateCount[4]++;
       i++;
     }
-    if (stateCount[4] >= maxCount) {
+    if (stateCount[4] > maxLowerCount) {
       return Float.NaN;
     }
 
@@ -317,49 +333,55 @@ public class FinderPatternFinder {
     int maxJ = image.getWidth();
     int[] stateCount = getCrossCheckStateCount();
 
+    // A pattern more than 20% larger than the original is rejected below
+    int maxTotal = (6 * originalStateCountTotal - 1) / 5;
+    int maxCenterCount = maxRunCount(maxTotal, 3);
+    int maxLeftCount = Math.min(maxCount, maxRunCount(maxTotal, 1));
+    int maxRightCount = Math.min(maxCount - 1, maxRunCount(maxTotal, 1));
+
     int j = startJ;
-    while (j >= 0 && image.get(j, centerI)) {
+    while (j >= 0 && image.get(j, centerI) && stateCount[2] <= maxCenterCount) {
       stateCount[2]++;
       j--;
     }
-    if (j < 0) {
+    if (j < 0 || stateCount[2] > maxCenterCount) {
       return Float.NaN;
     }
-    while (j >= 0 && !image.get(j, centerI) && stateCount[1] <= maxCount) {
+    while (j >= 0 && !image.get(j, centerI) && stateCount[1] <= maxLeftCount) {
       stateCount[1]++;
       j--;
     }
-    if (j < 0 || stateCount[1] > maxCount) {
+    if (j < 0 || stateCount[1] > maxLeftCount) {
       return Float.NaN;
     }
-    while (j >= 0 && image.get(j, centerI) && stateCount[0] <= maxCount) {
+    while (j >= 0 && image.get(j, centerI) && stateCount[0] <= maxLeftCount) {
       stateCount[0]++;
       j--;
     }
-    if (stateCount[0] > maxCount) {
+    if (stateCount[0] > maxLeftCount) {
       return Float.NaN;
     }
 
     j = startJ + 1;
-    while (j < maxJ && image.get(j, centerI)) {
+    while (j < maxJ && image.get(j, centerI) && stateCount[2] <= maxCenterCount) {
       stateCount[2]++;
       j++;
     }
-    if (j == maxJ) {
+    if (j == maxJ || stateCount[2] > maxCenterCount) {
       return Float.NaN;
     }
-    while (j < maxJ && !image.get(j, centerI) && stateCount[3] < maxCount) {
+    while (j < maxJ && !image.get(j, centerI) && stateCount[3] <= maxRightCount) {
       stateCount[3]++;
       j++;
     }
-    if (j == maxJ || stateCount[3] >= maxCount) {
+    if (j == maxJ || stateCount[3] > maxRightCount) {
       return Float.NaN;
     }
-    while (j < maxJ && image.get(j, centerI) && stateCount[4] < maxCount) {
+    while (j < maxJ && image.get(j, centerI) && stateCount[4] <= maxRightCount) {
       stateCount[4]++;
       j++;
     }
-    if (stateCount[4] >= maxCount) {
+    if (stateCount[4] > maxRightCount) {
       return Float.NaN;
     }
 
@@ -401,20 +423,18 @@ public class FinderPatternFinder {
       if (!Float.isNaN(centerJ)) {
         float estimatedModuleSize = (float) stateCountTotal / 7.0f;
         boolean found = false;
-        for (int index = 0; index < possibleCenters.size(); index++) {
-          FinderPattern center = possibleCenters.get(index);
+        for (int index = 0; index < numPossibleCenters; index++) {
           // Look for about the same center and module size:
-          if (center.aboutEquals(estimatedModuleSize, centerI, centerJ)) {
-            possibleCenters.set(index, center.combineEstimate(centerI, centerJ, estimatedModuleSize));
+          if (aboutEquals(index, estimatedModuleSize, centerI, centerJ)) {
+            combineEstimate(index, centerI, centerJ, estimatedModuleSize);
             found = true;
             break;
           }
         }
         if (!found) {
-          FinderPattern point = new FinderPattern(centerJ, centerI, estimatedModuleSize);
-          possibleCenters.add(point);
+          addPossibleCenter(centerJ, centerI, estimatedModuleSize);
           if (resultPointCallback != null) {
-            resultPointCallback.foundPossibleResultPoint(point);
+            resultPointCallback.foundPossibleResultPoint(getPossibleCenter(numPossibleCenters - 1));
           }
         }
         return true;
@@ -423,6 +443,58 @@ public class FinderPatternFinder {
     return false;
   }
 
+  /**
+   * <p>Determines if a possible center "about equals" a finder pattern at the stated
+   * position and size -- meaning, it is at nearly the same center with nearly the same size.</p>
+   */
+  private boolean aboutEquals(int index, float moduleSize, float i, float j) {
+    if (Math.abs(i - possibleCenterY[index]) <= moduleSize &&
+        Math.abs(j - possibleCenterX[index]) <= moduleSize) {
+      float estimatedModuleSize = possibleCenterModuleSize[index];
+      float moduleSizeDiff = Math.abs(moduleSize - estimatedModuleSize);
+      return moduleSizeDiff <= 1.0f || moduleSizeDiff <= estimatedModuleSize;
+    }
+    return false;
+  }
+
+  /**
+   * Combines a possible center's current estimate of a finder pattern position and module size
+   * with a new estimate, replacing it with a weighted average based on count.
+   */
+  private void combineEstimate(int index, float i, float j, float newModuleSize) {
+    int count = possibleCenterCount[index];
+    int combinedCount = count + 1;
+    possibleCenterX[index] = (count * possibleCenterX[index] + j) / combinedCount;
+    possibleCenterY[index] = (count * possibleCenterY[index] + i) / combinedCount;
+    possibleCenterModuleSize[index] =
+        (count * possibleCenterModuleSize[index] + newModuleSize) / combinedCount;
+    possibleCenterCount[index] = combinedCount;
+  }
+
+  private void addPossibleCenter(float x, float y, float estimatedModuleSize) {
+    int index = numPossibleCenters;
+    if (index == possibleCenterCount.length) {
+      int capacity = index << 1;
+      possibleCenterX = grow(possibleCenterX, capacity);
+      possibleCenterY = grow(possibleCenterY, capacity);
+      possibleCenterModuleSize = grow(possibleCenterModuleSize, capacity);
+      int[] newCount = new int[capacity];
+      System.arraycopy(possibleCenterCount, 0, newCount, 0, index);
+      possibleCenterCount = newCount;
+    }
+    possibleCenterX[index] = x;
+    possibleCenterY[index] = y;
+    possibleCenterModuleSize[index] = estimatedModuleSize;
+    possibleCenterCount[index] = 1;
+    numPossibleCenters++;
+  }
+
+  private static float[] grow(float[] array, int capacity) {
+    float[] newArray = new float[capacity];
+    System.arraycopy(array, 0, newArray, 0, array.length);
+    return newArray;
+  }
+
   /**
    * @return number of rows we could safely skip during scanning, based on the first
    *         two finder patterns that have been located. In some cases their position will
@@ -430,15 +502,14 @@ public class FinderPatternFinder {
    *         down in the image.
    */
   private int findRowSkip() {
-    int max = possibleCenters.size();
-    if (max <= 1) {
+    if (numPossibleCenters <= 1) {
       return 0;
     }
-    FinderPattern firstConfirmedCenter = null;
-    for (FinderPattern center : possibleCenters) {
-      if (center.getCount() >= CENTER_QUORUM) {
-        if (firstConfirmedCenter == null) {
-          firstConfirmedCenter = center;
+    int firstConfirmedCenter = -1;
+    for (int index = 0; index < numPossibleCenters; index++) {
+      if (possibleCenterCount[index] >= CENTER_QUORUM) {
+        if (firstConfirmedCenter < 0) {
+          firstConfirmedCenter = index;
         } else {
           // We have two confirmed centers
           // How far down can we skip before resuming looking for the next
@@ -446,8 +517,8 @@ public class FinderPatternFinder {
           // difference in the x / y coordinates of the two centers.
           // This is the case where you find top left last.
           hasSkipped = true;
-          return (int) (Math.abs(firstConfirmedCenter.getX() - center.getX()) -
-              Math.abs(firstConfirmedCenter.getY() - center.getY())) / 2;
+          return (int) (Math.abs(possibleCenterX[firstConfirmedCenter] - possibleCenterX[index]) -
+              Math.abs(possibleCenterY[firstConfirmedCenter] - possibleCenterY[index])) / 2;
         }
       }
     }
@@ -462,11 +533,11 @@ public class FinderPatternFinder {
   private boolean haveMultiplyConfirmedCenters() {
     int confirmedCount = 0;
     float totalModuleSize = 0.0f;
-    int max = possibleCenters.size();
-    for (FinderPattern pattern : possibleCenters) {
-      if (pattern.getCount() >= CENTER_QUORUM) {
+    int max = numPossibleCenters;
+    for (int index = 0; index < max; index++) {
+      if (possibleCenterCount[index] >= CENTER_QUORUM) {
         confirmedCount++;
-        totalModuleSize += pattern.getEstimatedModuleSize();
+        totalModuleSize += possibleCenterModuleSize[index];
       }
     }
     if (confirmedCount < 3) {
@@ -478,8 +549,8 @@ public class FinderPatternFinder {
     // 5% of the total module size estimates, it's too much.
     float average = totalModuleSize / (float) max;
     float totalDeviation = 0.0f;
-    for (FinderPattern pattern : possibleCenters) {
-      totalDeviation += Math.abs(pattern.getEstimatedModuleSize() - average);
+    for (int index = 0; index < max; index++) {
+      totalDeviation += Math.abs(possibleCenterModuleSize[index] - average);
     }
     return totalDeviation <= 0.05f * totalModuleSize;
   }
@@ -492,93 +563,102 @@ public class FinderPatternFinder {
    */
   private FinderPattern[] selectBestPatterns() throws NotFoundException {
 
-    int startSize = possibleCenters.size();
+    int startSize = numPossibleCenters;
     if (startSize < 3) {
       // Couldn't find enough finder patterns
       throw NotFoundException.getNotFoundInstance();
     }
 
+    // Indices of the candidates still in the running, in order of preference once sorted
+    int[] candidates = new int[startSize];
+    for (int index = 0; index < startSize; index++) {
+      candidates[index] = index;
+    }
+    int size = startSize;
+
     // Filter outlier possibilities whose module size is too different
     if (startSize > 3) {
       // But we can only afford to do so if we have at least 4 possibilities to choose from
       float totalModuleSize = 0.0f;
       float square = 0.0f;
-      for (FinderPattern center : possibleCenters) {
-        float size = center.getEstimatedModuleSize();
-        totalModuleSize += size;
-        square += size * size;
+      for (int index = 0; index < startSize; index++) {
+        float moduleSize = possibleCenterModuleSize[index];
+        totalModuleSize += moduleSize;
+        square += moduleSize * moduleSize;
       }
       float average = totalModuleSize / (float) startSize;
       float stdDev = (float) Math.sqrt(square / startSize - average * average);
 
-      Collections.sort(possibleCenters, new FurthestFromAverageComparator(average));
+      sortFurthestFromAverage(candidates, size, average);
 
       float limit = Math.max(0.2f * average, stdDev);
 
-      for (int i = 0; i < possibleCenters.size() && possibleCenters.size() > 3; i++) {
-        FinderPattern pattern = possibleCenters.get(i);
-        if (Math.abs(pattern.getEstimatedModuleSize() - average) > limit) {
-          possibleCenters.remove(i);
+      for (int i = 0; i < size && size > 3; i++) {
+        if (Math.abs(possibleCenterModuleSize[candidates[i]] - average) > limit) {
+          size--;
+          System.arraycopy(candidates, i + 1, candidates, i, size - i);
           i--;
         }
       }
     }
 
-    if (possibleCenters.size() > 3) {
+    if (size > 3) {
       // Throw away all but those first size candidate points we found.
 
       float totalModuleSize = 0.0f;
-      for (FinderPattern possibleCenter : possibleCenters) {
-        totalModuleSize += possibleCenter.getEstimatedModuleSize();
+      for (int i = 0; i < size; i++) {
+        totalModuleSize += possibleCenterModuleSize[candidates[i]];
       }
 
-      float average = totalModuleSize / (float) possibleCenters.size();
+      float average = totalModuleSize / (float) size;
 
-      Collections.sort(possibleCenters, new CenterComparator(average));
-
-      possibleCenters.subList(3, possibleCenters.size()).clear();
+      sortByCount(candidates, size, average);
     }
 
     return new FinderPattern[]{
-        possibleCenters.get(0),
-        possibleCenters.get(1),
-        possibleCenters.get(2)
+        getPossibleCenter(candidates[0]),
+        getPossibleCenter(candidates[1]),
+        getPossibleCenter(candidates[2])
     };
   }
 
   /**
-   * <p>Orders by furthest from average</p>
+   * <p>Orders the first size candidates by furthest from average, keeping the order of those
+   * which are equally far.</p>
    */
-  private static final class FurthestFromAverageComparator implements Comparator<FinderPattern>, Serializable {
-    private final float average;
-    private FurthestFromAverageComparator(float f) {
-      average = f;
-    }
-    @Override
-    public int compare(FinderPattern center1, FinderPattern center2) {
-      float dA = Math.abs(center2.getEstimatedModuleSize() - average);
-      float dB = Math.abs(center1.getEstimatedModuleSize() - average);
-      return dA < dB ? -1 : dA == dB ? 0 : 1;
+  private void sortFurthestFromAverage(int[] candidates, int size, float average) {
+    for (int i = 1; i < size; i++) {
+      int candidate = candidates[i];
+      float deviation = Math.abs(possibleCenterModuleSize[candidate] - average);
+      int j = i - 1;
+      while (j >= 0 && Math.abs(possibleCenterModuleSize[candidates[j]] - average) < deviation) {
+        candidates[j + 1] = candidates[j];
+        j--;
+      }
+      candidates[j + 1] = candidate;
     }
   }
 
   /**
-   * <p>Orders by {@link FinderPattern#getCount()}, descending.</p>
+   * <p>Orders the first size candidates by count, descending, and then by closest to average,
+   * keeping the order of those which are the same in both.</p>
    */
-  private static final class CenterComparator implements Comparator<FinderPattern>, Serializable {
-    private final float average;
-    private CenterComparator(float f) {
-      average = f;
-    }
-    @Override
-    public int compare(FinderPattern center1, FinderPattern center2) {
-      if (center2.getCount() == center1.getCount()) {
-        float dA = Math.abs(center2.getEstimatedModuleSize() - average);
-        float dB = Math.abs(center1.getEstimatedModuleSize() - average);
-        return dA < dB ? 1 : dA == dB ? 0 : -1;
-      } else {
-        return center2.getCount() - center1.getCount();
+  private void sortByCount(int[] candidates, int size, float average) {
+    for (int i = 1; i < size; i++) {
+      int candidate = candidates[i];
+      int count = possibleCenterCount[candidate];
+      float deviation = Math.abs(possibleCenterModuleSize[candidate] - average);
+      int j = i - 1;
+      while (j >= 0) {
+        int otherCount = possibleCenterCount[candidates[j]];
+        if (otherCount > count || (otherCount == count &&
+            Math.abs(possibleCenterModuleSize[candidates[j]] - average) <= deviation)) {
+          break;
+        }
+        candidates[j + 1] = candidates[j];
+        j--;
       }
+      candidates[j + 1] = candidate;
     }
   }
 
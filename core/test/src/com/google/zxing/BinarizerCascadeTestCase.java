@@ -0,0 +1,132 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Tests {@link BinarizerCascade}.
+ */
+public final class BinarizerCascadeTestCase extends Assert {
+
+  @Test
+  public void testBitmapsAreCached() throws NotFoundException {
+    CountingLuminanceSource source = new CountingLuminanceSource(createQRCode("cascade", false));
+    BinarizerCascade cascade = new BinarizerCascade(source);
+    BinaryBitmap hybrid = cascade.getBitmap(BinarizerCascade.Binarization.HYBRID);
+    assertSame(hybrid, cascade.getBitmap(BinarizerCascade.Binarization.HYBRID));
+    BitMatrix matrix = hybrid.getBlackMatrix();
+    assertSame(matrix, cascade.getBitmap(BinarizerCascade.Binarization.HYBRID).getBlackMatrix());
+    cascade.getBitmap(BinarizerCascade.Binarization.GLOBAL_HISTOGRAM).getBlackMatrix();
+    cascade.getBitmap(BinarizerCascade.Binarization.INVERTED_HYBRID).getBlackMatrix();
+    assertEquals(1, source.matrixRequests);
+  }
+
+  @Test
+  public void testSharedRows() throws NotFoundException {
+    LuminanceSource source = createQRCode("rows", false);
+    BinarizerCascade cascade = new BinarizerCascade(source);
+    BinaryBitmap hybrid = cascade.getBitmap(BinarizerCascade.Binarization.HYBRID);
+    BinaryBitmap global = cascade.getBitmap(BinarizerCascade.Binarization.GLOBAL_HISTOGRAM);
+    BinaryBitmap expected = new BinaryBitmap(new HybridBinarizer(source));
+    for (int y = 0; y < source.getHeight(); y += 3) {
+      BitArray row = expected.getBlackRow(y, null);
+      assertArrayEquals(row.getBitArray(), hybrid.getBlackRow(y, null).getBitArray());
+      assertArrayEquals(row.getBitArray(), global.getBlackRow(y, null).getBitArray());
+    }
+    assertEquals(expected.getBlackMatrix(), hybrid.getBlackMatrix());
+  }
+
+  @Test
+  public void testDecodeCascade() throws NotFoundException {
+    MultiFormatReader reader = new MultiFormatReader();
+    reader.setHints(null);
+    Result result = reader.decodeWithState(new BinarizerCascade(createQRCode("normal", false)));
+    assertEquals("normal", result.getText());
+  }
+
+  @Test
+  public void testDecodeInvertedCascade() throws NotFoundException {
+    LuminanceSource source = createQRCode("inverted", true);
+    MultiFormatReader reader = new MultiFormatReader();
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singletonList(BarcodeFormat.QR_CODE));
+    reader.setHints(hints);
+    try {
+      reader.decodeWithState(new BinarizerCascade(source));
+      fail("Should not find an inverted barcode by default");
+    } catch (NotFoundException nfe) {
+      // good
+    }
+    hints.put(DecodeHintType.BINARIZATIONS, Arrays.asList(BinarizerCascade.Binarization.HYBRID,
+                                                          BinarizerCascade.Binarization.INVERTED_HYBRID));
+    reader.setHints(hints);
+    Result result = reader.decodeWithState(new BinarizerCascade(source));
+    assertEquals("inverted", result.getText());
+  }
+
+  private static LuminanceSource createQRCode(String contents, boolean inverted) {
+    BitMatrix code;
+    try {
+      code = new QRCodeWriter().encode(contents, BarcodeFormat.QR_CODE, 200, 200);
+    } catch (WriterException we) {
+      throw new IllegalStateException(we);
+    }
+    int width = code.getWidth();
+    int height = code.getHeight();
+    byte[] luminances = new byte[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        luminances[y * width + x] = (byte) (code.get(x, y) != inverted ? 0x10 : 0xF0);
+      }
+    }
+    return new PlanarYUVLuminanceSource(luminances, width, height, 0, 0, width, height, false);
+  }
+
+  private static final class CountingLuminanceSource extends LuminanceSource {
+
+    private final LuminanceSource delegate;
+    private int matrixRequests;
+
+    CountingLuminanceSource(LuminanceSource delegate) {
+      super(delegate.getWidth(), delegate.getHeight());
+      this.delegate = delegate;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+      return delegate.getRow(y, row);
+    }
+
+    @Override
+    public byte[] getMatrix() {
+      matrixRequests++;
+      return delegate.getMatrix();
+    }
+  }
+
+}
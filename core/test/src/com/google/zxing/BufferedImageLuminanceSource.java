@@ -19,11 +19,22 @@ package com.google.zxing;
 import java.awt.Graphics2D;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
 
 /**
  * This LuminanceSource implementation is meant for J2SE clients and our blackbox unit tests.
  *
+ * <p>Images of the common 24 and 32 bit RGB layouts are not copied. The luminance of just the cropped
+ * region is computed from their pixel data, one row at a time as rows are requested, using the same
+ * weights as Java2D uses to draw them onto a grayscale image. Other images are drawn onto a grayscale
+ * copy up front.</p>
+ *
  * @author dswitkin@google.com (Daniel Switkin)
  * @author Sean Owen
  * @author code@elektrowolle.de (Wolfgang Jung)
@@ -32,9 +43,14 @@ public final class BufferedImageLuminanceSource extends LuminanceSource {
 
   private static final double MINUS_45_IN_RADIANS = -0.7853981633974483; // Math.toRadians(-45.0)
 
+  // A grayscale image, or an RGB image which is converted directly
   private final BufferedImage image;
   private final int left;
   private final int top;
+  // The luminance of the cropped region of a directly converted image, filled in row by row
+  private byte[] luminances;
+  private boolean[] convertedRows;
+  private int unconvertedRows;
 
   private static final boolean EXPLICIT_LUMINANCE_CONVERSION;
   static {
@@ -44,6 +60,9 @@ public final class BufferedImageLuminanceSource extends LuminanceSource {
     }
     EXPLICIT_LUMINANCE_CONVERSION = Boolean.parseBoolean(property);
   }
+  // By default Java2D's weights and rounding, so that direct conversion matches drawing onto a grayscale image
+  private static final LuminanceConverter CONVERTER =
+      EXPLICIT_LUMINANCE_CONVERSION ? LuminanceConverter.REC601 : LuminanceConverter.REC601_8BIT;
 
   public BufferedImageLuminanceSource(BufferedImage image) {
     this(image, 0, 0, image.getWidth(), image.getHeight());
@@ -61,34 +80,30 @@ public final class BufferedImageLuminanceSource extends LuminanceSource {
         throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
       }
 
-      this.image = new BufferedImage(sourceWidth, sourceHeight, BufferedImage.TYPE_BYTE_GRAY);
+      if (isDirectlyConvertible(image)) {
 
-      if (EXPLICIT_LUMINANCE_CONVERSION) {
+        this.image = image;
+        luminances = new byte[width * height];
+        convertedRows = new boolean[height];
+        unconvertedRows = height;
 
+      } else if (EXPLICIT_LUMINANCE_CONVERSION) {
+
+        this.image = new BufferedImage(sourceWidth, sourceHeight, BufferedImage.TYPE_BYTE_GRAY);
         WritableRaster raster = this.image.getRaster();
         int[] buffer = new int[width];
+        byte[] row = new byte[width];
         for (int y = top; y < top + height; y++) {
           image.getRGB(left, y, width, 1, buffer, 0, sourceWidth);
-          for (int x = 0; x < width; x++) {
-            int pixel = buffer[x];
-
-            // see comments in implicit branch
-            if ((pixel & 0xFF000000) == 0) {
-              pixel = 0xFFFFFFFF; // = white
-            }
-
-            // .229R + 0.587G + 0.114B (YUV/YIQ for PAL and NTSC)
-            buffer[x] =
-                (306 * ((pixel >> 16) & 0xFF) +
-                 601 * ((pixel >> 8) & 0xFF) +
-                 117 * (pixel & 0xFF) +
-                 0x200) >> 10;
-          }
-          raster.setPixels(left, y, width, 1, buffer);
+          // .229R + 0.587G + 0.114B (YUV/YIQ for PAL and NTSC), with transparent pixels white
+          LuminanceConverter.REC601.convertPackedARGB(buffer, 0, row, 0, width);
+          raster.setDataElements(left, y, width, 1, row);
         }
 
       } else {
 
+        this.image = new BufferedImage(sourceWidth, sourceHeight, BufferedImage.TYPE_BYTE_GRAY);
+
         // The color of fully-transparent pixels is irrelevant. They are often, technically, fully-transparent
         // black (0 alpha, and then 0 RGB). They are often used, of course as the "white" area in a
         // barcode image. Force any such pixel to be white:
@@ -127,8 +142,13 @@ public final class BufferedImageLuminanceSource extends LuminanceSource {
     if (row == null || row.length < width) {
       row = new byte[width];
     }
-    // The underlying raster of image consists of bytes with the luminance values
-    image.getRaster().getDataElements(left, top + y, width, 1, row);
+    if (luminances != null) {
+      convertRow(y);
+      System.arraycopy(luminances, y * width, row, 0, width);
+    } else {
+      // The underlying raster of image consists of bytes with the luminance values
+      image.getRaster().getDataElements(left, top + y, width, 1, row);
+    }
     return row;
   }
 
@@ -136,10 +156,21 @@ public final class BufferedImageLuminanceSource extends LuminanceSource {
   public byte[] getMatrix() {
     int width = getWidth();
     int height = getHeight();
+    if (luminances != null) {
+      for (int y = 0; unconvertedRows > 0 && y < height; y++) {
+        convertRow(y);
+      }
+      return luminances;
+    }
+    WritableRaster raster = image.getRaster();
+    if (left == 0 && top == 0 && width == image.getWidth() && height == image.getHeight() && isPacked(raster)) {
+      // The underlying raster of image is exactly the width * height luminance values
+      return ((DataBufferByte) raster.getDataBuffer()).getData();
+    }
     int area = width * height;
     byte[] matrix = new byte[area];
     // The underlying raster of image consists of area bytes with the luminance values
-    image.getRaster().getDataElements(left, top, width, height, matrix);
+    raster.getDataElements(left, top, width, height, matrix);
     return matrix;
   }
 
@@ -163,29 +194,17 @@ public final class BufferedImageLuminanceSource extends LuminanceSource {
     return true;
   }
 
+  /**
+   * Presents the image rotated without copying it, through a {@link RotatedLuminanceSource}.
+   */
   @Override
   public LuminanceSource rotateCounterClockwise() {
-    int sourceWidth = image.getWidth();
-    int sourceHeight = image.getHeight();
-
-    // Rotate 90 degrees counterclockwise.
-    AffineTransform transform = new AffineTransform(0.0, -1.0, 1.0, 0.0, 0.0, sourceWidth);
-
-    // Note width/height are flipped since we are rotating 90 degrees.
-    BufferedImage rotatedImage = new BufferedImage(sourceHeight, sourceWidth, BufferedImage.TYPE_BYTE_GRAY);
-
-    // Draw the original image into rotated, via transformation
-    Graphics2D g = rotatedImage.createGraphics();
-    g.drawImage(image, transform, null);
-    g.dispose();
-
-    // Maintain the cropped region, but rotate it too.
-    int width = getWidth();
-    return new BufferedImageLuminanceSource(rotatedImage, top, sourceWidth - (left + width), getHeight(), width);
+    return new RotatedLuminanceSource(this, 90, false);
   }
 
   @Override
   public LuminanceSource rotateCounterClockwise45() {
+    BufferedImage grayImage = getGrayImage();
     int width = getWidth();
     int height = getHeight();
 
@@ -195,12 +214,12 @@ public final class BufferedImageLuminanceSource extends LuminanceSource {
     // Rotate 45 degrees counterclockwise.
     AffineTransform transform = AffineTransform.getRotateInstance(MINUS_45_IN_RADIANS, oldCenterX, oldCenterY);
 
-    int sourceDimension = Math.max(image.getWidth(), image.getHeight());
+    int sourceDimension = Math.max(grayImage.getWidth(), grayImage.getHeight());
     BufferedImage rotatedImage = new BufferedImage(sourceDimension, sourceDimension, BufferedImage.TYPE_BYTE_GRAY);
 
     // Draw the original image into rotated, via transformation
     Graphics2D g = rotatedImage.createGraphics();
-    g.drawImage(image, transform, null);
+    g.drawImage(grayImage, transform, null);
     g.dispose();
 
     int halfDimension = Math.max(width, height) / 2;
@@ -212,4 +231,138 @@ public final class BufferedImageLuminanceSource extends LuminanceSource {
     return new BufferedImageLuminanceSource(rotatedImage, newLeft, newTop, newRight - newLeft, newBottom - newTop);
   }
 
+  /**
+   * @return the grayscale image, converting the whole of a directly converted image, which is only
+   *  needed to rotate it by 45 degrees
+   */
+  private BufferedImage getGrayImage() {
+    if (luminances == null) {
+      return image;
+    }
+    int sourceWidth = image.getWidth();
+    int sourceHeight = image.getHeight();
+    BufferedImage grayImage = new BufferedImage(sourceWidth, sourceHeight, BufferedImage.TYPE_BYTE_GRAY);
+    byte[] grayLuminances = ((DataBufferByte) grayImage.getRaster().getDataBuffer()).getData();
+    for (int y = 0; y < sourceHeight; y++) {
+      convertRow(image, 0, y, sourceWidth, grayLuminances, y * sourceWidth);
+    }
+    return grayImage;
+  }
+
+  private void convertRow(int y) {
+    if (!convertedRows[y]) {
+      int width = getWidth();
+      convertRow(image, left, top + y, width, luminances, y * width);
+      convertedRows[y] = true;
+      unconvertedRows--;
+    }
+  }
+
+  /**
+   * @return true if the pixel data of the image has one of the layouts that
+   *  {@link #convertRow(BufferedImage, int, int, int, byte[], int)} reads directly
+   */
+  private static boolean isDirectlyConvertible(BufferedImage image) {
+    WritableRaster raster = image.getRaster();
+    SampleModel sampleModel = raster.getSampleModel();
+    DataBuffer buffer = raster.getDataBuffer();
+    switch (image.getType()) {
+      case BufferedImage.TYPE_3BYTE_BGR:
+      case BufferedImage.TYPE_4BYTE_ABGR:
+        return sampleModel instanceof ComponentSampleModel && buffer instanceof DataBufferByte;
+      case BufferedImage.TYPE_INT_RGB:
+      case BufferedImage.TYPE_INT_ARGB:
+        return sampleModel instanceof SinglePixelPackedSampleModel && buffer instanceof DataBufferInt;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @return true if the raster of a grayscale image is backed by exactly one byte per pixel, row after row
+   */
+  private static boolean isPacked(WritableRaster raster) {
+    SampleModel sampleModel = raster.getSampleModel();
+    if (!(sampleModel instanceof ComponentSampleModel) || !(raster.getDataBuffer() instanceof DataBufferByte)) {
+      return false;
+    }
+    ComponentSampleModel componentSampleModel = (ComponentSampleModel) sampleModel;
+    DataBuffer buffer = raster.getDataBuffer();
+    return raster.getSampleModelTranslateX() == 0 &&
+        raster.getSampleModelTranslateY() == 0 &&
+        buffer.getOffset() == 0 &&
+        buffer.getNumBanks() == 1 &&
+        componentSampleModel.getPixelStride() == 1 &&
+        componentSampleModel.getScanlineStride() == raster.getWidth() &&
+        componentSampleModel.getBandOffsets()[0] == 0 &&
+        buffer.getSize() == raster.getWidth() * raster.getHeight();
+  }
+
+  /**
+   * Computes the luminance of width pixels of a row of an image accepted by
+   * {@link #isDirectlyConvertible(BufferedImage)}, starting at (x,y), into luminances from offset.
+   */
+  private static void convertRow(BufferedImage image, int x, int y, int width, byte[] luminances, int offset) {
+    WritableRaster raster = image.getRaster();
+    DataBuffer buffer = raster.getDataBuffer();
+    int sampleX = x - raster.getSampleModelTranslateX();
+    int sampleY = y - raster.getSampleModelTranslateY();
+    boolean hasAlpha = image.getColorModel().hasAlpha();
+    if (buffer instanceof DataBufferByte) {
+      ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+      byte[] data = ((DataBufferByte) buffer).getData();
+      int[] bandOffsets = sampleModel.getBandOffsets();
+      int redOffset = bandOffsets[0];
+      int greenOffset = bandOffsets[1];
+      int blueOffset = bandOffsets[2];
+      int alphaOffset = hasAlpha ? bandOffsets[3] : 0;
+      int pixelStride = sampleModel.getPixelStride();
+      int index = buffer.getOffset() + sampleY * sampleModel.getScanlineStride() + sampleX * pixelStride;
+      if (!hasAlpha && pixelStride == 3 && redOffset == 2 && greenOffset == 1 && blueOffset == 0) {
+        CONVERTER.convertBGR(data, index, luminances, offset, width);
+        return;
+      }
+      for (int i = 0; i < width; i++, index += pixelStride) {
+        luminances[offset + i] = luminance(data[index + redOffset] & 0xFF,
+                                           data[index + greenOffset] & 0xFF,
+                                           data[index + blueOffset] & 0xFF,
+                                           hasAlpha ? data[index + alphaOffset] & 0xFF : 0xFF);
+      }
+    } else {
+      SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+      int[] data = ((DataBufferInt) buffer).getData();
+      int index = buffer.getOffset() + sampleY * sampleModel.getScanlineStride() + sampleX;
+      if (!hasAlpha) {
+        CONVERTER.convertPackedRGB(data, index, luminances, offset, width);
+        return;
+      }
+      if (EXPLICIT_LUMINANCE_CONVERSION) {
+        CONVERTER.convertPackedARGB(data, index, luminances, offset, width);
+        return;
+      }
+      for (int i = 0; i < width; i++) {
+        int pixel = data[index + i];
+        luminances[offset + i] = luminance((pixel >> 16) & 0xFF,
+                                           (pixel >> 8) & 0xFF,
+                                           pixel & 0xFF,
+                                           pixel >>> 24);
+      }
+    }
+  }
+
+  private static byte luminance(int red, int green, int blue, int alpha) {
+    // The color of fully-transparent pixels is irrelevant. They are often, technically, fully-transparent
+    // black (0 alpha, and then 0 RGB). They are often used, of course as the "white" area in a
+    // barcode image. Force any such pixel to be white:
+    if (alpha == 0) {
+      return (byte) 0xFF;
+    }
+    int gray = CONVERTER.luminance(red, green, blue);
+    if (EXPLICIT_LUMINANCE_CONVERSION) {
+      return (byte) gray;
+    }
+    // Java2D draws translucent pixels over black.
+    return (byte) (alpha == 0xFF ? gray : (alpha * gray + 127) / 255);
+  }
+
 }
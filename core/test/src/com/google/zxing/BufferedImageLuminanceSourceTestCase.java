@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Tests the direct conversion of RGB images in {@link BufferedImageLuminanceSource} against drawing
+ * them onto a grayscale image, as it used to do. The test copy of the class is the same as the J2SE one.
+ */
+public final class BufferedImageLuminanceSourceTestCase extends Assert {
+
+  private static final int WIDTH = 23;
+  private static final int HEIGHT = 11;
+
+  @Test
+  public void test3ByteBGR() {
+    checkConversion(BufferedImage.TYPE_3BYTE_BGR);
+  }
+
+  @Test
+  public void test4ByteABGR() {
+    checkConversion(BufferedImage.TYPE_4BYTE_ABGR);
+  }
+
+  @Test
+  public void testIntRGB() {
+    checkConversion(BufferedImage.TYPE_INT_RGB);
+  }
+
+  @Test
+  public void testIntARGB() {
+    checkConversion(BufferedImage.TYPE_INT_ARGB);
+  }
+
+  private static void checkConversion(int type) {
+    BufferedImage image = createImage(type);
+    byte[] expected = convertByDrawing(image);
+
+    LuminanceSource source = new BufferedImageLuminanceSource(image);
+    // Rows first, as they are converted one at a time, then the whole matrix
+    for (int y = HEIGHT - 1; y >= 0; y -= 2) {
+      byte[] row = source.getRow(y, null);
+      for (int x = 0; x < WIDTH; x++) {
+        assertEquals(expected[y * WIDTH + x], row[x]);
+      }
+    }
+    assertArrayEquals(expected, source.getMatrix());
+
+    LuminanceSource cropped = new BufferedImageLuminanceSource(image, 3, 2, 15, 7);
+    byte[] matrix = cropped.getMatrix();
+    for (int y = 0; y < 7; y++) {
+      for (int x = 0; x < 15; x++) {
+        assertEquals(expected[(y + 2) * WIDTH + x + 3], matrix[y * 15 + x]);
+      }
+    }
+  }
+
+  /**
+   * @return an image of random colors, where an image with alpha also has pixels which are fully
+   *  transparent, of random and of black color, and pixels which are translucent
+   */
+  private static BufferedImage createImage(int type) {
+    BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+    boolean hasAlpha = image.getColorModel().hasAlpha();
+    Random random = new Random(0xA1FA);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        int rgb = random.nextInt() & 0xFFFFFF;
+        int alpha = 0xFF;
+        if (hasAlpha) {
+          switch (x % 4) {
+            case 0:
+              alpha = 0;
+              break;
+            case 1:
+              alpha = 0;
+              rgb = 0;
+              break;
+            case 2:
+              alpha = 1 + random.nextInt(254);
+              break;
+          }
+        }
+        image.setRGB(x, y, (alpha << 24) | rgb);
+      }
+    }
+    return image;
+  }
+
+  /**
+   * Converts a copy of the image the way the class did before converting pixel data directly: fully
+   * transparent pixels become white, then the image is drawn onto a grayscale image.
+   */
+  private static byte[] convertByDrawing(BufferedImage image) {
+    BufferedImage copy = new BufferedImage(WIDTH, HEIGHT, image.getType());
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        int argb = image.getRGB(x, y);
+        copy.setRGB(x, y, (argb & 0xFF000000) == 0 ? 0xFFFFFFFF : argb);
+      }
+    }
+    BufferedImage gray = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+    gray.getGraphics().drawImage(copy, 0, 0, null);
+    byte[] luminances = new byte[WIDTH * HEIGHT];
+    gray.getRaster().getDataElements(0, 0, WIDTH, HEIGHT, luminances);
+    return luminances;
+  }
+
+}
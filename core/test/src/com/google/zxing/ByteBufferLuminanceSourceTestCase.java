@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * Tests {@link ByteBufferLuminanceSource}.
+ */
+public final class ByteBufferLuminanceSourceTestCase extends Assert {
+
+  private static final int OFFSET = 5;
+  private static final int STRIDE = 13;
+  private static final int WIDTH = 10;
+  private static final int HEIGHT = 6;
+
+  @Test
+  public void testStride() {
+    byte[] data = createData();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+    buffer.put(data);
+    assertImage(data, 0, 0, WIDTH, HEIGHT, new ByteBufferLuminanceSource(buffer, OFFSET, STRIDE, WIDTH, HEIGHT,
+                                                                         0, 0, WIDTH, HEIGHT));
+    // The buffer's position is ignored, and left alone
+    assertEquals(data.length, buffer.position());
+  }
+
+  @Test
+  public void testCrop() {
+    byte[] data = createData();
+    LuminanceSource source = new ByteBufferLuminanceSource(ByteBuffer.wrap(data), OFFSET, STRIDE, WIDTH, HEIGHT,
+                                                           1, 1, WIDTH - 2, HEIGHT - 1);
+    assertTrue(source.isCropSupported());
+    assertImage(data, 3, 2, 4, 3, source.crop(2, 1, 4, 3));
+  }
+
+  @Test
+  public void testWholeArray() {
+    byte[] data = new byte[WIDTH * HEIGHT];
+    new Random(0xB0FF).nextBytes(data);
+    LuminanceSource source = new ByteBufferLuminanceSource(ByteBuffer.wrap(data), WIDTH, HEIGHT);
+    assertSame(data, source.getMatrix());
+  }
+
+  @Test
+  public void testMappedFile() throws IOException {
+    byte[] data = createData();
+    File file = File.createTempFile("luminance", ".raw");
+    try {
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try {
+        raf.write(data);
+        ByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, data.length);
+        assertImage(data, 0, 0, WIDTH, HEIGHT, new ByteBufferLuminanceSource(buffer, OFFSET, STRIDE, WIDTH, HEIGHT,
+                                                                             0, 0, WIDTH, HEIGHT));
+      } finally {
+        raf.close();
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testRotate() {
+    byte[] data = createData();
+    LuminanceSource source = new ByteBufferLuminanceSource(ByteBuffer.wrap(data), OFFSET, STRIDE, WIDTH, HEIGHT,
+                                                           0, 0, WIDTH, HEIGHT);
+    assertTrue(source.isRotateSupported());
+    LuminanceSource rotated = source.rotateCounterClockwise();
+    assertEquals(HEIGHT, rotated.getWidth());
+    assertEquals(WIDTH, rotated.getHeight());
+    byte[] matrix = rotated.getMatrix();
+    for (int y = 0; y < WIDTH; y++) {
+      for (int x = 0; x < HEIGHT; x++) {
+        assertEquals(data[OFFSET + x * STRIDE + WIDTH - 1 - y], matrix[y * HEIGHT + x]);
+      }
+    }
+    // The same as rotating a copy of the pixels by 45 degrees, directly or after 90
+    LuminanceSource copy = new PlanarYUVLuminanceSource(source.getMatrix(), WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, false);
+    assertArrayEquals(copy.rotateCounterClockwise45().getMatrix(), source.rotateCounterClockwise45().getMatrix());
+    assertArrayEquals(copy.rotateCounterClockwise().rotateCounterClockwise45().getMatrix(),
+                      rotated.rotateCounterClockwise45().getMatrix());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooSmall() {
+    new ByteBufferLuminanceSource(ByteBuffer.allocate(OFFSET + STRIDE * (HEIGHT - 1)), OFFSET, STRIDE, WIDTH, HEIGHT,
+                                  0, 0, WIDTH, HEIGHT);
+  }
+
+  private static void assertImage(byte[] data, int left, int top, int width, int height, LuminanceSource source) {
+    assertEquals(width, source.getWidth());
+    assertEquals(height, source.getHeight());
+    byte[] matrix = source.getMatrix();
+    for (int y = 0; y < height; y++) {
+      byte[] row = source.getRow(y, null);
+      for (int x = 0; x < width; x++) {
+        byte expected = data[OFFSET + (top + y) * STRIDE + left + x];
+        assertEquals(expected, row[x]);
+        assertEquals(expected, matrix[y * width + x]);
+      }
+    }
+  }
+
+  private static byte[] createData() {
+    byte[] data = new byte[OFFSET + STRIDE * HEIGHT];
+    new Random(0xB0FF).nextBytes(data);
+    return data;
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests {@link LuminanceConverter}.
+ */
+public final class LuminanceConverterTestCase extends Assert {
+
+  private static final LuminanceConverter[] CONVERTERS = {
+      LuminanceConverter.FAST, LuminanceConverter.REC601, LuminanceConverter.REC601_8BIT,
+  };
+  private static final int COUNT = 100;
+  private static final int OFFSET = 3;
+
+  @Test
+  public void testWeights() {
+    assertEquals((10 + 2 * 20 + 30) >> 2, LuminanceConverter.FAST.luminance(10, 20, 30));
+    assertEquals((306 * 10 + 601 * 20 + 117 * 30 + 0x200) >> 10, LuminanceConverter.REC601.luminance(10, 20, 30));
+    assertEquals((77 * 10 + 150 * 20 + 29 * 30 + 128) >> 8, LuminanceConverter.REC601_8BIT.luminance(10, 20, 30));
+    for (LuminanceConverter converter : CONVERTERS) {
+      assertEquals(0, converter.luminance(0, 0, 0));
+      assertEquals(255, converter.luminance(255, 255, 255));
+    }
+  }
+
+  @Test
+  public void testPacked() {
+    Random random = new Random(0x1C0);
+    int[] pixels = new int[OFFSET + COUNT];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = random.nextInt();
+      if (i % 7 == 0) {
+        pixels[i] &= 0x00FFFFFF;
+      }
+    }
+    for (LuminanceConverter converter : CONVERTERS) {
+      byte[] rgb = new byte[OFFSET + COUNT];
+      byte[] argb = new byte[OFFSET + COUNT];
+      converter.convertPackedRGB(pixels, OFFSET, rgb, OFFSET, COUNT);
+      converter.convertPackedARGB(pixels, OFFSET, argb, OFFSET, COUNT);
+      for (int i = 0; i < COUNT; i++) {
+        int pixel = pixels[OFFSET + i];
+        int expected = converter.luminance((pixel >> 16) & 0xFF, (pixel >> 8) & 0xFF, pixel & 0xFF);
+        assertEquals(expected, rgb[OFFSET + i] & 0xFF);
+        assertEquals(pixel >>> 24 == 0 ? 0xFF : expected, argb[OFFSET + i] & 0xFF);
+      }
+    }
+  }
+
+  @Test
+  public void testBytes() {
+    Random random = new Random(0x1C1);
+    byte[] data = new byte[OFFSET + 4 * COUNT];
+    random.nextBytes(data);
+    for (int i = 0; i < COUNT; i += 5) {
+      data[OFFSET + 4 * i + 3] = 0;
+    }
+    for (LuminanceConverter converter : CONVERTERS) {
+      byte[] bgr = new byte[COUNT];
+      byte[] rgba = new byte[COUNT];
+      converter.convertBGR(data, OFFSET, bgr, 0, COUNT);
+      converter.convertRGBA(data, OFFSET, rgba, 0, COUNT);
+      for (int i = 0; i < COUNT; i++) {
+        int index = OFFSET + 3 * i;
+        assertEquals(converter.luminance(data[index + 2] & 0xFF, data[index + 1] & 0xFF, data[index] & 0xFF),
+                     bgr[i] & 0xFF);
+        index = OFFSET + 4 * i;
+        int expected = data[index + 3] == 0 ? 0xFF :
+            converter.luminance(data[index] & 0xFF, data[index + 1] & 0xFF, data[index + 2] & 0xFF);
+        assertEquals(expected, rgba[i] & 0xFF);
+      }
+    }
+  }
+
+}
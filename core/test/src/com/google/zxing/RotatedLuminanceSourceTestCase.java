@@ -0,0 +1,246 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.HybridBinarizer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Tests {@link RotatedLuminanceSource}.
+ */
+public final class RotatedLuminanceSourceTestCase extends Assert {
+
+  private static final int WIDTH = 7;
+  private static final int HEIGHT = 5;
+
+  @Test
+  public void testRotations() {
+    byte[] luminances = createLuminances();
+    LuminanceSource source = new PlanarYUVLuminanceSource(luminances, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, false);
+    for (int rotation = 0; rotation < 360; rotation += 90) {
+      for (int mirror = 0; mirror < 2; mirror++) {
+        boolean mirrored = mirror == 1;
+        LuminanceSource rotated = new RotatedLuminanceSource(source, rotation, mirrored);
+        assertView(luminances, rotation, mirrored, rotated);
+      }
+    }
+  }
+
+  @Test
+  public void testRotateCounterClockwise() {
+    byte[] luminances = createLuminances();
+    LuminanceSource source = new RGBLuminanceSource(WIDTH, HEIGHT, toPixels(luminances));
+    assertTrue(source.isRotateSupported());
+    LuminanceSource rotated = source;
+    for (int rotation = 90; rotation < 360; rotation += 90) {
+      rotated = rotated.rotateCounterClockwise();
+      assertView(luminances, rotation, false, rotated);
+    }
+    assertSame(source, rotated.rotateCounterClockwise());
+  }
+
+  @Test
+  public void testCrop() {
+    byte[] luminances = createLuminances();
+    LuminanceSource source = new PlanarYUVLuminanceSource(luminances, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, false);
+    for (int rotation = 0; rotation < 360; rotation += 90) {
+      for (int mirror = 0; mirror < 2; mirror++) {
+        LuminanceSource rotated = new RotatedLuminanceSource(source, rotation, mirror == 1);
+        assertTrue(rotated.isCropSupported());
+        LuminanceSource cropped = rotated.crop(1, 2, 3, 2);
+        assertEquals(3, cropped.getWidth());
+        assertEquals(2, cropped.getHeight());
+        for (int y = 0; y < 2; y++) {
+          byte[] expected = rotated.getRow(y + 2, null);
+          byte[] actual = cropped.getRow(y, null);
+          for (int x = 0; x < 3; x++) {
+            assertEquals(expected[x + 1], actual[x]);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRotateCounterClockwise45() {
+    LuminanceSource source = new BufferedImageLuminanceSource(createSquareImage(41));
+    for (int rotation = 0; rotation < 360; rotation += 90) {
+      for (int mirror = 0; mirror < 2; mirror++) {
+        LuminanceSource view = new RotatedLuminanceSource(source, rotation, mirror == 1);
+        assertTrue(view.isRotateSupported());
+        // About the same as rotating an image holding the view's pixels; the two only differ in rounding
+        LuminanceSource expected = new BufferedImageLuminanceSource(toImage(view)).rotateCounterClockwise45();
+        LuminanceSource actual = view.rotateCounterClockwise45();
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        float[] expectedCenter = darkCenter(expected);
+        float[] actualCenter = darkCenter(actual);
+        assertEquals(expectedCenter[0], actualCenter[0], 1.5f);
+        assertEquals(expectedCenter[1], actualCenter[1], 1.5f);
+      }
+    }
+
+    // and so a bitmap can be rotated by 90 and then 45 degrees
+    BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source)).rotateCounterClockwise();
+    assertTrue(bitmap.isRotateSupported());
+    BinaryBitmap rotated = bitmap.rotateCounterClockwise45();
+    assertArrayEquals(source.rotateCounterClockwise().rotateCounterClockwise45().getMatrix(),
+                      rotated.getLuminanceSource().getMatrix());
+  }
+
+  @Test
+  public void testRotateCounterClockwise45FromMatrix() {
+    int size = 41;
+    BufferedImage image = createSquareImage(size);
+    byte[] luminances = new byte[size * size];
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        luminances[y * size + x] = (byte) image.getRaster().getSample(x, y, 0);
+      }
+    }
+    LuminanceSource yuvSource = new PlanarYUVLuminanceSource(luminances, size, size, 0, 0, size, size, false);
+    LuminanceSource rgbSource = new RGBLuminanceSource(size, size, toPixels(luminances));
+    for (LuminanceSource source : new LuminanceSource[] {yuvSource, rgbSource}) {
+      assertTrue(source.isRotateSupported());
+      assertRotated45(source, source.rotateCounterClockwise45());
+      for (int rotation = 0; rotation < 360; rotation += 90) {
+        for (int mirror = 0; mirror < 2; mirror++) {
+          LuminanceSource view = new RotatedLuminanceSource(source, rotation, mirror == 1);
+          assertRotated45(view, view.rotateCounterClockwise45());
+        }
+      }
+      // Wrappers pass the rotation on
+      assertRotated45(source, new InvertedLuminanceSource(source).rotateCounterClockwise45().invert());
+      BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source)).rotateCounterClockwise();
+      assertTrue(bitmap.isRotateSupported());
+      assertRotated45(source.rotateCounterClockwise(),
+                      bitmap.rotateCounterClockwise45().getLuminanceSource());
+    }
+  }
+
+  /**
+   * Checks that actual is about the same as rotating an image holding the pixels of source
+   */
+  private static void assertRotated45(LuminanceSource source, LuminanceSource actual) {
+    LuminanceSource expected = new BufferedImageLuminanceSource(toImage(source)).rotateCounterClockwise45();
+    float[] expectedCenter = darkCenter(expected);
+    float[] actualCenter = darkCenter(actual);
+    assertEquals(expectedCenter[0], actualCenter[0], 1.5f);
+    assertEquals(expectedCenter[1], actualCenter[1], 1.5f);
+  }
+
+  /**
+   * @return mean x and y of the dark pixels, leaving out the black which fills the corners of an image
+   *  rotated by 45 degrees
+   */
+  private static float[] darkCenter(LuminanceSource source) {
+    int width = source.getWidth();
+    byte[] matrix = source.getMatrix();
+    float sumX = 0.0f;
+    float sumY = 0.0f;
+    int count = 0;
+    for (int i = 0; i < matrix.length; i++) {
+      int value = matrix[i] & 0xFF;
+      if (value > 0x10 && value < 0x80) {
+        sumX += i % width;
+        sumY += i / width;
+        count++;
+      }
+    }
+    assertTrue(count > 0);
+    return new float[] {sumX / count, sumY / count};
+  }
+
+  /**
+   * @return a light image with a dark square away from the center, whose position shows how the image was turned
+   */
+  private static BufferedImage createSquareImage(int size) {
+    BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_GRAY);
+    for (int y = 0; y < size; y++) {
+      for (int x = 0; x < size; x++) {
+        boolean dark = x >= 26 && x < 32 && y >= 8 && y < 14;
+        image.getRaster().setSample(x, y, 0, dark ? 0x20 : 0xE0);
+      }
+    }
+    return image;
+  }
+
+  private static BufferedImage toImage(LuminanceSource source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+    byte[] matrix = source.getMatrix();
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.getRaster().setSample(x, y, 0, matrix[y * width + x] & 0xFF);
+      }
+    }
+    return image;
+  }
+
+  private static void assertView(byte[] luminances, int rotation, boolean mirrored, LuminanceSource rotated) {
+    boolean sideways = rotation == 90 || rotation == 270;
+    int width = sideways ? HEIGHT : WIDTH;
+    int height = sideways ? WIDTH : HEIGHT;
+    assertEquals(width, rotated.getWidth());
+    assertEquals(height, rotated.getHeight());
+    byte[] matrix = rotated.getMatrix();
+    for (int y = 0; y < height; y++) {
+      byte[] row = rotated.getRow(y, null);
+      for (int x = 0; x < width; x++) {
+        // Undo the counterclockwise rotation one quarter turn at a time, then the mirroring
+        int sourceX = x;
+        int sourceY = y;
+        int rotatedWidth = width;
+        int rotatedHeight = height;
+        for (int turns = rotation / 90; turns > 0; turns--) {
+          int previousX = rotatedHeight - 1 - sourceY;
+          sourceY = sourceX;
+          sourceX = previousX;
+          int previousWidth = rotatedHeight;
+          rotatedHeight = rotatedWidth;
+          rotatedWidth = previousWidth;
+        }
+        if (mirrored) {
+          sourceX = WIDTH - 1 - sourceX;
+        }
+        byte expected = luminances[sourceY * WIDTH + sourceX];
+        assertEquals(expected, matrix[y * width + x]);
+        assertEquals(expected, row[x]);
+      }
+    }
+  }
+
+  private static byte[] createLuminances() {
+    byte[] luminances = new byte[WIDTH * HEIGHT];
+    new Random(0x707A7E).nextBytes(luminances);
+    return luminances;
+  }
+
+  private static int[] toPixels(byte[] luminances) {
+    int[] pixels = new int[luminances.length];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = (luminances[i] & 0xFF) * 0x010101;
+    }
+    return pixels;
+  }
+
+}
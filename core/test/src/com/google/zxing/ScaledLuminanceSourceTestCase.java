@@ -0,0 +1,159 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing;
+
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests {@link ScaledLuminanceSource} and {@link MultiFormatReader#decodeCoarseToFine(LuminanceSource)}.
+ */
+public final class ScaledLuminanceSourceTestCase extends Assert {
+
+  @Test
+  public void testBoxFilter() {
+    Random random = new Random(0x5CA1E);
+    int width = 37;
+    int height = 23;
+    byte[] luminances = new byte[width * height];
+    random.nextBytes(luminances);
+    LuminanceSource source = new PlanarYUVLuminanceSource(luminances, width, height, 0, 0, width, height, false);
+    for (int scalePower = 1; scalePower <= 2; scalePower++) {
+      int scale = 1 << scalePower;
+      ScaledLuminanceSource scaled = new ScaledLuminanceSource(source, scalePower);
+      assertEquals(scale, scaled.getScale());
+      assertEquals(width / scale, scaled.getWidth());
+      assertEquals(height / scale, scaled.getHeight());
+      byte[] matrix = scaled.getMatrix();
+      for (int y = 0; y < scaled.getHeight(); y++) {
+        byte[] row = scaled.getRow(y, null);
+        for (int x = 0; x < scaled.getWidth(); x++) {
+          int sum = 0;
+          for (int dy = 0; dy < scale; dy++) {
+            for (int dx = 0; dx < scale; dx++) {
+              sum += luminances[(y * scale + dy) * width + x * scale + dx] & 0xFF;
+            }
+          }
+          assertEquals(sum / (scale * scale), matrix[y * scaled.getWidth() + x] & 0xFF);
+          assertEquals(sum / (scale * scale), row[x] & 0xFF);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCrop() {
+    Random random = new Random(0xC409);
+    int width = 40;
+    int height = 30;
+    byte[] luminances = new byte[width * height];
+    random.nextBytes(luminances);
+    LuminanceSource source = new PlanarYUVLuminanceSource(luminances, width, height, 0, 0, width, height, false);
+    LuminanceSource scaled = new ScaledLuminanceSource(source, 1);
+    assertTrue(scaled.isCropSupported());
+    LuminanceSource cropped = scaled.crop(3, 2, 10, 8);
+    assertEquals(10, cropped.getWidth());
+    assertEquals(8, cropped.getHeight());
+    for (int y = 0; y < 8; y++) {
+      byte[] expected = scaled.getRow(y + 2, null);
+      byte[] actual = cropped.getRow(y, null);
+      for (int x = 0; x < 10; x++) {
+        assertEquals(expected[x + 3], actual[x]);
+      }
+    }
+  }
+
+  @Test
+  public void testDecodeLargeSymbol() throws NotFoundException {
+    LuminanceSource source = createImage("coarse", 1600, 1200, 200, 100, 1000);
+    MultiFormatReader reader = new MultiFormatReader();
+    reader.setHints(null);
+    Result result = reader.decodeCoarseToFine(source);
+    assertEquals("coarse", result.getText());
+    assertPointsWithin(result, 200, 100, 1000);
+  }
+
+  @Test
+  public void testDecodeSmallSymbol() throws NotFoundException {
+    LuminanceSource source = createImage("fine", 1600, 1200, 900, 700, 90);
+    MultiFormatReader reader = new MultiFormatReader();
+    reader.setHints(null);
+    Result result = reader.decodeCoarseToFine(source);
+    assertEquals("fine", result.getText());
+    assertPointsWithin(result, 900, 700, 90);
+  }
+
+  @Test
+  public void testResultPointCallback() throws NotFoundException {
+    LuminanceSource source = createImage("fine", 1600, 1200, 900, 700, 90);
+    final List<ResultPoint> points = new ArrayList<ResultPoint>();
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, new ResultPointCallback() {
+      @Override
+      public void foundPossibleResultPoint(ResultPoint point) {
+        points.add(point);
+      }
+    });
+    MultiFormatReader reader = new MultiFormatReader();
+    reader.setHints(hints);
+    Result result = reader.decodeCoarseToFine(source);
+    assertEquals("fine", result.getText());
+    // Points from the coarse pass and from the pass over the region around them alike are on the symbol
+    assertFalse(points.isEmpty());
+    for (ResultPoint point : points) {
+      assertTrue(point.getX() >= 900 && point.getX() < 990);
+      assertTrue(point.getY() >= 700 && point.getY() < 790);
+    }
+  }
+
+  private static void assertPointsWithin(Result result, int left, int top, int size) {
+    for (ResultPoint point : result.getResultPoints()) {
+      assertTrue(point.getX() >= left && point.getX() < left + size);
+      assertTrue(point.getY() >= top && point.getY() < top + size);
+    }
+  }
+
+  /**
+   * Draws a QR code of the given size at the given position on a white image.
+   */
+  private static LuminanceSource createImage(String contents, int width, int height, int left, int top, int size) {
+    BitMatrix code;
+    try {
+      code = new QRCodeWriter().encode(contents, BarcodeFormat.QR_CODE, size, size);
+    } catch (WriterException we) {
+      throw new IllegalStateException(we);
+    }
+    byte[] luminances = new byte[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        boolean black = x >= left && x < left + code.getWidth() && y >= top && y < top + code.getHeight() &&
+            code.get(x - left, y - top);
+        luminances[y * width + x] = (byte) (black ? 0x20 : 0xE0);
+      }
+    }
+    return new PlanarYUVLuminanceSource(luminances, width, height, 0, 0, width, height, false);
+  }
+
+}
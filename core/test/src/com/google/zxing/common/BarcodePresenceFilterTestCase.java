@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests {@link BarcodePresenceFilter}.
+ */
+public final class BarcodePresenceFilterTestCase extends Assert {
+
+  private static final int WIDTH = 640;
+  private static final int HEIGHT = 480;
+  private static final int CODE_LEFT = 70;
+  private static final int CODE_TOP = 330;
+
+  @Test
+  public void testFlatImage() {
+    byte[] luminances = createBackground();
+    assertNull(BarcodePresenceFilter.findCandidateRegion(createSource(luminances)));
+  }
+
+  @Test
+  public void testBars() {
+    byte[] luminances = createBackground();
+    // Bars of 2 and 4 pixels, like a 1D barcode
+    for (int y = 300; y < 380; y++) {
+      for (int x = 400; x < 560; x++) {
+        if ((x / 2 * 7 + x / 4) % 3 == 0) {
+          luminances[y * WIDTH + x] = 20;
+        }
+      }
+    }
+    int[] region = BarcodePresenceFilter.findCandidateRegion(createSource(luminances));
+    assertNotNull(region);
+    assertTrue(region[0] <= 400 && region[1] <= 300);
+    assertTrue(region[0] + region[2] >= 560 && region[1] + region[3] >= 380);
+    assertTrue(region[2] < WIDTH && region[3] < HEIGHT);
+  }
+
+  @Test
+  public void testDecode() throws WriterException, NotFoundException {
+    byte[] luminances = createBackground();
+    BitMatrix code = drawCode(luminances);
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.PRESENCE_FILTER, Boolean.TRUE);
+    Result result = new MultiFormatReader().decode(new BinaryBitmap(new HybridBinarizer(createSource(luminances))),
+                                                   hints);
+    assertEquals("Presence", result.getText());
+    // Points are in the coordinates of the whole image, not of the region decoded
+    for (ResultPoint point : result.getResultPoints()) {
+      assertTrue(point.getX() > CODE_LEFT && point.getX() < CODE_LEFT + code.getWidth());
+      assertTrue(point.getY() > CODE_TOP && point.getY() < CODE_TOP + code.getHeight());
+    }
+  }
+
+  @Test
+  public void testResultPointCallback() throws WriterException, NotFoundException {
+    byte[] luminances = createBackground();
+    drawCode(luminances);
+    final List<ResultPoint> points = new ArrayList<ResultPoint>();
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.PRESENCE_FILTER, Boolean.TRUE);
+    hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, new ResultPointCallback() {
+      @Override
+      public void foundPossibleResultPoint(ResultPoint point) {
+        points.add(point);
+      }
+    });
+    Result result = new MultiFormatReader().decode(new BinaryBitmap(new HybridBinarizer(createSource(luminances))),
+                                                   hints);
+    assertEquals("Presence", result.getText());
+    // The points passed to the callback are in the same coordinates as those of the result
+    for (ResultPoint resultPoint : result.getResultPoints()) {
+      float nearest = Float.MAX_VALUE;
+      for (ResultPoint point : points) {
+        nearest = Math.min(nearest, ResultPoint.distance(point, resultPoint));
+      }
+      assertTrue(nearest < 2.0f);
+    }
+  }
+
+  @Test(expected = NotFoundException.class)
+  public void testSkipFlatImage() throws NotFoundException {
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.PRESENCE_FILTER, Boolean.TRUE);
+    new MultiFormatReader().decode(new BinaryBitmap(new HybridBinarizer(createSource(createBackground()))), hints);
+  }
+
+  /**
+   * Draws a QR code in the lower left of the image.
+   */
+  private static BitMatrix drawCode(byte[] luminances) throws WriterException {
+    BitMatrix code = new QRCodeWriter().encode("Presence", BarcodeFormat.QR_CODE, 100, 100);
+    for (int y = 0; y < code.getHeight(); y++) {
+      for (int x = 0; x < code.getWidth(); x++) {
+        if (code.get(x, y)) {
+          luminances[(CODE_TOP + y) * WIDTH + CODE_LEFT + x] = 20;
+        }
+      }
+    }
+    return code;
+  }
+
+  /**
+   * @return a light, slightly noisy image with a gentle gradient, like an empty scene
+   */
+  private static byte[] createBackground() {
+    byte[] luminances = new byte[WIDTH * HEIGHT];
+    Random random = new Random(0x9E5E);
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH; x++) {
+        luminances[y * WIDTH + x] = (byte) (160 + x / 16 + random.nextInt(8));
+      }
+    }
+    return luminances;
+  }
+
+  private static LuminanceSource createSource(byte[] luminances) {
+    return new PlanarYUVLuminanceSource(luminances, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, false);
+  }
+
+}
@@ -181,4 +181,25 @@ public final class BitArrayTestCase extends Assert {
     assertFalse(array.isRange(0, 64, false));
   }
 
+  @Test
+  public void testReverse() {
+    Random random = new Random(0xBEEF);
+    for (int size = 1; size < 100; size++) {
+      BitArray array = new BitArray(size);
+      for (int i = 0; i < size; i++) {
+        if (random.nextBoolean()) {
+          array.set(i);
+        }
+      }
+      BitArray reversed = new BitArray(size);
+      for (int i = 0; i < size; i++) {
+        if (array.get(size - 1 - i)) {
+          reversed.set(i);
+        }
+      }
+      array.reverse();
+      assertArrayEquals(reversed.getBitArray(), array.getBitArray());
+    }
+  }
+
 }
\ No newline at end of file
@@ -19,6 +19,8 @@ package com.google.zxing.common;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Random;
+
 /**
  * @author Sean Owen
  * @author dswitkin@google.com (Daniel Switkin)
@@ -96,6 +98,36 @@ public final class BitMatrixTestCase extends Assert {
     }
   }
 
+  @Test
+  public void testSetRowBits() {
+    BitMatrix matrix = new BitMatrix(70, 3);
+    matrix.set(3, 1);
+    matrix.setRowBits(1, new int[] { 0x80000001, 0x00000002, 0x00000020 }, 0, 2);
+    for (int x = 0; x < 70; x++) {
+      assertEquals(x == 0 || x == 3 || x == 31 || x == 33, matrix.get(x, 1));
+      assertFalse(matrix.get(x, 0));
+      assertFalse(matrix.get(x, 2));
+    }
+  }
+
+  @Test
+  public void testEnclosing() {
+    BitMatrix matrix = new BitMatrix(5);
+    assertNull(matrix.getEnclosingRectangle());
+    matrix.setRegion(1, 1, 1, 1);
+    assertArrayEquals(new int[] { 1, 1, 0, 0 }, matrix.getEnclosingRectangle());
+    matrix.setRegion(1, 1, 3, 2);
+    assertArrayEquals(new int[] { 1, 1, 2, 1 }, matrix.getEnclosingRectangle());
+    matrix.setRegion(0, 0, 5, 5);
+    assertArrayEquals(new int[] { 0, 0, 4, 4 }, matrix.getEnclosingRectangle());
+
+    matrix = new BitMatrix(100, 40);
+    matrix.set(70, 3);
+    matrix.set(31, 20);
+    matrix.set(33, 38);
+    assertArrayEquals(new int[] { 31, 3, 39, 35 }, matrix.getEnclosingRectangle());
+  }
+
   @Test
   public void testGetRow() {
     BitMatrix matrix = new BitMatrix(102, 5);
@@ -127,4 +159,118 @@ public final class BitMatrixTestCase extends Assert {
     }
   }
 
+  @Test
+  public void testTransforms() {
+    // Sizes below, at and above one 32 bit word, in each direction
+    int[] sizes = { 1, 7, 32, 33, 70 };
+    for (int width : sizes) {
+      for (int height : sizes) {
+        BitMatrix matrix = createRandomMatrix(width, height);
+        BitMatrix transposed = matrix.transpose();
+        BitMatrix rotated90 = matrix.rotate90();
+        BitMatrix rotated180 = matrix.rotate180();
+        BitMatrix mirrored = matrix.mirrorHorizontal();
+        assertEquals(height, transposed.getWidth());
+        assertEquals(width, transposed.getHeight());
+        assertEquals(height, rotated90.getWidth());
+        assertEquals(width, rotated90.getHeight());
+        for (int y = 0; y < height; y++) {
+          for (int x = 0; x < width; x++) {
+            boolean on = matrix.get(x, y);
+            assertEquals(on, transposed.get(y, x));
+            assertEquals(on, rotated90.get(y, width - 1 - x));
+            assertEquals(on, rotated180.get(width - 1 - x, height - 1 - y));
+            assertEquals(on, mirrored.get(width - 1 - x, y));
+          }
+        }
+        assertEquals(matrix, matrix.rotate90().rotate90().rotate90().rotate90());
+        assertEquals(rotated180, rotated90.rotate90());
+      }
+    }
+  }
+
+  @Test
+  public void testXor() {
+    BitMatrix matrix = createRandomMatrix(45, 9);
+    BitMatrix mask = createRandomMatrix(45, 9);
+    BitMatrix result = matrix.clone();
+    result.xor(mask);
+    for (int y = 0; y < 9; y++) {
+      for (int x = 0; x < 45; x++) {
+        assertEquals(matrix.get(x, y) != mask.get(x, y), result.get(x, y));
+      }
+    }
+    result.xor(mask);
+    assertEquals(matrix, result);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testXorMismatch() {
+    new BitMatrix(45, 9).xor(new BitMatrix(9, 45));
+  }
+
+  @Test
+  public void testCopyRow() {
+    BitMatrix matrix = createRandomMatrix(40, 4);
+    BitMatrix original = matrix.clone();
+    matrix.copyRow(1, 3);
+    for (int y = 0; y < 4; y++) {
+      for (int x = 0; x < 40; x++) {
+        assertEquals(original.get(x, y == 3 ? 1 : y), matrix.get(x, y));
+      }
+    }
+  }
+
+  @Test
+  public void testClone() {
+    BitMatrix matrix = createRandomMatrix(40, 4);
+    BitMatrix clone = matrix.clone();
+    assertEquals(matrix, clone);
+    clone.flip(39, 3);
+    assertFalse(matrix.equals(clone));
+  }
+
+  @Test
+  public void testFailedTileFill() {
+    // Sets the diagonal of each tile, failing the first time it is asked to
+    TileFiller filler = new TileFiller() {
+      private boolean failed;
+      @Override
+      public void fillTile(int tileX, int tileY, BitMatrix matrix) {
+        if (!failed) {
+          failed = true;
+          throw new IllegalStateException();
+        }
+        int tileSize = 1 << BitMatrix.TILE_SIZE_POWER;
+        for (int i = 0; i < tileSize; i++) {
+          matrix.set(tileX * tileSize + i, tileY * tileSize + i);
+        }
+      }
+    };
+    BitMatrix matrix = new BitMatrix(128, 128, filler);
+    try {
+      matrix.get(5, 5);
+      fail("The filler should have failed");
+    } catch (IllegalStateException ise) {
+      // good
+    }
+    // The tile is filled when next read, rather than left white
+    assertTrue(matrix.get(5, 5));
+    assertFalse(matrix.get(5, 6));
+    assertTrue(matrix.get(70, 70));
+  }
+
+  private static BitMatrix createRandomMatrix(int width, int height) {
+    Random random = new Random(0xB17);
+    BitMatrix matrix = new BitMatrix(width, height);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        if (random.nextBoolean()) {
+          matrix.set(x, y);
+        }
+      }
+    }
+    return matrix;
+  }
+
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.oned.Code128Writer;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Tests that decoding with a {@link DecodeWorkspace} and a {@link BinarizerWorkspace} allocates little
+ * once the buffers have been allocated. The budgets are loose, but well below the size of the buffers,
+ * such as the 38K bit matrix of a VGA image, which would be allocated for each image without them.
+ */
+public final class DecodeWorkspaceTestCase extends Assert {
+
+  private static final int WIDTH = 640;
+  private static final int HEIGHT = 480;
+  private static final int ITERATIONS = 100;
+
+  @Test
+  public void testQRCodeAllocation() throws Exception {
+    BitMatrix code = new QRCodeWriter().encode("Workspace test 1234567890", BarcodeFormat.QR_CODE, 200, 200);
+    assertAllocation(createSource(code), "Workspace test 1234567890", 16 * 1024);
+  }
+
+  @Test
+  public void testCode128Allocation() throws Exception {
+    BitMatrix code = new Code128Writer().encode("WORKSPACE-128", BarcodeFormat.CODE_128, 400, 100);
+    assertAllocation(createSource(code), "WORKSPACE-128", 4 * 1024);
+  }
+
+  private static void assertAllocation(LuminanceSource source, String expected, long budget) throws Exception {
+    // Allocation counting is specific to the Sun/Oracle JVM and its descendants.
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    Method getThreadAllocatedBytes = null;
+    try {
+      Class<?> allocationBean = Class.forName("com.sun.management.ThreadMXBean");
+      if (allocationBean.isInstance(threadBean)) {
+        getThreadAllocatedBytes = allocationBean.getMethod("getThreadAllocatedBytes", long.class);
+      }
+    } catch (ClassNotFoundException cnfe) {
+      // not supported
+    }
+    long threadId = Thread.currentThread().getId();
+    Assume.assumeTrue(getThreadAllocatedBytes != null &&
+                      (Long) getThreadAllocatedBytes.invoke(threadBean, threadId) >= 0);
+
+    Map<DecodeHintType,Object> hints = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
+    hints.put(DecodeHintType.DECODE_WORKSPACE, new DecodeWorkspace());
+    MultiFormatReader reader = new MultiFormatReader();
+    reader.setHints(hints);
+    BinarizerWorkspace binarizerWorkspace = new BinarizerWorkspace();
+
+    // Let the buffers grow, and the code be compiled, first
+    for (int i = 0; i < ITERATIONS; i++) {
+      assertEquals(expected, reader.decodeWithState(
+          new BinaryBitmap(new HybridBinarizer(source, binarizerWorkspace))).getText());
+    }
+    long before = (Long) getThreadAllocatedBytes.invoke(threadBean, threadId);
+    for (int i = 0; i < ITERATIONS; i++) {
+      reader.decodeWithState(new BinaryBitmap(new HybridBinarizer(source, binarizerWorkspace)));
+    }
+    long allocated = ((Long) getThreadAllocatedBytes.invoke(threadBean, threadId) - before) / ITERATIONS;
+    assertTrue("Allocated " + allocated + " bytes per decode", allocated < budget);
+  }
+
+  private static LuminanceSource createSource(BitMatrix code) {
+    byte[] luminances = new byte[WIDTH * HEIGHT];
+    Arrays.fill(luminances, (byte) 200);
+    for (int y = 0; y < code.getHeight(); y++) {
+      for (int x = 0; x < code.getWidth(); x++) {
+        if (code.get(x, y)) {
+          luminances[(100 + y) * WIDTH + 100 + x] = 20;
+        }
+      }
+    }
+    return new PlanarYUVLuminanceSource(luminances, WIDTH, HEIGHT, 0, 0, WIDTH, HEIGHT, false);
+  }
+
+}
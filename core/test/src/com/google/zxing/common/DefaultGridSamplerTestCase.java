@@ -0,0 +1,59 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.NotFoundException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public final class DefaultGridSamplerTestCase extends Assert {
+
+  private static final int DIMENSION = 10;
+  private static final int MODULE_SIZE = 3;
+
+  @Test
+  public void testUncertainModules() throws NotFoundException {
+    BitMatrix image = new BitMatrix(DIMENSION * MODULE_SIZE);
+    for (int y = 0; y < DIMENSION; y++) {
+      for (int x = 0; x < DIMENSION; x++) {
+        if ((x + y) % 3 == 0) {
+          image.setRegion(x * MODULE_SIZE, y * MODULE_SIZE, MODULE_SIZE, MODULE_SIZE);
+        }
+      }
+    }
+    float size = (float) (DIMENSION * MODULE_SIZE);
+    PerspectiveTransform transform = PerspectiveTransform.quadrilateralToQuadrilateral(
+        0.0f, 0.0f, DIMENSION, 0.0f, DIMENSION, DIMENSION, 0.0f, DIMENSION,
+        0.0f, 0.0f, size, 0.0f, size, size, 0.0f, size);
+    DefaultGridSampler sampler = new DefaultGridSampler();
+
+    // Every module of a clean image is certain
+    BitMatrix uncertain = new BitMatrix(DIMENSION);
+    BitMatrix bits = sampler.sampleGrid(image, DIMENSION, DIMENSION, transform, null, uncertain);
+    assertEquals(sampler.sampleGrid(image, DIMENSION, DIMENSION, transform), bits);
+    assertNull(uncertain.getEnclosingRectangle());
+
+    // A speck at the center of a module makes just that one uncertain, though it is still sampled
+    image.flip(4 * MODULE_SIZE + 1, 5 * MODULE_SIZE + 1);
+    uncertain.clear();
+    bits = sampler.sampleGrid(image, DIMENSION, DIMENSION, transform, null, uncertain);
+    assertEquals(sampler.sampleGrid(image, DIMENSION, DIMENSION, transform), bits);
+    assertEquals((4 + 5) % 3 != 0, bits.get(4, 5));
+    assertArrayEquals(new int[] {4, 5, 0, 0}, uncertain.getEnclosingRectangle());
+  }
+
+}
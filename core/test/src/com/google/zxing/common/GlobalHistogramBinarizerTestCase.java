@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests {@link GlobalHistogramBinarizer}.
+ */
+public final class GlobalHistogramBinarizerTestCase extends Assert {
+
+  @Test
+  public void testRepeatedRows() throws NotFoundException {
+    LuminanceSource source = HybridBinarizerTestCase.createSource(new Random(0x6157), 200, 120);
+    GlobalHistogramBinarizer binarizer = new GlobalHistogramBinarizer(source);
+    BitArray row = null;
+    for (int pass = 0; pass < 3; pass++) {
+      for (int y = pass; y < 120; y += 7) {
+        BitArray expected = new GlobalHistogramBinarizer(source).getBlackRow(y, null);
+        row = binarizer.getBlackRow(y, row);
+        assertArrayEquals(expected.getBitArray(), row.getBitArray());
+      }
+    }
+  }
+
+  @Test
+  public void testRepeatedLowContrastRow() {
+    int width = 50;
+    int height = 10;
+    byte[] luminances = new byte[width * height];
+    for (int x = 0; x < width; x++) {
+      luminances[x] = (byte) (x % 5 == 0 ? 0x10 : 0xF0);
+    }
+    for (int i = width; i < luminances.length; i++) {
+      luminances[i] = (byte) (i % 3 == 0 ? 0x80 : 0x88);
+    }
+    LuminanceSource source = new PlanarYUVLuminanceSource(luminances, width, height, 0, 0, width, height, false);
+    GlobalHistogramBinarizer binarizer = new GlobalHistogramBinarizer(source);
+    for (int i = 0; i < 2; i++) {
+      try {
+        binarizer.getBlackRow(5, null);
+        fail("Row without contrast should have no black point");
+      } catch (NotFoundException nfe) {
+        // good
+      }
+      try {
+        binarizer.getBlackRow(0, null);
+      } catch (NotFoundException nfe) {
+        fail("Striped row should have a black point");
+      }
+    }
+  }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests {@link HybridBinarizer}.
+ */
+public final class HybridBinarizerTestCase extends Assert {
+
+  @Test
+  public void testWorkspaceReuse() throws NotFoundException {
+    BinarizerWorkspace workspace = new BinarizerWorkspace();
+    Random random = new Random(0xBEEF);
+    BitMatrix previous = null;
+    for (int i = 0; i < 4; i++) {
+      LuminanceSource source = createSource(random, 203, 117);
+      BitMatrix expected = new HybridBinarizer(source).getBlackMatrix();
+      BitMatrix actual = new HybridBinarizer(source, workspace).getBlackMatrix();
+      assertEquals(expected, actual);
+      if (previous != null) {
+        assertSame(previous, actual);
+      }
+      previous = actual;
+    }
+  }
+
+  @Test
+  public void testWorkspaceResize() throws NotFoundException {
+    BinarizerWorkspace workspace = new BinarizerWorkspace();
+    Random random = new Random(0xCAFE);
+    int[][] sizes = {{64, 64}, {320, 240}, {41, 300}, {128, 40}};
+    for (int[] size : sizes) {
+      LuminanceSource source = createSource(random, size[0], size[1]);
+      BitMatrix expected = new HybridBinarizer(source).getBlackMatrix();
+      BitMatrix actual = new HybridBinarizer(source, workspace).getBlackMatrix();
+      assertEquals(size[0], actual.getWidth());
+      assertEquals(size[1], actual.getHeight());
+      assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testParallel() throws NotFoundException {
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Random random = new Random(0xF00D);
+      int[][] sizes = {{1001, 1203}, {640, 512}, {320, 2051}, {2000, 300}};
+      for (int[] size : sizes) {
+        LuminanceSource source = createSource(random, size[0], size[1]);
+        BitMatrix expected = new HybridBinarizer(source).getBlackMatrix();
+        BitMatrix actual = new HybridBinarizer(source, new BinarizerWorkspace(), executor).getBlackMatrix();
+        assertEquals(expected, actual);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testMatchesReference() throws NotFoundException {
+    Random random = new Random(0xD00D);
+    int[][] sizes = {{40, 40}, {64, 48}, {203, 117}, {41, 300}, {333, 45}, {127, 129}};
+    for (int[] size : sizes) {
+      LuminanceSource source = createSource(random, size[0], size[1]);
+      assertEquals(referenceBlackMatrix(source), new HybridBinarizer(source).getBlackMatrix());
+      // Uniform noise has no low contrast blocks, and flat patches have nothing but
+      LuminanceSource noise = createNoiseSource(random, size[0], size[1], 256);
+      assertEquals(referenceBlackMatrix(noise), new HybridBinarizer(noise).getBlackMatrix());
+      LuminanceSource flat = createNoiseSource(random, size[0], size[1], 8);
+      assertEquals(referenceBlackMatrix(flat), new HybridBinarizer(flat).getBlackMatrix());
+    }
+  }
+
+  /**
+   * Binarizes the source as HybridBinarizer did before it used summed-area tables: each 8x8 block is
+   * thresholded at the average of the 5x5 black points around it, adding up all 25 of them.
+   */
+  private static BitMatrix referenceBlackMatrix(LuminanceSource source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    byte[] luminances = source.getMatrix();
+    int subWidth = (width + 7) >> 3;
+    int subHeight = (height + 7) >> 3;
+    int[][] blackPoints = new int[subHeight][subWidth];
+    for (int y = 0; y < subHeight; y++) {
+      int yoffset = Math.min(y << 3, height - 8);
+      for (int x = 0; x < subWidth; x++) {
+        int xoffset = Math.min(x << 3, width - 8);
+        int sum = 0;
+        int min = 0xFF;
+        int max = 0;
+        for (int yy = 0; yy < 8; yy++) {
+          for (int xx = 0; xx < 8; xx++) {
+            int pixel = luminances[(yoffset + yy) * width + xoffset + xx] & 0xFF;
+            sum += pixel;
+            min = Math.min(min, pixel);
+            max = Math.max(max, pixel);
+          }
+        }
+        int average = sum >> 6;
+        if (max - min <= 24) {
+          average = min >> 1;
+          if (y > 0 && x > 0) {
+            int averageNeighborBlackPoint =
+                (blackPoints[y - 1][x] + (2 * blackPoints[y][x - 1]) + blackPoints[y - 1][x - 1]) >> 2;
+            if (min < averageNeighborBlackPoint) {
+              average = averageNeighborBlackPoint;
+            }
+          }
+        }
+        blackPoints[y][x] = average;
+      }
+    }
+    BitMatrix matrix = new BitMatrix(width, height);
+    for (int y = 0; y < subHeight; y++) {
+      int yoffset = Math.min(y << 3, height - 8);
+      for (int x = 0; x < subWidth; x++) {
+        int xoffset = Math.min(x << 3, width - 8);
+        int left = Math.min(Math.max(x, 2), subWidth - 3);
+        int top = Math.min(Math.max(y, 2), subHeight - 3);
+        int sum = 0;
+        for (int z = -2; z <= 2; z++) {
+          for (int w = -2; w <= 2; w++) {
+            sum += blackPoints[top + z][left + w];
+          }
+        }
+        int threshold = sum / 25;
+        for (int yy = 0; yy < 8; yy++) {
+          for (int xx = 0; xx < 8; xx++) {
+            if ((luminances[(yoffset + yy) * width + xoffset + xx] & 0xFF) <= threshold) {
+              matrix.set(xoffset + xx, yoffset + yy);
+            }
+          }
+        }
+      }
+    }
+    return matrix;
+  }
+
+  private static LuminanceSource createNoiseSource(Random random, int width, int height, int range) {
+    byte[] luminances = new byte[width * height];
+    int base = random.nextInt(257 - range);
+    for (int i = 0; i < luminances.length; i++) {
+      luminances[i] = (byte) (base + random.nextInt(range));
+    }
+    return new PlanarYUVLuminanceSource(luminances, width, height, 0, 0, width, height, false);
+  }
+
+  /**
+   * Makes a noisy checkerboard over a horizontal gradient, so that both the high and low contrast
+   * branches of the black point calculation are exercised.
+   */
+  static LuminanceSource createSource(Random random, int width, int height) {
+    byte[] luminances = new byte[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int base = 40 + (x * 160) / width;
+        boolean dark = ((x / 11) + (y / 13)) % 3 == 0;
+        int value = (dark ? base / 3 : base) + random.nextInt(16);
+        luminances[y * width + x] = (byte) value;
+      }
+    }
+    return new PlanarYUVLuminanceSource(luminances, width, height, 0, 0, width, height, false);
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests {@link LazyHybridBinarizer}.
+ */
+public final class LazyHybridBinarizerTestCase extends Assert {
+
+  private static final int[][] SIZES = {{64, 64}, {130, 100}, {203, 117}, {321, 257}, {41, 300}};
+
+  @Test
+  public void testRandomAccess() throws NotFoundException {
+    Random random = new Random(0x1A2B);
+    for (int[] size : SIZES) {
+      int width = size[0];
+      int height = size[1];
+      LuminanceSource source = HybridBinarizerTestCase.createSource(random, width, height);
+      BitMatrix expected = new HybridBinarizer(source).getBlackMatrix();
+      BitMatrix actual = new LazyHybridBinarizer(source).getBlackMatrix();
+      for (int i = 0; i < 500; i++) {
+        int x = random.nextInt(width);
+        int y = random.nextInt(height);
+        assertEquals(expected.get(x, y), actual.get(x, y));
+      }
+      assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testRows() throws NotFoundException {
+    Random random = new Random(0x3C4D);
+    for (int[] size : SIZES) {
+      LuminanceSource source = HybridBinarizerTestCase.createSource(random, size[0], size[1]);
+      BitMatrix expected = new HybridBinarizer(source).getBlackMatrix();
+      BitMatrix actual = new LazyHybridBinarizer(source).getBlackMatrix();
+      for (int y = size[1] - 1; y >= 0; y -= 7) {
+        assertArrayEquals(expected.getRow(y, null).getBitArray(), actual.getRow(y, null).getBitArray());
+      }
+      assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testEnclosingRectangle() throws NotFoundException {
+    Random random = new Random(0x5E6F);
+    for (int[] size : SIZES) {
+      LuminanceSource source = HybridBinarizerTestCase.createSource(random, size[0], size[1]);
+      BitMatrix expected = new HybridBinarizer(source).getBlackMatrix();
+      BitMatrix actual = new LazyHybridBinarizer(source).getBlackMatrix();
+      assertTrue(Arrays.equals(expected.getEnclosingRectangle(), actual.getEnclosingRectangle()));
+      assertTrue(Arrays.equals(expected.getTopLeftOnBit(), actual.getTopLeftOnBit()));
+      assertEquals(expected, actual);
+    }
+  }
+
+}
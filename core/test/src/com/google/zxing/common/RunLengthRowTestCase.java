@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests {@link RunLengthRow}.
+ */
+public final class RunLengthRowTestCase extends Assert {
+
+  @Test
+  public void testRuns() {
+    Random random = new Random(0x4E5);
+    for (int size = 1; size < 100; size += 7) {
+      BitArray row = new BitArray(size);
+      for (int i = 0; i < size; i++) {
+        // Runs of random length, some spanning words
+        if ((i / (1 + random.nextInt(40))) % 2 == 0) {
+          row.set(i);
+        }
+      }
+      RunLengthRow runs = new RunLengthRow(row);
+      assertEquals(size, runs.getSize());
+      assertEquals(0, runs.getRunStart(0));
+      assertEquals(size, runs.getRunEnd(runs.getRunCount() - 1));
+      for (int run = 0; run < runs.getRunCount(); run++) {
+        int start = runs.getRunStart(run);
+        int end = runs.getRunEnd(run);
+        assertEquals(end - start, runs.getRunWidth(run));
+        assertTrue(end > start);
+        for (int i = start; i < end; i++) {
+          assertEquals(row.get(i), runs.isBlack(run));
+          assertEquals(run, runs.getRunAt(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testEmpty() {
+    RunLengthRow runs = new RunLengthRow(new BitArray(0));
+    assertEquals(0, runs.getRunCount());
+  }
+
+  @Test
+  public void testCachedUntilChanged() {
+    BitArray row = new BitArray(70);
+    row.setRange(10, 40);
+    RunLengthRow runs = row.getRunLengthRow();
+    assertSame(runs, row.getRunLengthRow());
+    assertEquals(3, runs.getRunCount());
+    assertFalse(runs.isBlack(0));
+    assertEquals(10, runs.getRunStart(1));
+    assertEquals(30, runs.getRunWidth(1));
+
+    // The same object is brought up to date
+    row.set(50);
+    assertSame(runs, row.getRunLengthRow());
+    assertEquals(5, runs.getRunCount());
+    row.reverse();
+    assertSame(runs, row.getRunLengthRow());
+    assertTrue(runs.isBlack(1));
+    assertEquals(19, runs.getRunStart(1));
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Tests {@link TemporalHybridBinarizer}.
+ */
+public final class TemporalHybridBinarizerTestCase extends Assert {
+
+  @Test
+  public void testStaticFrames() throws NotFoundException {
+    BinarizerWorkspace workspace = new BinarizerWorkspace();
+    LuminanceSource source = HybridBinarizerTestCase.createSource(new Random(0xAB), 203, 117);
+    BitMatrix expected = new HybridBinarizer(source).getBlackMatrix();
+    for (int i = 0; i < 3; i++) {
+      assertEquals(expected, new TemporalHybridBinarizer(source, workspace).getBlackMatrix());
+    }
+  }
+
+  @Test
+  public void testLightingChange() throws NotFoundException {
+    BinarizerWorkspace workspace = new BinarizerWorkspace();
+    LuminanceSource source = HybridBinarizerTestCase.createSource(new Random(0xCD), 320, 240);
+    new TemporalHybridBinarizer(source, workspace).getBlackMatrix();
+    LuminanceSource brighter = brighten(source, 40);
+    BitMatrix expected = new HybridBinarizer(brighter).getBlackMatrix();
+    assertEquals(expected, new TemporalHybridBinarizer(brighter, workspace).getBlackMatrix());
+  }
+
+  @Test
+  public void testSizeChange() throws NotFoundException {
+    BinarizerWorkspace workspace = new BinarizerWorkspace();
+    Random random = new Random(0xEF);
+    int[][] sizes = {{64, 64}, {130, 100}, {41, 300}, {130, 100}};
+    for (int[] size : sizes) {
+      LuminanceSource source = HybridBinarizerTestCase.createSource(random, size[0], size[1]);
+      BitMatrix expected = new HybridBinarizer(source).getBlackMatrix();
+      assertEquals(expected, new TemporalHybridBinarizer(source, workspace).getBlackMatrix());
+    }
+  }
+
+  private static LuminanceSource brighten(LuminanceSource source, int delta) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    byte[] luminances = source.getMatrix().clone();
+    for (int i = 0; i < luminances.length; i++) {
+      luminances[i] = (byte) Math.min(255, (luminances[i] & 0xFF) + delta);
+    }
+    return new PlanarYUVLuminanceSource(luminances, width, height, 0, 0, width, height, false);
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.common.reedsolomon;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link GenericGF}.
+ */
+public final class GenericGFTestCase extends Assert {
+
+  private static final GenericGF[] FIELDS = {
+      GenericGF.QR_CODE_FIELD_256,
+      GenericGF.DATA_MATRIX_FIELD_256,
+      GenericGF.AZTEC_DATA_6,
+      GenericGF.AZTEC_PARAM,
+      GenericGF.AZTEC_DATA_10,
+  };
+
+  @Test
+  public void testMultiply() {
+    for (GenericGF field : FIELDS) {
+      int size = field.getSize();
+      for (int a = 0; a < size; a++) {
+        for (int b = 0; b < size; b++) {
+          assertEquals(multiplyByLogs(field, a, b), field.multiply(a, b));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMultiplyTable() {
+    for (GenericGF field : FIELDS) {
+      int size = field.getSize();
+      byte[] multiplyTable = field.getMultiplyTable();
+      if (size > 256) {
+        assertNull(multiplyTable);
+        continue;
+      }
+      assertSame(multiplyTable, field.getMultiplyTable());
+      for (int a = 0; a < size; a++) {
+        for (int b = 0; b < size; b++) {
+          assertEquals(multiplyByLogs(field, a, b), multiplyTable[a * size + b] & 0xFF);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testInverse() {
+    for (GenericGF field : FIELDS) {
+      for (int a = 1; a < field.getSize(); a++) {
+        assertEquals(1, field.multiply(a, field.inverse(a)));
+      }
+    }
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void testInverseOfZero() {
+    GenericGF.QR_CODE_FIELD_256.inverse(0);
+  }
+
+  /**
+   * Multiplies by adding logs and shifting back and forth, the long way.
+   */
+  private static int multiplyByLogs(GenericGF field, int a, int b) {
+    if (a == 0 || b == 0) {
+      return 0;
+    }
+    return field.exp((field.log(a) + field.log(b)) % (field.getSize() - 1));
+  }
+
+}
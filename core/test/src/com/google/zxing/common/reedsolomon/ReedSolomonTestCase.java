@@ -23,6 +23,9 @@ import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Rustam Abdullaev
@@ -394,6 +397,192 @@ public final class ReedSolomonTestCase extends Assert {
     testEncodeDecodeRandom(GenericGF.AZTEC_DATA_12, 3072, 1023);
   }
 
+  @Test
+  public void testDecoderReuse() throws ReedSolomonException {
+    // One decoder corrects blocks of several sizes in turn, as for the blocks of a QR Code, each
+    // with as many errors as it can correct
+    GenericGF field = GenericGF.QR_CODE_FIELD_256;
+    ReedSolomonEncoder encoder = new ReedSolomonEncoder(field);
+    ReedSolomonDecoder decoder = new ReedSolomonDecoder(field);
+    Random random = new Random(0xEC);
+    int[][] sizes = {{20, 10}, {100, 30}, {9, 7}, {40, 22}, {1, 2}};
+    for (int[] size : sizes) {
+      int dataSize = size[0];
+      int ecSize = size[1];
+      int[] message = new int[dataSize + ecSize];
+      for (int i = 0; i < dataSize; i++) {
+        message[i] = random.nextInt(256);
+      }
+      encoder.encode(message, ecSize);
+      int[] received = message.clone();
+      corrupt(received, ecSize / 2, random, 256);
+      decoder.decode(received, ecSize);
+      assertArrayEquals(message, received);
+    }
+  }
+
+  @Test
+  public void testSharedEncoder() throws InterruptedException {
+    assertSame(ReedSolomonEncoder.forField(GenericGF.QR_CODE_FIELD_256),
+               ReedSolomonEncoder.forField(GenericGF.QR_CODE_FIELD_256));
+    // Threads asking the shared encoder for generators of different degrees at once all get the
+    // same codewords as a fresh encoder of their own
+    final GenericGF field = GenericGF.DATA_MATRIX_FIELD_256;
+    final ReedSolomonEncoder shared = ReedSolomonEncoder.forField(field);
+    final AtomicInteger failures = new AtomicInteger();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final int seed = t;
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          Random random = new Random(seed);
+          ReedSolomonEncoder own = new ReedSolomonEncoder(field);
+          for (int i = 0; i < 200; i++) {
+            int ecSize = 1 + random.nextInt(68);
+            int[] message = new int[10 + ecSize];
+            for (int j = 0; j < 10; j++) {
+              message[j] = random.nextInt(256);
+            }
+            int[] expected = message.clone();
+            own.encode(expected, ecSize);
+            shared.encode(message, ecSize);
+            if (!Arrays.equals(expected, message)) {
+              failures.incrementAndGet();
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, failures.get());
+  }
+
+  @Test
+  public void testErasures() throws ReedSolomonException {
+    testErasures(GenericGF.QR_CODE_FIELD_256, 40, 26);
+    testErasures(GenericGF.DATA_MATRIX_FIELD_256, 100, 28);
+    testErasures(GenericGF.AZTEC_DATA_6, 20, 13);
+    testErasures(GenericGF.AZTEC_PARAM, 2, 5);
+  }
+
+  private static void testErasures(GenericGF field, int dataSize, int ecSize) throws ReedSolomonException {
+    ReedSolomonEncoder encoder = ReedSolomonEncoder.forField(field);
+    ReedSolomonDecoder decoder = new ReedSolomonDecoder(field);
+    Random random = new Random(0xE5A5);
+    int[] message = new int[dataSize + ecSize];
+    for (int i = 0; i < dataSize; i++) {
+      message[i] = random.nextInt(field.getSize());
+    }
+    encoder.encode(message, ecSize);
+    for (int numErasures = 0; numErasures <= ecSize; numErasures++) {
+      // Every mix of erasures and errors that fits is corrected, with one erased codeword left intact
+      int numErrors = (ecSize - numErasures) / 2;
+      int[] received = message.clone();
+      int[] order = shuffledPositions(received.length, random);
+      int[] erasurePositions = new int[numErasures];
+      System.arraycopy(order, 0, erasurePositions, 0, numErasures);
+      for (int i = numErasures > 0 ? 1 : 0; i < numErasures + numErrors; i++) {
+        received[order[i]] ^= 1 + random.nextInt(field.getSize() - 1);
+      }
+      decoder.decode(received, ecSize, erasurePositions);
+      assertArrayEquals(message, received);
+    }
+
+    // Errors at unknown positions need twice as many codewords
+    int[] received = message.clone();
+    int[] order = shuffledPositions(received.length, random);
+    int[] erasurePositions = new int[ecSize];
+    for (int i = 0; i < ecSize; i++) {
+      received[order[i]] ^= 1 + random.nextInt(field.getSize() - 1);
+      erasurePositions[i] = order[i];
+    }
+    int[] withErrors = received.clone();
+    decoder.decode(received, ecSize, erasurePositions);
+    assertArrayEquals(message, received);
+    try {
+      decoder.decode(withErrors, ecSize);
+      assertFalse(Arrays.equals(message, withErrors));
+    } catch (ReedSolomonException rse) {
+      // good
+    }
+
+    try {
+      decoder.decode(message.clone(), ecSize, shuffledPositions(ecSize + 1, random));
+      fail("Should not have decoded");
+    } catch (ReedSolomonException rse) {
+      // good
+    }
+  }
+
+  private static int[] shuffledPositions(int n, Random random) {
+    int[] positions = new int[n];
+    for (int i = 0; i < n; i++) {
+      positions[i] = i;
+    }
+    for (int i = n - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int temp = positions[i];
+      positions[i] = positions[j];
+      positions[j] = temp;
+    }
+    return positions;
+  }
+
+  @Test
+  public void testDecodeBlocks() throws ReedSolomonException {
+    // Blocks as for a version 40-H QR Code: some clean, some correctable, corrected sequentially
+    // and on an executor
+    GenericGF field = GenericGF.QR_CODE_FIELD_256;
+    ReedSolomonEncoder encoder = ReedSolomonEncoder.forField(field);
+    ReedSolomonDecoder decoder = new ReedSolomonDecoder(field);
+    Random random = new Random(0xB10C);
+    int ecSize = 30;
+    int[][] messages = new int[81][];
+    for (int b = 0; b < messages.length; b++) {
+      int dataSize = b < 20 ? 15 : 16;
+      int[] message = new int[dataSize + ecSize];
+      for (int i = 0; i < dataSize; i++) {
+        message[i] = random.nextInt(256);
+      }
+      encoder.encode(message, ecSize);
+      messages[b] = message;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      for (ExecutorService blockExecutor : new ExecutorService[] {null, executor}) {
+        int[][] received = new int[messages.length][];
+        for (int b = 0; b < messages.length; b++) {
+          received[b] = messages[b].clone();
+          if (b % 3 != 0) {
+            corrupt(received[b], 1 + random.nextInt(ecSize / 2), random, 256);
+          }
+        }
+        decoder.decode(received, ecSize, blockExecutor);
+        for (int b = 0; b < messages.length; b++) {
+          assertArrayEquals(messages[b], received[b]);
+        }
+
+        // Too many errors in one block fails the whole symbol
+        received[40] = messages[40].clone();
+        received[41] = messages[41].clone();
+        corrupt(received[40], ecSize / 2 + 1, random, 256);
+        corrupt(received[41], 2, random, 256);
+        try {
+          decoder.decode(received, ecSize, blockExecutor);
+          fail("Should not have decoded");
+        } catch (ReedSolomonException rse) {
+          // good
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   private static void corrupt(int[] received, int howMany, Random random, int max) {
     BitSet corrupted = new BitSet(received.length);
     for (int j = 0; j < howMany; j++) {
@@ -101,6 +101,30 @@ public final class ErrorCorrectionTestCase extends AbstractErrorCorrectionTestCa
     }
   }
 
+  @Test
+  public void testEncode() {
+    assertArrayEquals(PDF417_TEST_WITH_EC, encode(PDF417_TEST, ECC_BYTES));
+  }
+
+  @Test
+  public void testLargeSymbol() throws ChecksumException {
+    Random random = getRandom();
+    int numECCodewords = 512;
+    int[] data = new int[928 - numECCodewords];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = random.nextInt(900);
+    }
+    int[] codewords = encode(data, numECCodewords);
+    for (int errors = 0; errors <= numECCodewords / 2; errors += 32) {
+      int[] received = codewords.clone();
+      corrupt(received, errors, random);
+      ec.decode(received, numECCodewords, new int[0]);
+      assertArrayEquals(codewords, received);
+    }
+    // The scratch space kept for this symbol still works for a smaller one
+    testMaxErrors();
+  }
+
   /*
   @Test
   public void testMaxErasures() throws ChecksumException {
@@ -137,4 +161,37 @@ public final class ErrorCorrectionTestCase extends AbstractErrorCorrectionTestCa
     }
   }
 
+  /**
+   * @return the data followed by error-correction codewords, the negated remainder of dividing the
+   *  data by the generator polynomial, the product of (x - 3^j) for j from 1 to numECCodewords
+   */
+  private static int[] encode(int[] data, int numECCodewords) {
+    ModulusGF field = ModulusGF.PDF417_GF;
+    // Coefficients of the generator, from the highest degree down
+    int[] generator = new int[numECCodewords + 1];
+    generator[0] = 1;
+    for (int j = 1; j <= numECCodewords; j++) {
+      int root = field.exp(j);
+      for (int i = j; i > 0; i--) {
+        generator[i] = field.subtract(generator[i], field.multiply(root, generator[i - 1]));
+      }
+    }
+    int[] result = new int[data.length + numECCodewords];
+    System.arraycopy(data, 0, result, 0, data.length);
+    // Long division of the data, times x^numECCodewords, by the monic generator
+    int[] remainder = result.clone();
+    for (int i = 0; i < data.length; i++) {
+      int scale = remainder[i];
+      if (scale != 0) {
+        for (int j = 1; j <= numECCodewords; j++) {
+          remainder[i + j] = field.subtract(remainder[i + j], field.multiply(scale, generator[j]));
+        }
+      }
+    }
+    for (int i = data.length; i < result.length; i++) {
+      result[i] = field.subtract(0, remainder[i]);
+    }
+    return result;
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2013 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.qrcode.detector;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public final class FinderPatternFinderTestCase extends Assert {
+
+  private static final int MODULE_SIZE = 4;
+  // Version 1 is 21 modules on a side, and finder pattern centers are 3.5 modules in from its edges
+  private static final int DIMENSION = 21;
+  private static final float CENTER_OFFSET = 3.5f;
+
+  @Test
+  public void testFind() throws WriterException, NotFoundException {
+    checkFind(4);
+  }
+
+  @Test
+  public void testFindAtEdges() throws WriterException, NotFoundException {
+    // Without a quiet zone the right pattern's row ends in black, at the edge of the image
+    checkFind(0);
+  }
+
+  private static void checkFind(int margin) throws WriterException, NotFoundException {
+    Map<EncodeHintType,Object> hints = new EnumMap<EncodeHintType,Object>(EncodeHintType.class);
+    hints.put(EncodeHintType.MARGIN, margin);
+    int size = (DIMENSION + 2 * margin) * MODULE_SIZE;
+    BitMatrix image = new QRCodeWriter().encode("FINDER", BarcodeFormat.QR_CODE, size, size, hints);
+    assertEquals(size, image.getWidth());
+
+    FinderPatternInfo info = new FinderPatternFinder(image).find(null);
+    float near = (margin + CENTER_OFFSET) * MODULE_SIZE;
+    float far = (margin + DIMENSION - CENTER_OFFSET) * MODULE_SIZE;
+    checkPattern(near, near, info.getTopLeft());
+    checkPattern(far, near, info.getTopRight());
+    checkPattern(near, far, info.getBottomLeft());
+  }
+
+  private static void checkPattern(float x, float y, FinderPattern pattern) {
+    assertEquals(x, pattern.getX(), 1.0f);
+    assertEquals(y, pattern.getY(), 1.0f);
+    assertEquals(MODULE_SIZE, pattern.getEstimatedModuleSize(), 0.5f);
+  }
+
+}
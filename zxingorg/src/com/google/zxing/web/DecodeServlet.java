@@ -17,6 +17,7 @@
 package com.google.zxing.web;
 
 import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinarizerCascade;
 import com.google.zxing.BinaryBitmap;
 import com.google.zxing.ChecksumException;
 import com.google.zxing.DecodeHintType;
@@ -24,12 +25,9 @@ import com.google.zxing.FormatException;
 import com.google.zxing.LuminanceSource;
 import com.google.zxing.MultiFormatReader;
 import com.google.zxing.NotFoundException;
-import com.google.zxing.Reader;
 import com.google.zxing.ReaderException;
 import com.google.zxing.Result;
 import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
-import com.google.zxing.common.GlobalHistogramBinarizer;
-import com.google.zxing.common.HybridBinarizer;
 
 import com.google.zxing.multi.GenericMultipleBarcodeReader;
 import com.google.zxing.multi.MultipleBarcodeReader;
@@ -92,6 +90,8 @@ public final class DecodeServlet extends HttpServlet {
     HINTS = new EnumMap<DecodeHintType,Object>(DecodeHintType.class);
     HINTS.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
     HINTS.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.allOf(BarcodeFormat.class));
+    HINTS.put(DecodeHintType.BINARIZATIONS, Arrays.asList(BinarizerCascade.Binarization.GLOBAL_HISTOGRAM,
+                                                          BinarizerCascade.Binarization.HYBRID));
     HINTS_PURE = new EnumMap<DecodeHintType,Object>(HINTS);
     HINTS_PURE.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
   }
@@ -290,9 +290,11 @@ public final class DecodeServlet extends HttpServlet {
       return;
     }
 
-    Reader reader = new MultiFormatReader();
+    MultiFormatReader reader = new MultiFormatReader();
     LuminanceSource source = new BufferedImageLuminanceSource(image);
-    BinaryBitmap bitmap = new BinaryBitmap(new GlobalHistogramBinarizer(source));
+    // Shares the luminance, and each binarization, across all the passes below
+    BinarizerCascade cascade = new BinarizerCascade(source);
+    BinaryBitmap bitmap = cascade.getBitmap(BinarizerCascade.Binarization.GLOBAL_HISTOGRAM);
     Collection<Result> results = new ArrayList<Result>(1);
     ReaderException savedException = null;
 
@@ -321,21 +323,9 @@ public final class DecodeServlet extends HttpServlet {
 
     if (results.isEmpty()) {
       try {
-        // Look for normal barcode in photo
-        Result theResult = reader.decode(bitmap, HINTS);
-        if (theResult != null) {
-          results.add(theResult);
-        }
-      } catch (ReaderException re) {
-        savedException = re;
-      }
-    }
-
-    if (results.isEmpty()) {
-      try {
-        // Try again with other binarizer
-        BinaryBitmap hybridBitmap = new BinaryBitmap(new HybridBinarizer(source));
-        Result theResult = reader.decode(hybridBitmap, HINTS);
+        // Look for normal barcode in photo, then try again with other binarizer
+        reader.setHints(HINTS);
+        Result theResult = reader.decodeWithState(cascade);
         if (theResult != null) {
           results.add(theResult);
         }